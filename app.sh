@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# thin client of the llvm2mlog compile daemon
+#
+#   app.sh start          start the daemon in the background
+#   app.sh stop           stop the daemon
+#   app.sh ping           check whether the daemon is up
+#   app.sh FILE.ll [parallel=true] [reachable=true] [fastread=true] [lowmemory=true]
+#                         compile FILE.ll, mlog goes to stdout, diagnostics to stderr
+#
+# LLVM2MLOG_PORT  loopback port of the daemon, 7070 by default
+# LLVM2MLOG_CP    classpath to start the daemon with
+
+PORT=${LLVM2MLOG_PORT:-7070}
+CP=${LLVM2MLOG_CP:-target/classes:$HOME/.m2/repository/org/antlr/antlr4-runtime/4.11.1/antlr4-runtime-4.11.1.jar}
+
+# send a request, $1 is the header, stdin is the body
+request() {
+    exec 3<>"/dev/tcp/127.0.0.1/$PORT" || return 2
+    { printf '%s\n' "$1"; cat; } >&3
+    read -r status length info <&3
+    if [ "$status" = OK ]; then
+        head -c "$length" <&3
+        [ -n "$info" ] && echo "$info" >&2
+        exec 3<&-
+        return 0
+    fi
+    head -c "$length" <&3 >&2
+    echo >&2
+    exec 3<&-
+    return 1
+}
+
+case "$1" in
+    start)
+        nohup java -cp "$CP" llvm2mlog.llvm2mlog -server "$PORT" >/dev/null 2>&1 &
+        for _ in $(seq 100); do
+            request PING </dev/null 2>/dev/null && exit 0
+            sleep 0.2
+        done
+        echo "llvm2mlog daemon did not start on port $PORT" >&2
+        exit 2
+        ;;
+    stop)
+        request SHUTDOWN </dev/null
+        ;;
+    ping)
+        request PING </dev/null
+        ;;
+    ""|-h|--help)
+        sed -n '2,12p' "$0"
+        ;;
+    *)
+        file=$1
+        shift
+        request "COMPILE $(($(wc -c <"$file"))) $*" <"$file"
+        ;;
+esac
@@ -0,0 +1,95 @@
+package bench;
+
+import llvm2mlog.compiler.backend.optim.BackEndOptimizer;
+import llvm2mlog.compiler.backend.regalloc.RegisterAllocator;
+import llvm2mlog.compiler.backend.regalloc.StackAllocator;
+import llvm2mlog.compiler.backend.rvasm.AsmBuilder;
+import llvm2mlog.compiler.backend.rvasm.AsmPrinter;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmModule;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
+import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+
+/**
+ * The stages after the middle end: AsmBuilder, RegisterAllocator, BackEndOptimizer and AsmPrinter,
+ * each on the module the stages before it left, as CompilationSession runs them.
+ * Every invocation compiles the module up to the stage again, gc.alloc.rate.norm counts that too:
+ * the allocation of a stage is its own minus the one of stage=none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackEndBench {
+
+    private static final List<String> Stages = List.of("AsmBuilder", "RegisterAllocator", "BackEndOptimizer", "AsmPrinter");
+
+    @Param({"none", "AsmBuilder", "RegisterAllocator", "BackEndOptimizer", "AsmPrinter"})
+    public String stage;
+
+    @Param({"fib.ll", "ipac.ll", "synthetic:10", "synthetic:100"})
+    public String input;
+
+    private String source;
+    private IRModule irModule;
+    private AsmModule asmModule;
+
+    @Setup(Level.Trial)
+    public void read() {
+        source = Pipeline.source(input);
+    }
+
+    @Setup(Level.Invocation)
+    public void compile() {
+        irModule = Pipeline.build(source).irModule;
+        new MiddleEndOptimizer().runOnModule(irModule);
+
+        // the stages before this one, the stack allocator goes with the register allocator
+        int before = stage.equals("none") ? 0 : Stages.indexOf(stage);
+        if (before > 0) {
+            AsmBuilder builder = new AsmBuilder();
+            builder.runOnModule(irModule);
+            asmModule = builder.module;
+        }
+        if (before > 1) {
+            new RegisterAllocator().runOnModule(asmModule);
+            new StackAllocator().runOnModule(asmModule);
+        }
+        if (before > 2) new BackEndOptimizer().runOnModule(asmModule);
+    }
+
+    @Benchmark
+    public Object run() {
+        switch (stage) {
+            case "AsmBuilder":
+                AsmBuilder builder = new AsmBuilder();
+                builder.runOnModule(irModule);
+                return builder.module;
+            case "RegisterAllocator":
+                new RegisterAllocator().runOnModule(asmModule);
+                return asmModule;
+            case "BackEndOptimizer":
+                new BackEndOptimizer().runOnModule(asmModule);
+                return asmModule;
+            case "AsmPrinter":
+                StringBuilder mlog = new StringBuilder();
+                new AsmPrinter(mlog).runOnModule(asmModule);
+                return mlog;
+            default:
+                return irModule;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package bench;
+
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * IRBuilder.run: lexing, parsing and building the IR module from the text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildBench {
+
+    @Param({"fib.ll", "ipac.ll",
+            "examples/diexpression.ll", "examples/global_align.ll", "examples/inst_binary.ll",
+            "examples/multiple_named_metadata_defs.ll", "examples/param_attrs.ll", "examples/rand.ll",
+            "synthetic:10", "synthetic:100", "synthetic:1000"})
+    public String input;
+
+    private String source;
+
+    @Setup(Level.Trial)
+    public void read() {
+        source = Pipeline.source(input);
+    }
+
+    @Benchmark
+    public IRBuilder build() {
+        return Pipeline.build(source);
+    }
+}
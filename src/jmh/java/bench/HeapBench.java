@@ -0,0 +1,82 @@
+package bench;
+
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import llvm2mlog.compiler.middleend.llvmir.IRReader;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.util.function.Supplier;
+
+/**
+ * Heap kept per instruction, on synthetic modules of growing size:
+ * by a module alone, the IR objects themselves, and by the builder after parsing, with and without lowMemory,
+ * the parse trees and rows it keeps besides the module.
+ * Not a JMH benchmark: the gc profiler gives the bytes allocated per operation, not those still reachable after it,
+ * and these are only seen by collecting around a kept result, outside of any measured loop.
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=bench.HeapBench [-Djmh.args="rounds per case"]
+ */
+public class HeapBench {
+
+    // what is measured, a field so it is alive whatever the JIT thinks of locals
+    private static Object kept;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        System.out.println("input\tinstructions\tblocks\tmodule B/inst\tparsed B/inst\tlow memory B/inst");
+        for (int functions : new int[]{100, 1000, 5000}) {
+            String text = SyntheticIR.module(functions);
+            IRModule module = read(text);
+            int instructions = 0, blocks = 0;
+            for (IRFunction function : module.functions)
+                for (IRBlock block : function.blocks) {
+                    instructions += block.phiInsts.size() + block.instructions.size();
+                    blocks++;
+                }
+            module = null;
+            System.out.printf("synthetic %d\t%d\t%d\t%.1f\t%.1f\t%.1f%n", functions, instructions, blocks,
+                    (double) measure(rounds, () -> read(text)) / instructions,
+                    (double) measure(rounds, () -> parse(text, false)) / instructions,
+                    (double) measure(rounds, () -> parse(text, true)) / instructions);
+        }
+    }
+
+    // bytes kept by what build gives
+    private static long measure(int rounds, Supplier<Object> build) {
+        // the first build loads and initializes the classes
+        build.get();
+        long bytes = Long.MAX_VALUE;
+        // the smallest of the rounds, the others may see garbage the collector left
+        for (int i = 0; i < rounds; i++) {
+            kept = null;
+            long before = usedHeap();
+            kept = build.get();
+            bytes = Math.min(bytes, usedHeap() - before);
+        }
+        kept = null;
+        return bytes;
+    }
+
+    private static IRModule read(String text) {
+        var builder = new IRBuilder();
+        new IRReader(builder, text).read();
+        return builder.irModule;
+    }
+
+    // the builder, as a session keeps it while compiling, with the module text the trees or rows point to
+    private static IRBuilder parse(String text, boolean lowMemory) {
+        var builder = new IRBuilder();
+        builder.lowMemory = lowMemory;
+        builder.run(CharStreams.fromString(text));
+        return builder;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        // a few collections, one may leave what a finalizer or reference queue frees only later
+        for (int i = 0; i < 5; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
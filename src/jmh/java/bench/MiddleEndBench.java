@@ -0,0 +1,135 @@
+package bench;
+
+import llvm2mlog.compiler.middleend.analyzer.CallGraphAnalyzer;
+import llvm2mlog.compiler.middleend.analyzer.LoopAnalyzer;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
+import llvm2mlog.compiler.middleend.optim.ADCE;
+import llvm2mlog.compiler.middleend.optim.CFGSimplifier;
+import llvm2mlog.compiler.middleend.optim.GVN;
+import llvm2mlog.compiler.middleend.optim.Glo2Loc;
+import llvm2mlog.compiler.middleend.optim.IVTrans;
+import llvm2mlog.compiler.middleend.optim.LICM;
+import llvm2mlog.compiler.middleend.optim.LocalMO;
+import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+import llvm2mlog.compiler.middleend.optim.SCCP;
+import llvm2mlog.compiler.middleend.optim.TRO;
+import llvm2mlog.compiler.middleend.optim.ssa.Mem2Reg;
+import llvm2mlog.compiler.middleend.optim.ssa.SSADestructor;
+import llvm2mlog.compiler.share.pass.IRFuncPass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The whole MiddleEndOptimizer, with and without keeping analyses between passes, and each of its passes once over every function.
+ * The barriers (CallGraphAnalyzer, Glo2Loc, Mem2Reg) are timed on the module with the ones before them run,
+ * the passes of the rounds on the module as the first round sees it.
+ * The module is built again before every invocation, gc.alloc.rate.norm counts that too:
+ * the allocation of a pass is its own minus the one of pass=none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MiddleEndBench {
+
+    private static final List<String> Barriers = List.of("CallGraphAnalyzer", "Glo2Loc", "Mem2Reg");
+
+    @Param({"none", "MiddleEndOptimizer", "MiddleEndOptimizer without cache", "CallGraphAnalyzer", "Glo2Loc", "Mem2Reg",
+            "CFGSimplifier", "GVN", "SCCP", "ADCE", "IVTrans", "LICM", "LocalMO",
+            "SSADestructor", "TRO", "LoopAnalyzer"})
+    public String pass;
+
+    @Param({"fib.ll", "ipac.ll",
+            "examples/diexpression.ll", "examples/global_align.ll", "examples/inst_binary.ll",
+            "examples/multiple_named_metadata_defs.ll", "examples/param_attrs.ll",
+            "synthetic:10", "synthetic:100"})
+    public String input;
+
+    private String source;
+    private IRModule module;
+
+    @Setup(Level.Trial)
+    public void read() {
+        source = Pipeline.source(input);
+    }
+
+    @Setup(Level.Invocation)
+    public void build() {
+        module = Pipeline.build(source).irModule;
+        if (pass.startsWith("MiddleEndOptimizer")) return;
+
+        // the barriers before this pass, all of them for a pass of the rounds
+        int before = Barriers.contains(pass) ? Barriers.indexOf(pass) : Barriers.size();
+        if (before > 0) new CallGraphAnalyzer().runOnModule(module);
+        if (before > 1) for (IRFunction function : module.functions) new Glo2Loc().runOnFunc(function);
+        if (before > 2) for (IRFunction function : module.functions) new Mem2Reg().runOnFunc(function);
+    }
+
+    @Benchmark
+    public IRModule run() {
+        switch (pass) {
+            case "none":
+                break;
+            case "MiddleEndOptimizer":
+                new MiddleEndOptimizer().runOnModule(module);
+                break;
+            case "MiddleEndOptimizer without cache":
+                var optimizer = new MiddleEndOptimizer();
+                optimizer.cacheAnalyses = false;
+                optimizer.runOnModule(module);
+                break;
+            case "CallGraphAnalyzer":
+                new CallGraphAnalyzer().runOnModule(module);
+                break;
+            default:
+                Supplier<IRFuncPass> newPass = funcPass(pass);
+                for (IRFunction function : module.functions) newPass.get().runOnFunc(function);
+        }
+        return module;
+    }
+
+    private static Supplier<IRFuncPass> funcPass(String name) {
+        switch (name) {
+            case "Glo2Loc":
+                return Glo2Loc::new;
+            case "Mem2Reg":
+                return Mem2Reg::new;
+            case "CFGSimplifier":
+                return CFGSimplifier::new;
+            case "GVN":
+                return GVN::new;
+            case "SCCP":
+                return SCCP::new;
+            case "ADCE":
+                return ADCE::new;
+            case "IVTrans":
+                return IVTrans::new;
+            case "LICM":
+                return LICM::new;
+            case "LocalMO":
+                return LocalMO::new;
+            case "SSADestructor":
+                return SSADestructor::new;
+            case "TRO":
+                return TRO::new;
+            case "LoopAnalyzer":
+                return LoopAnalyzer::new;
+            default:
+                throw new IllegalArgumentException("no pass " + name);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Inputs of the JMH benchmarks.
+ * An input is a path under src/test/resources, e.g. examples/main.ll, or synthetic:N for SyntheticIR.module(N).
+ * Most of examples/ stops at some stage of the compiler today, every benchmark lists only the inputs that
+ * get through the stages before the one it times, others can be given with -p input=...
+ */
+final class Pipeline {
+
+    static final String Resources = "src/test/resources/";
+    static final String Synthetic = "synthetic:";
+
+    private Pipeline() {
+    }
+
+    static String source(String input) {
+        if (input.startsWith(Synthetic)) return SyntheticIR.module(Integer.parseInt(input.substring(Synthetic.length())));
+        try {
+            return Files.readString(Paths.get(Resources + input));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static IRBuilder build(String source) {
+        IRBuilder irBuilder = new IRBuilder();
+        irBuilder.run(CharStreams.fromString(source));
+        return irBuilder;
+    }
+}
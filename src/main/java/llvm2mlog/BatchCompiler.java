@@ -0,0 +1,162 @@
+package llvm2mlog;
+
+import llvm2mlog.compiler.backend.regalloc.RegisterAllocator;
+import llvm2mlog.compiler.cache.DiskCache;
+import llvm2mlog.compiler.cache.FunctionCache;
+import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+import llvm2mlog.compiler.share.misc.ParallelFor;
+import llvm2mlog.debug.Statistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compile many files on a work-stealing pool, one session per file.
+ * Every input gets its own .mlog, a file failing to compile is recorded and the others go on.
+ */
+public class BatchCompiler {
+
+    public static final String SummaryFileName = "batch-summary.tsv";
+
+    public static class Result {
+        public final Path input;
+        public Path output;
+        public long millis;
+        // null: compiled
+        public Throwable error;
+
+        Result(Path input) {
+            this.input = input;
+        }
+    }
+
+    // null: compile files one by one
+    private final ForkJoinPool pool;
+    // null: no reuse across the files
+    private final FunctionCache functionCache;
+    // null: every file is compiled
+    private final DiskCache diskCache;
+    // set before compiling, see CompilationSession.reachableOnly
+    public boolean reachableOnly = false;
+    // see CompilationSession.fastRead
+    public boolean fastRead = false;
+    // see CompilationSession.lowMemory
+    public boolean lowMemory = false;
+    // see CompilationSession.maxRounds and roundMillis
+    public int maxRounds = MiddleEndOptimizer.DefaultMaxRounds;
+    public long roundMillis = 0;
+    // see CompilationSession.linearScanAbove
+    public int linearScanAbove = RegisterAllocator.DefaultLinearScanAbove;
+    // shared by the sessions of every file, set statistics.profile before compiling to time the passes
+    public final Statistics statistics = new Statistics();
+
+    public BatchCompiler(ForkJoinPool pool) {
+        this(pool, null, null);
+    }
+
+    public BatchCompiler(ForkJoinPool pool, FunctionCache functionCache, DiskCache diskCache) {
+        this.pool = pool;
+        this.functionCache = functionCache;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * a directory: every .ll under it
+     * a file: a manifest, one path per line relative to the manifest, # starts a comment
+     */
+    public static List<Path> inputs(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.walk(source)) {
+                return files.filter(file -> file.toString().endsWith(".ll") && Files.isRegularFile(file))
+                        .sorted().collect(Collectors.toList());
+            }
+        }
+        List<Path> inputs = new ArrayList<>();
+        Path base = source.toAbsolutePath().getParent();
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            inputs.add(base.resolve(line));
+        }
+        return inputs;
+    }
+
+    /**
+     * outputDir == null: write x.mlog next to x.ll
+     * otherwise keep the layout of the inputs relative to base under outputDir
+     * the results are in the order of inputs
+     */
+    public List<Result> compile(List<Path> inputs, Path base, Path outputDir) {
+        List<Result> results = new ArrayList<>();
+        for (Path input : inputs) {
+            Result result = new Result(input);
+            result.output = outputOf(input, base, outputDir);
+            results.add(result);
+        }
+        ParallelFor.forEach(pool, results, this::compile);
+        return results;
+    }
+
+    private static Path outputOf(Path input, Path base, Path outputDir) {
+        String name = input.getFileName().toString();
+        name = (name.endsWith(".ll") ? name.substring(0, name.length() - 3) : name) + ".mlog";
+        if (outputDir == null) return input.resolveSibling(name);
+
+        Path relative = base == null ? input.getFileName() : base.toAbsolutePath().relativize(input.toAbsolutePath());
+        if (relative.startsWith("..")) relative = input.getFileName();
+        return outputDir.resolve(relative).resolveSibling(name);
+    }
+
+    private void compile(Result result) {
+        long start = System.nanoTime();
+        try {
+            var mlog = new StringBuilder();
+            try (InputStream in = Files.newInputStream(result.input)) {
+                var session = new CompilationSession(null, functionCache, diskCache, statistics.of(result.input.toString()));
+                session.reachableOnly = reachableOnly;
+                session.fastRead = fastRead;
+                session.lowMemory = lowMemory;
+                session.maxRounds = maxRounds;
+                session.roundMillis = roundMillis;
+                session.linearScanAbove = linearScanAbove;
+                session.compile(in, mlog);
+            }
+            if (result.output.getParent() != null) Files.createDirectories(result.output.getParent());
+            Files.writeString(result.output, mlog, StandardCharsets.UTF_8);
+        } catch (Throwable e) {
+            // a deep or huge module only breaks itself, its stack and heap are freed here, the JVM is fine
+            if (e instanceof VirtualMachineError && !(e instanceof StackOverflowError) && !(e instanceof OutOfMemoryError))
+                throw (VirtualMachineError) e;
+            result.error = e;
+            // no stale output of an earlier run
+            try {
+                Files.deleteIfExists(result.output);
+            } catch (IOException ignored) {
+            }
+        }
+        result.millis = (System.nanoTime() - start) / 1000000;
+    }
+
+    public static long failures(List<Result> results) {
+        return results.stream().filter(result -> result.error != null).count();
+    }
+
+    // tab separated: input, status, millis, error
+    public static void writeSummary(List<Result> results, PrintStream ps) {
+        ps.println("input\tstatus\tmillis\terror");
+        for (Result result : results) {
+            ps.print(result.input + "\t" + (result.error == null ? "ok" : "failed") + "\t" + result.millis + "\t");
+            ps.println(result.error == null ? "" : result.error.toString().replace('\t', ' ').replace('\n', ' '));
+        }
+        ps.flush();
+    }
+}
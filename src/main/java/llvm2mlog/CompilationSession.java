@@ -0,0 +1,217 @@
+package llvm2mlog;
+
+import llvm2mlog.compiler.backend.optim.BackEndOptimizer;
+import llvm2mlog.compiler.backend.regalloc.RegisterAllocator;
+import llvm2mlog.compiler.backend.regalloc.StackAllocator;
+import llvm2mlog.compiler.backend.rvasm.AsmBuilder;
+import llvm2mlog.compiler.backend.rvasm.AsmPrinter;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
+import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
+import llvm2mlog.compiler.cache.DiskCache;
+import llvm2mlog.compiler.cache.FunctionCache;
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import llvm2mlog.compiler.middleend.llvmir.IRReader;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
+import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+import llvm2mlog.debug.Statistics;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * All the state of compiling modules: every pass is created per module and keeps its state in itself,
+ * so sessions on different threads never share anything mutable and need no lock.
+ * A session can compile modules one after another, its statistics are accumulated.
+ */
+public class CompilationSession {
+
+    // part of every cache key, change it with the passes so that no code of another pipeline is reused
+    public static final String PassConfig = "middle end: rounds to a fixed point; backend: graph coloring";
+
+    // null: compile functions one by one
+    public final ForkJoinPool pool;
+    // may be shared with other sessions, as one report of a batch
+    public final Statistics statistics;
+    // null: no reuse, may be shared with other sessions
+    public final FunctionCache functionCache;
+    // null: modules are always compiled, may be shared with other sessions and processes
+    public final DiskCache diskCache;
+    // leave out the functions main, the init function and globals cannot reach, set before compiling
+    public boolean reachableOnly = false;
+    // read modules with IRReader, the ANTLR tree only for what it does not read, set before compiling
+    public boolean fastRead = false;
+    // see IRBuilder.lowMemory, set before compiling
+    public boolean lowMemory = false;
+    // see MiddleEndOptimizer.maxRounds and roundMillis, set before compiling
+    public int maxRounds = MiddleEndOptimizer.DefaultMaxRounds;
+    public long roundMillis = 0;
+    // see RegisterAllocator.linearScanAbove, set before compiling
+    public int linearScanAbove = RegisterAllocator.DefaultLinearScanAbove;
+
+    public CompilationSession() {
+        this(null);
+    }
+
+    public CompilationSession(ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    public CompilationSession(ForkJoinPool pool, FunctionCache functionCache) {
+        this(pool, functionCache, null);
+    }
+
+    public CompilationSession(ForkJoinPool pool, FunctionCache functionCache, DiskCache diskCache) {
+        this(pool, functionCache, diskCache, new Statistics());
+    }
+
+    public CompilationSession(ForkJoinPool pool, FunctionCache functionCache, DiskCache diskCache, Statistics statistics) {
+        this.pool = pool;
+        this.statistics = statistics;
+        this.functionCache = functionCache;
+        this.diskCache = diskCache;
+    }
+
+    // everything changing the output besides the module
+    public String flags() {
+        return PassConfig + "; at most " + maxRounds + " rounds" + (roundMillis > 0 ? " or " + roundMillis + " ms" : "")
+                + "; linear scan above " + linearScanAbove + " instructions"
+                + (reachableOnly ? "; reachable functions only" : "");
+    }
+
+    // output: a PrintStream, a Writer or a StringBuilder, the printer writes to it in large chunks
+    public void compile(InputStream code, Appendable output) throws IOException {
+        if (diskCache == null) {
+            compile(CharStreams.fromStream(code), output);
+            return;
+        }
+
+        byte[] module = code.readAllBytes();
+        String key = DiskCache.key(module, flags());
+        String cached = null;
+        try {
+            cached = diskCache.get(key);
+        } catch (IOException | UncheckedIOException e) {
+            // an entry that cannot be read is compiled again
+            statistics.plus("disk cache read error");
+        }
+        if (cached != null) {
+            statistics.plus("disk cache hit");
+            output.append(cached);
+            return;
+        }
+        var mlog = new StringBuilder();
+        compile(CharStreams.fromStream(new ByteArrayInputStream(module)), mlog);
+        String text = mlog.toString();
+        try {
+            diskCache.put(key, text);
+        } catch (IOException | UncheckedIOException e) {
+            // the cache is only a shortcut, the compile succeeded
+            statistics.plus("disk cache write error");
+        }
+        output.append(text);
+    }
+
+    private void compile(CharStream source, Appendable output) {
+        if (compile(source, output, functionCache != null)) return;
+
+        // reused code was printed with colors this module does not give, compile every function
+        source.seek(0);
+        compile(source, output, false);
+    }
+
+    // false: nothing printed, some reused code does not fit
+    private boolean compile(CharStream source, Appendable output, boolean reuse) {
+        IRBuilder[] built = new IRBuilder[1];
+        stage("IRBuilder", () -> built[0] = build(source));
+        IRBuilder irBuilder = built[0];
+        IRModule module = irBuilder.irModule;
+        statistics.plus("function skipped", irBuilder.skippedFunctions.size());
+        statistics.plus("parse fallback", irBuilder.parseFallbacks);
+
+        Map<IRFunction, String> keys = functionCache == null ? Map.of() : FunctionCache.keys(module, irBuilder, flags());
+        Map<IRFunction, FunctionCache.Entry> hits = new LinkedHashMap<>();
+        if (reuse) keys.forEach((function, key) -> {
+            FunctionCache.Entry entry = functionCache.get(key);
+            if (entry != null) hits.put(function, entry);
+        });
+
+        var optimizer = new MiddleEndOptimizer(pool, hits.keySet(), statistics);
+        optimizer.maxRounds = maxRounds;
+        optimizer.roundMillis = roundMillis;
+        stage("MiddleEndOptimizer", () -> optimizer.runOnModule(module));
+
+        Map<IRFunction, AsmFunction.Reused> reused = new HashMap<>();
+        hits.forEach((function, entry) -> reused.put(function, entry.reused()));
+        AsmBuilder builder = new AsmBuilder(pool, reused);
+        stage("AsmBuilder", () -> builder.runOnModule(module));
+
+        // Graph Coloring, linear scan for huge functions
+        var allocator = new RegisterAllocator(pool, statistics);
+        allocator.linearScanAbove = linearScanAbove;
+        stage("RegisterAllocator", () -> allocator.runOnModule(builder.module));
+
+        for (FunctionCache.Entry entry : hits.values())
+            if (!FunctionCache.stillPrintable(entry, builder.module.globalVarSeg)) return false;
+        Map<IRFunction, Set<GlobalReg>> globalRegs = new HashMap<>();
+        if (functionCache != null) for (IRFunction function : module.functions)
+            if (!hits.containsKey(function))
+                globalRegs.put(function, FunctionCache.globalRegsIn((AsmFunction) function.asmOperand));
+
+        // Stack Allocate. Eliminate RawStackOffset
+        stage("StackAllocator", () -> new StackAllocator(pool).runOnModule(builder.module));
+
+        // Optimize Assembly. Don't comment it directly because there are some necessary passes.
+        stage("BackEndOptimizer", () -> new BackEndOptimizer().runOnModule(builder.module));
+
+        if (functionCache != null) {
+            globalRegs.forEach((function, regs) ->
+                    functionCache.put(keys.get(function), FunctionCache.entryOf((AsmFunction) function.asmOperand, regs)));
+            functionCache.count(hits.size(), module.functions.size() - hits.size());
+            statistics.plus("function reused", hits.size());
+            statistics.plus("function compiled", module.functions.size() - hits.size());
+        }
+
+        stage("AsmPrinter", () -> new AsmPrinter(output).runOnModule(builder.module));
+        return true;
+    }
+
+    // a whole stage, recorded for the module
+    private void stage(String pass, Runnable run) {
+        statistics.measure(pass, Statistics.Module, run);
+    }
+
+    private IRBuilder build(CharStream source) {
+        if (fastRead) {
+            IRBuilder irBuilder = newBuilder();
+            try {
+                new IRReader(irBuilder, source.getText(Interval.of(0, source.size() - 1))).read();
+                return irBuilder;
+            } catch (IRReader.Unsupported e) {
+                // the reader leaves a half built module, start over from the tree
+                statistics.plus("fast read fallback");
+            }
+        }
+        IRBuilder irBuilder = newBuilder();
+        irBuilder.run(source);
+        return irBuilder;
+    }
+
+    private IRBuilder newBuilder() {
+        IRBuilder irBuilder = new IRBuilder(pool);
+        irBuilder.keepCanonicalText = functionCache != null;
+        irBuilder.reachableOnly = reachableOnly;
+        irBuilder.lowMemory = lowMemory;
+        return irBuilder;
+    }
+}
@@ -13,72 +13,125 @@ import java.util.*;
  * <p>
  * data flow equation:
  * liveIn[n] = use[n] \cup (out[n] - def[n])
- * liveOut[n] = \cap_{s \in suc[n]} in[s]
+ * liveOut[n] = \cup_{s \in suc[n]} in[s]
+ * <p>
+ * The sets are bitsets of the RegisterNumbering of the function.
+ * Blocks are visited in postorder of the CFG, successors first, and a block is visited again only when
+ * the liveIn of a successor grew. Every block starts in the worklist, so blocks that never reach the exit
+ * block, as an endless loop, get their liveness too.
  *
  * @reference: Tiger Book
  */
 
 public class LivenessAnalyzer implements AsmFuncPass {
 
-    private final Queue<AsmBlock> workQueue = new LinkedList<>();
-    private final HashSet<AsmBlock> finishSet = new HashSet<>();
-    private final Map<AsmBlock, HashSet<Register>> blockUsesMap = new HashMap<>(),
-            blockDefsMap = new HashMap<>();
+    private RegisterNumbering numbering;
+
+    // the analyzer numbers the registers itself
+    public LivenessAnalyzer() {
+    }
+
+    public LivenessAnalyzer(RegisterNumbering numbering) {
+        this.numbering = numbering;
+    }
+
+    public RegisterNumbering numbering() {
+        return numbering;
+    }
 
     @Override
     public void runOnFunc(AsmFunction function) {
-        init(function);
-        function.blocks.forEach(this::collectUsesAndDefs);
-
-        // Log.report(function.identifier);
-        // Log.report(function.exitBlock);
+        if (numbering == null) numbering = new RegisterNumbering(function);
+
+        List<AsmBlock> order = postorder(function);
+        Map<AsmBlock, Integer> position = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) position.put(order.get(i), i);
+
+        BitSet[] uses = new BitSet[order.size()], defs = new BitSet[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            uses[i] = new BitSet();
+            defs[i] = new BitSet();
+            collectUsesAndDefs(order.get(i), uses[i], defs[i]);
+            order.get(i).liveIn = new BitSet();
+            order.get(i).liveOut = new BitSet();
+        }
 
-        workQueue.offer(function.exitBlock);
-        while (!workQueue.isEmpty()) livenessAnalyze(workQueue.poll());
+        BitSet worklist = new BitSet(order.size());
+        worklist.set(0, order.size());
+        BitSet newLiveIn = new BitSet();
+        for (int i = worklist.nextSetBit(0); i >= 0; i = worklist.nextSetBit(0)) {
+            worklist.clear(i);
+            AsmBlock block = order.get(i);
+
+            // out = suc in
+            for (AsmBlock suc : block.nexts) block.liveOut.or(suc.liveIn);
+
+            // in = use & (out - def)
+            newLiveIn.clear();
+            newLiveIn.or(block.liveOut);
+            newLiveIn.andNot(defs[i]);
+            newLiveIn.or(uses[i]);
+
+            // only the predecessors see a new liveIn
+            if (!newLiveIn.equals(block.liveIn)) {
+                block.liveIn.or(newLiveIn);
+                for (AsmBlock prev : block.prevs) {
+                    Integer at = position.get(prev);
+                    if (at != null) worklist.set(at);
+                }
+            }
+        }
     }
 
-    private void init(AsmFunction function) {
+    /**
+     * after spill code is written: the spilled registers are gone, the temporaries holding them
+     * live inside single blocks, so only the spilled registers leave the sets and nothing is solved again
+     */
+    public void removeRegisters(AsmFunction function, BitSet regs) {
         for (AsmBlock block : function.blocks) {
-            block.liveIn.clear();
-            block.liveOut.clear();
+            block.liveIn.andNot(regs);
+            block.liveOut.andNot(regs);
         }
     }
 
     // first collect all uses and defs in a block
-    private void collectUsesAndDefs(AsmBlock block) {
-        HashSet<Register> blockUses = new HashSet<>(), blockDefs = new HashSet<>();
+    private void collectUsesAndDefs(AsmBlock block, BitSet blockUses, BitSet blockDefs) {
         for (AsmBaseInst inst : block.instructions) {
-            inst.uses().forEach(use -> {
-                if (!blockDefs.contains(use)) blockUses.add(use);
-            });
-            blockDefs.addAll(inst.defs());
+            for (Register use : inst.uses()) {
+                int number = numbering.number(use);
+                if (!blockDefs.get(number)) blockUses.set(number);
+            }
+            for (Register def : inst.defs()) blockDefs.set(numbering.number(def));
         }
-        blockUsesMap.put(block, blockUses);
-        blockDefsMap.put(block, blockDefs);
     }
 
-    private void livenessAnalyze(AsmBlock block) {
-
-        if (finishSet.contains(block)) return;
-        finishSet.add(block);
-
-        // out = suc in
-        HashSet<Register> newLiveOut = new HashSet<>();
-        block.nexts.forEach(suc -> newLiveOut.addAll(suc.liveIn));
-
-        // in = use & (out - def)
-        HashSet<Register> newLiveIn = new HashSet<>(newLiveOut);
-        newLiveIn.removeAll(blockDefsMap.get(block));
-        newLiveIn.addAll(blockUsesMap.get(block));
-
-        // fixed point
-        if (!newLiveIn.equals(block.liveIn) || !newLiveOut.equals(block.liveOut)) {
-            block.liveIn.addAll(newLiveIn);
-            block.liveOut.addAll(newLiveOut);
-            block.prevs.forEach(finishSet::remove);
+    // postorder from the entry block, then the blocks it cannot reach in the order of the function
+    private static List<AsmBlock> postorder(AsmFunction function) {
+        List<AsmBlock> order = new ArrayList<>(function.blocks.size());
+        Set<AsmBlock> visited = new HashSet<>();
+        Deque<AsmBlock> stack = new ArrayDeque<>();
+        Deque<Integer> nextSuc = new ArrayDeque<>();
+        if (function.entryBlock != null) {
+            visited.add(function.entryBlock);
+            stack.push(function.entryBlock);
+            nextSuc.push(0);
         }
-
-        // BFS
-        workQueue.addAll(block.prevs);
+        while (!stack.isEmpty()) {
+            AsmBlock block = stack.peek();
+            int i = nextSuc.pop();
+            if (i < block.nexts.size()) {
+                nextSuc.push(i + 1);
+                AsmBlock suc = block.nexts.get(i);
+                if (visited.add(suc)) {
+                    stack.push(suc);
+                    nextSuc.push(0);
+                }
+            } else {
+                stack.pop();
+                order.add(block);
+            }
+        }
+        for (AsmBlock block : function.blocks) if (visited.add(block)) order.add(block);
+        return order;
     }
 }
@@ -0,0 +1,76 @@
+package llvm2mlog.compiler.backend.analyzer;
+
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
+import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.Register;
+import llvm2mlog.compiler.backend.rvasm.operand.VirtualReg;
+import llvm2mlog.compiler.share.error.codegen.InternalError;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dense numbers of the registers of one function, the bits of liveness and the nodes of the interference graph:
+ * physical registers by PhysicalReg.index, then the global registers the function uses, then virtual registers
+ * by their number in the function.
+ * <p>
+ * Virtual registers created after, as the temporaries of spill code, get the numbers after the ones the function had.
+ * A global register must be in the function when it is numbered.
+ */
+public class RegisterNumbering {
+
+    public static final int Physical = PhysicalReg.phyRegs.size();
+
+    private final AsmFunction function;
+    private final Map<Register, Integer> globals = new HashMap<>();
+    private final int virtualBase;
+    private Register[] regs;
+
+    public RegisterNumbering(AsmFunction function) {
+        this.function = function;
+        // in the order of the global segment, not of the hash sets of the instructions
+        TreeMap<Integer, Register> used = new TreeMap<>();
+        for (AsmBlock block : function.blocks)
+            for (AsmBaseInst inst : block.instructions) {
+                for (Register reg : inst.uses()) if (reg instanceof GlobalReg) used.put(((GlobalReg) reg).num, reg);
+                for (Register reg : inst.defs()) if (reg instanceof GlobalReg) used.put(((GlobalReg) reg).num, reg);
+            }
+        used.values().forEach(reg -> globals.put(reg, Physical + globals.size()));
+        virtualBase = Physical + globals.size();
+        regs = new Register[size()];
+        PhysicalReg.phyRegs.values().forEach(reg -> regs[reg.index] = reg);
+        globals.forEach((reg, number) -> regs[number] = reg);
+    }
+
+    // numbers in [0, size) are taken, some by registers no longer in the function
+    public int size() {
+        return virtualBase + function.virtualRegNum;
+    }
+
+    public int number(Register reg) {
+        if (reg instanceof PhysicalReg) return ((PhysicalReg) reg).index;
+        if (reg instanceof GlobalReg) {
+            Integer number = globals.get(reg);
+            if (number == null) throw new InternalError("global register " + reg.identifier + " numbered after the function");
+            return number;
+        }
+        int number = virtualBase + ((VirtualReg) reg).num;
+        if (number >= regs.length) regs = Arrays.copyOf(regs, Math.max(number + 1, size()));
+        regs[number] = reg;
+        return number;
+    }
+
+    // null: a virtual register never numbered
+    public Register register(int number) {
+        return number < regs.length ? regs[number] : null;
+    }
+
+    public boolean physical(int number) {
+        return number < Physical;
+    }
+}
@@ -8,6 +8,7 @@ public class BackEndOptimizer implements AsmModulePass {
     @Override
     public void runOnModule(AsmModule module) {
         for (AsmFunction function : module.functions) {
+            if (function.reused != null) continue;
             //new TCO().runOnFunc(function); todo not mature
 
             new CoalesceMoves().runOnFunc(function);
@@ -61,15 +61,7 @@ public class LoadStorePeephole implements AsmFuncPass {
                 }
             }
             toRemove.forEach(inst -> block.instructions.remove(inst));
-            var it = block.instructions.listIterator();
-
-            while (it.hasNext()) {
-                var inst = it.next();
-                if (toReplace.containsKey(inst)) {
-                    var replace = toReplace.get(inst);
-                    it.set(replace);
-                }
-            }
+            toReplace.forEach((inst, replace) -> block.instructions.replace(inst, replace));
         }
     }
 }
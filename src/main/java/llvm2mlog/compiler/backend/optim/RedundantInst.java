@@ -16,16 +16,12 @@ public class RedundantInst implements AsmFuncPass {
 
     private void foldMoves(AsmFunction function) {
         for (AsmBlock block : function.blocks) {
-            HashSet<AsmBaseInst> toRemoveSet = new HashSet<>();
-
-            for (int i = 0; i < block.instructions.size() - 1; i++)
+            for (var it = block.instructions.iterator(); it.hasNext(); ) {
+                AsmBaseInst inst = it.next(), next = inst.next();
                 // move twice
-                if (block.instructions.get(i) instanceof AsmMoveInst && block.instructions.get(i + 1) instanceof AsmMoveInst &&
-                        block.instructions.get(i).rd.color == block.instructions.get(i + 1).rd.color) {
-                    toRemoveSet.add(block.instructions.get(i));
-                }
-
-            block.instructions.removeAll(toRemoveSet);
+                if (inst instanceof AsmMoveInst && next instanceof AsmMoveInst && inst.rd.color == next.rd.color)
+                    it.remove();
+            }
         }
     }
 
@@ -35,17 +31,13 @@ public class RedundantInst implements AsmFuncPass {
 
     private void foldAddi(AsmFunction function) {
         for (AsmBlock block : function.blocks) {
-            HashSet<AsmBaseInst> toRemoveSet = new HashSet<>();
-
-            for (int i = 0; i < block.instructions.size() - 1; i++)
-                if (isValidAddi(block.instructions.get(i)) &&
-                        isValidAddi(block.instructions.get(i + 1)) &&
-                        block.instructions.get(i).rd.color == block.instructions.get(i + 1).rd.color) {
-                    toRemoveSet.add(block.instructions.get(i));
-                    block.instructions.get(i + 1).imm = new Immediate(block.instructions.get(i).imm.value + block.instructions.get(i + 1).imm.value);
+            for (var it = block.instructions.iterator(); it.hasNext(); ) {
+                AsmBaseInst inst = it.next(), next = inst.next();
+                if (next != null && isValidAddi(inst) && isValidAddi(next) && inst.rd.color == next.rd.color) {
+                    next.imm = new Immediate(inst.imm.value + next.imm.value);
+                    it.remove();
                 }
-
-            block.instructions.removeAll(toRemoveSet);
+            }
         }
     }
 
@@ -71,7 +63,7 @@ public class RedundantInst implements AsmFuncPass {
                     defButNotUsed.clear();
             }
 
-            block.instructions.removeAll(toRemoveSet);
+            toRemoveSet.forEach(block.instructions::remove);
         }
     }
 
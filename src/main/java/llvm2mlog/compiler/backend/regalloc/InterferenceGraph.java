@@ -1,79 +1,149 @@
 package llvm2mlog.compiler.backend.regalloc;
 
-import llvm2mlog.compiler.backend.rvasm.inst.AsmMoveInst;
+import llvm2mlog.compiler.backend.analyzer.RegisterNumbering;
+import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
 import llvm2mlog.compiler.backend.rvasm.operand.Register;
 
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 /* Register Interference Graph */
 
+/**
+ * Nodes are the registers of one function by their RegisterNumbering, physical registers are the precolored nodes.
+ * <p>
+ * Interference is a triangular bit matrix, adjacency and moves are int arrays growing as needed.
+ * Physical and global registers are shared by functions, so the info of a node is kept here instead of in the register.
+ */
 public class InterferenceGraph {
 
     public static int INF = 1145141919;
-    public Set<Edge> adjSet = new LinkedHashSet<>();
-
-    public void addEdge(Edge edge) {
-        if (!adjSet.contains(edge) && !edge.isLoop()) {
-            adjSet.add(edge);
-            adjSet.add(edge.convert());
-            if (!edge.u.node.precolored) {
-                edge.u.node.adjList.add(edge.v);
-                edge.u.node.degree++;
-            }
-            if (!edge.v.node.precolored) {
-                edge.v.node.adjList.add(edge.u);
-                edge.v.node.degree++;
-            }
+
+    private RegisterNumbering numbering;
+    // nodes in [0, size)
+    public int size;
+    public int[] degree = new int[0];
+    public double[] priority = new double[0];
+    // assigned in RegisterAllocator
+    public PhysicalReg[] color = new PhysicalReg[0];
+    // neighbours in the order the edges were added, precolored nodes keep none
+    public int[][] adjList = new int[0][];
+    public int[] adjCount = new int[0];
+    // the moves a node takes part in, numbered by RegisterAllocator, no duplicates
+    public int[][] moveList = new int[0][];
+    public int[] moveCount = new int[0];
+
+    private long[] matrix = new long[0];
+    // the moves of u while merging the ones of v
+    private int[] moveMark = new int[0];
+    private int markStamp = 0;
+
+    // the registers of a function, no nodes until clear
+    public void init(RegisterNumbering numbering) {
+        this.numbering = numbering;
+        size = 0;
+    }
+
+    // an empty graph of every register numbered so far, the nodes already in keep their priority
+    public void clear() {
+        int kept = size;
+        resize(numbering.size());
+        for (int node = 0; node < kept; node++) {
+            degree[node] = 0;
+            color[node] = null;
+            adjCount[node] = 0;
+            moveCount[node] = 0;
         }
+        for (int node = 0; node < RegisterNumbering.Physical; node++) degree[node] = INF;
+
+        long bits = (long) size * (size - 1) / 2;
+        int words = (int) ((bits + 63) >>> 6);
+        if (matrix.length < words) matrix = new long[words];
+        else Arrays.fill(matrix, 0, words, 0);
     }
 
-    public void init() {
-        adjSet.clear();
+    public int node(Register reg) {
+        return numbering.number(reg);
     }
 
-    public static class Edge {
-        public Register u, v;
+    public Register register(int node) {
+        return numbering.register(node);
+    }
 
-        public Edge(Register u, Register v) {
-            this.u = u;
-            this.v = v;
-        }
+    public boolean precolored(int node) {
+        return numbering.physical(node);
+    }
 
-        public boolean isLoop() {
-            return this.u == this.v;
-        }
+    private static long bit(int u, int v) {
+        if (u < v) return (long) v * (v - 1) / 2 + u;
+        return (long) u * (u - 1) / 2 + v;
+    }
 
-        public Edge convert() {
-            return new Edge(v, u);
-        }
+    public boolean adjacent(int u, int v) {
+        if (u == v) return false;
+        long bit = bit(u, v);
+        return (matrix[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
 
-        @Override
-        public int hashCode() {
-            return u.hashCode() ^ v.hashCode();
+    // false: the edge was there
+    public boolean addEdge(int u, int v) {
+        if (u == v || adjacent(u, v)) return false;
+        long bit = bit(u, v);
+        matrix[(int) (bit >>> 6)] |= 1L << bit;
+        if (!precolored(u)) {
+            adjList[u] = append(adjList[u], adjCount[u]++, v);
+            degree[u]++;
+        }
+        if (!precolored(v)) {
+            adjList[v] = append(adjList[v], adjCount[v]++, u);
+            degree[v]++;
         }
+        return true;
+    }
+
+    // at most once a move for a node, the caller knows it is new
+    public void addMove(int node, int move) {
+        moveList[node] = append(moveList[node], moveCount[node]++, move);
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            return o instanceof Edge && (((Edge) o).u == u && ((Edge) o).v == v);
+    // moveList[u] |= moveList[v], keeping the order of u then the new ones of v
+    public void mergeMoves(int u, int v, int moves) {
+        if (moveMark.length < moves) moveMark = new int[moves];
+        if (++markStamp == 0) {
+            Arrays.fill(moveMark, 0);
+            markStamp = 1;
+        }
+        for (int i = 0; i < moveCount[u]; i++) moveMark[moveList[u][i]] = markStamp;
+        for (int i = 0; i < moveCount[v]; i++) {
+            int move = moveList[v][i];
+            if (moveMark[move] != markStamp) addMove(u, move);
         }
     }
 
-    public static class Node {
-        public HashSet<Register> adjList = new LinkedHashSet<>();
-        public boolean precolored;
-        public int degree;
-        public double priority;
-        public Set<AsmMoveInst> moveList = new LinkedHashSet<>();
-
-        public void init(boolean isPrecolored) {
-            this.adjList.clear();
-            this.moveList.clear();
-            this.priority = 0;
-            if (isPrecolored) this.degree = INF;
-            else this.degree = 0;
-            this.precolored = isPrecolored;
+    private void resize(int newSize) {
+        if (degree.length < newSize) {
+            int capacity = Math.max(newSize, degree.length + (degree.length >> 1));
+            degree = Arrays.copyOf(degree, capacity);
+            priority = Arrays.copyOf(priority, capacity);
+            color = Arrays.copyOf(color, capacity);
+            adjList = Arrays.copyOf(adjList, capacity);
+            adjCount = Arrays.copyOf(adjCount, capacity);
+            moveList = Arrays.copyOf(moveList, capacity);
+            moveCount = Arrays.copyOf(moveCount, capacity);
+        }
+        for (int node = size; node < newSize; node++) {
+            degree[node] = 0;
+            priority[node] = 0;
+            color[node] = null;
+            adjCount[node] = 0;
+            moveCount[node] = 0;
         }
+        size = newSize;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (array == null) array = new int[4];
+        else if (index == array.length) array = Arrays.copyOf(array, index * 2);
+        array[index] = value;
+        return array;
     }
 }
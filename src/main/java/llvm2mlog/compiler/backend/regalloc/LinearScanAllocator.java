@@ -0,0 +1,268 @@
+package llvm2mlog.compiler.backend.regalloc;
+
+import llvm2mlog.compiler.backend.analyzer.LivenessAnalyzer;
+import llvm2mlog.compiler.backend.analyzer.RegisterNumbering;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmModule;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
+import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.Register;
+import llvm2mlog.compiler.share.pass.AsmFuncPass;
+import llvm2mlog.compiler.share.pass.AsmModulePass;
+import llvm2mlog.debug.Log;
+import llvm2mlog.debug.Statistics;
+
+import java.util.*;
+
+/**
+ * Register Allocator using Linear Scan on live intervals
+ * <p>
+ * Instructions are numbered in the order of the blocks of the function, instruction i uses at 2i and defines at 2i+1.
+ * The interval of a register is the hull of its uses, defs, and the blocks it is live in or out of,
+ * so it may be longer than the liveness, never shorter.
+ * Physical registers keep the positions they are live at, a register only gets a color free all over its interval.
+ * <p>
+ * When no color is free, the interval with the least uses per position among the current one and the active ones
+ * that could give their color is spilled, uses weighted by 10^loopDepth as in RegisterAllocator.
+ * Spill code is written as in RegisterAllocator, and the intervals are scanned again until nothing spills.
+ * <p>
+ * Linear in the instructions a round, for huge functions where graph coloring gets slow, with more spills.
+ *
+ * @reference: Poletto and Sarkar, Linear Scan Register Allocation
+ * @requirement: LivenessAnalyzer on Asm
+ */
+
+public class LinearScanAllocator implements AsmModulePass, AsmFuncPass {
+
+    private static final int K = RegisterAllocator.K;
+
+    private final Statistics statistics;
+
+    private AsmFunction curFunc;
+    private RegisterNumbering numbering;
+    // node -> [start, end] of the interval, start -1: not in the function
+    private int[] start = new int[0], end = new int[0];
+    private double[] priority = new double[0];
+    // node -> index in PhysicalReg.assignable, -1: no color, spilled or not scanned
+    private int[] color = new int[0];
+    // assignable index -> positions the physical register is live or defined at
+    private final BitSet[] busy = new BitSet[K];
+
+    public LinearScanAllocator() {
+        this(new Statistics());
+    }
+
+    public LinearScanAllocator(Statistics statistics) {
+        this.statistics = statistics;
+        for (int i = 0; i < K; i++) busy[i] = new BitSet();
+    }
+
+    @Override
+    public void runOnModule(AsmModule module) {
+        for (AsmFunction function : module.functions) {
+            if (function.reused != null) continue;
+            statistics.measure("LinearScanAllocator", "@" + function.identifier, () -> allocate(function));
+        }
+        module.functions.forEach(RegisterAllocator::writeSharedColors);
+    }
+
+    @Override
+    public void runOnFunc(AsmFunction function) {
+        allocate(function);
+        RegisterAllocator.writeSharedColors(function);
+    }
+
+    void allocate(AsmFunction function) {
+        Log.info("linear scan func: ", function);
+
+        curFunc = function;
+        curFunc.sharedColors.clear();
+        var spills = new SpillRewriter(function);
+        int rounds = 0, spilled = 0;
+        // as in RegisterAllocator, the liveness of the registers not spilled survives the rewrite
+        var liveness = new LivenessAnalyzer();
+        liveness.runOnFunc(function);
+        numbering = liveness.numbering();
+
+        while (true) {
+            rounds++;
+            buildIntervals();
+            List<Register> spilledRegs = new ArrayList<>();
+            BitSet spilledNodes = new BitSet();
+            scan(spills.introducedTemp, spilledNodes);
+
+            if (spilledNodes.isEmpty()) {
+                for (int node = RegisterNumbering.Physical; node < numbering.size(); node++) {
+                    if (color[node] < 0) continue;
+                    Register reg = numbering.register(node);
+                    PhysicalReg phy = PhysicalReg.assignable.get(color[node]);
+                    if (reg instanceof GlobalReg) curFunc.sharedColors.put(reg, phy);
+                    else reg.color = phy;
+                }
+
+                String name = "@" + function.identifier;
+                statistics.count("LinearScanAllocator", name, "round", rounds);
+                statistics.count("LinearScanAllocator", name, "spilled", spilled);
+                return;
+            }
+
+            spilled += spilledNodes.cardinality();
+            for (int node = spilledNodes.nextSetBit(0); node >= 0; node = spilledNodes.nextSetBit(node + 1))
+                spilledRegs.add(numbering.register(node));
+            spills.rewrite(spilledRegs);
+            liveness.removeRegisters(curFunc, spilledNodes);
+        }
+    }
+
+    // the intervals, priorities and busy positions of physical registers in the current code
+    private void buildIntervals() {
+        int size = numbering.size();
+        if (start.length < size) {
+            start = new int[size];
+            end = new int[size];
+            priority = new double[size];
+            color = new int[size];
+        }
+        Arrays.fill(start, 0, size, -1);
+        Arrays.fill(priority, 0, size, 0);
+        Arrays.fill(color, 0, size, -1);
+        for (BitSet positions : busy) positions.clear();
+
+        int index = 0;
+        for (AsmBlock block : curFunc.blocks) {
+            if (block.instructions.isEmpty()) continue;
+            int first = index, last = index + block.instructions.size() - 1;
+            double weight = Math.pow(10, block.loopDepth);
+
+            for (int node = block.liveIn.nextSetBit(0); node >= 0; node = block.liveIn.nextSetBit(node + 1))
+                touch(node, 2 * first);
+            for (AsmBaseInst inst : block.instructions) {
+                for (Register use : inst.uses()) {
+                    int node = numbering.number(use);
+                    touch(node, 2 * index);
+                    priority[node] += weight;
+                }
+                for (Register def : inst.defs()) {
+                    int node = numbering.number(def);
+                    touch(node, 2 * index + 1);
+                    priority[node] += weight;
+                }
+                index++;
+            }
+            for (int node = block.liveOut.nextSetBit(0); node >= 0; node = block.liveOut.nextSetBit(node + 1))
+                touch(node, 2 * last + 1);
+
+            markPhysical(block, last);
+        }
+    }
+
+    private void touch(int node, int position) {
+        if (numbering.physical(node)) return;
+        if (start[node] < 0) {
+            start[node] = end[node] = position;
+        } else {
+            start[node] = Math.min(start[node], position);
+            end[node] = Math.max(end[node], position);
+        }
+    }
+
+    /**
+     * the positions assignable physical registers are live at, walking the block backward as RegisterAllocator.build:
+     * live after or defined by instruction i: 2i+1, live before it: 2i
+     */
+    private void markPhysical(AsmBlock block, int last) {
+        BitSet after = new BitSet(K);
+        for (int node = block.liveOut.nextSetBit(0); node >= 0 && node < RegisterNumbering.Physical; node = block.liveOut.nextSetBit(node + 1)) {
+            int c = RegisterAllocator.AssignableIndex[node];
+            if (c >= 0) after.set(c);
+        }
+
+        int index = last;
+        for (Iterator<AsmBaseInst> it = block.instructions.descendingIterator(); it.hasNext(); index--) {
+            AsmBaseInst inst = it.next();
+            for (Register def : inst.defs()) {
+                int c = physicalColor(def);
+                if (c >= 0) after.set(c);
+            }
+            for (int c = after.nextSetBit(0); c >= 0; c = after.nextSetBit(c + 1)) busy[c].set(2 * index + 1);
+            for (Register def : inst.defs()) {
+                int c = physicalColor(def);
+                if (c >= 0) after.clear(c);
+            }
+            for (Register use : inst.uses()) {
+                int c = physicalColor(use);
+                if (c >= 0) after.set(c);
+            }
+            for (int c = after.nextSetBit(0); c >= 0; c = after.nextSetBit(c + 1)) busy[c].set(2 * index);
+        }
+    }
+
+    private static int physicalColor(Register reg) {
+        return reg instanceof PhysicalReg ? RegisterAllocator.AssignableIndex[((PhysicalReg) reg).index] : -1;
+    }
+
+    private boolean busyOver(int c, int from, int to) {
+        int position = busy[c].nextSetBit(from);
+        return position >= 0 && position <= to;
+    }
+
+    // the interval with lower cost is spilled first, temporaries only when nothing else is left
+    private double cost(int node, Set<Register> introducedTemp) {
+        if (introducedTemp.contains(numbering.register(node))) return Double.POSITIVE_INFINITY;
+        return priority[node] / (end[node] - start[node] + 1);
+    }
+
+    private void scan(Set<Register> introducedTemp, BitSet spilledNodes) {
+        int size = numbering.size();
+        List<Integer> intervals = new ArrayList<>();
+        for (int node = RegisterNumbering.Physical; node < size; node++) if (start[node] >= 0) intervals.add(node);
+        intervals.sort(Comparator.<Integer>comparingInt(node -> start[node]).thenComparingInt(node -> node));
+
+        // at most K, one a color
+        List<Integer> active = new ArrayList<>(K);
+        boolean[] used = new boolean[K];
+        for (int node : intervals) {
+            int from = start[node], to = end[node];
+
+            // expire
+            for (Iterator<Integer> it = active.iterator(); it.hasNext(); ) {
+                int other = it.next();
+                if (end[other] < from) {
+                    used[color[other]] = false;
+                    it.remove();
+                }
+            }
+
+            int c = 0;
+            while (c < K && (used[c] || busyOver(c, from, to))) c++;
+            if (c < K) {
+                color[node] = c;
+                used[c] = true;
+                active.add(node);
+                continue;
+            }
+
+            int victim = node;
+            double minCost = cost(node, introducedTemp);
+            for (int other : active) {
+                if (busyOver(color[other], from, to)) continue;
+                double cost = cost(other, introducedTemp);
+                if (cost < minCost) {
+                    victim = other;
+                    minCost = cost;
+                }
+            }
+
+            statistics.plus("spill");
+            spilledNodes.set(victim);
+            if (victim != node) {
+                color[node] = color[victim];
+                color[victim] = -1;
+                active.remove((Integer) victim);
+                active.add(node);
+            }
+        }
+    }
+}
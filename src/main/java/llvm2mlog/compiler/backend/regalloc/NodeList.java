@@ -0,0 +1,75 @@
+package llvm2mlog.compiler.backend.regalloc;
+
+import java.util.Arrays;
+
+/**
+ * An insertion ordered set of numbers below a capacity, linked through two arrays:
+ * the worklists of nodes and moves in RegisterAllocator.
+ * <p>
+ * Add, remove, contains and first are O(1) and allocate nothing, the order is the one of a LinkedHashSet:
+ * adding a number already in keeps its place.
+ */
+public class NodeList {
+
+    public static final int End = -1;
+    // not in the list
+    private static final int Out = -2;
+
+    private int[] prev = new int[0], next = new int[0];
+    private int head = End, tail = End, size = 0;
+
+    // empty, numbers in [0, capacity) can be added
+    public void reset(int capacity) {
+        if (prev.length < capacity) {
+            prev = new int[capacity];
+            next = new int[capacity];
+        }
+        Arrays.fill(next, 0, capacity, Out);
+        head = tail = End;
+        size = 0;
+    }
+
+    public boolean contains(int i) {
+        return next[i] != Out;
+    }
+
+    public boolean add(int i) {
+        if (contains(i)) return false;
+        prev[i] = tail;
+        next[i] = End;
+        if (tail == End) head = i;
+        else next[tail] = i;
+        tail = i;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int i) {
+        if (!contains(i)) return false;
+        if (prev[i] == End) head = next[i];
+        else next[prev[i]] = next[i];
+        if (next[i] == End) tail = prev[i];
+        else prev[next[i]] = prev[i];
+        next[i] = Out;
+        size--;
+        return true;
+    }
+
+    // End: empty
+    public int first() {
+        return head;
+    }
+
+    // End: i is the last, i must be in the list
+    public int next(int i) {
+        return next[i];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,29 +1,28 @@
 package llvm2mlog.compiler.backend.regalloc;
 
 import llvm2mlog.compiler.backend.analyzer.LivenessAnalyzer;
+import llvm2mlog.compiler.backend.analyzer.RegisterNumbering;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmModule;
 import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
-import llvm2mlog.compiler.backend.rvasm.inst.AsmLoadInst;
 import llvm2mlog.compiler.backend.rvasm.inst.AsmMoveInst;
-import llvm2mlog.compiler.backend.rvasm.inst.AsmStoreInst;
+import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
 import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
-import llvm2mlog.compiler.backend.rvasm.operand.RawStackOffset;
-import llvm2mlog.compiler.backend.rvasm.operand.RawStackOffset.RawType;
 import llvm2mlog.compiler.backend.rvasm.operand.Register;
-import llvm2mlog.compiler.backend.rvasm.operand.VirtualReg;
-import llvm2mlog.compiler.share.lang.MLOG;
-import llvm2mlog.compiler.share.misc.UnionSet;
+import llvm2mlog.compiler.share.misc.ParallelFor;
 import llvm2mlog.compiler.share.pass.AsmFuncPass;
 import llvm2mlog.compiler.share.pass.AsmModulePass;
 import llvm2mlog.debug.Log;
 import llvm2mlog.debug.Statistics;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Register Allocator using Graph Coloring Algorithm
+ * <p>
+ * Functions above linearScanAbove instructions go to LinearScanAllocator, faster and spilling more.
  *
  * @reference: Tiger Book
  * @requirement: LivenessAnalyzer on Asm
@@ -31,61 +30,144 @@ import java.util.*;
 
 public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
 
-    private static final int K = PhysicalReg.assignable.size();
+    static final int K = PhysicalReg.assignable.size();
+    // the place of a physical register in PhysicalReg.assignable, -1: never assigned
+    static final int[] AssignableIndex = new int[RegisterNumbering.Physical];
+
+    static {
+        Arrays.fill(AssignableIndex, -1);
+        for (int i = 0; i < K; i++) AssignableIndex[PhysicalReg.assignable.get(i).index] = i;
+    }
+
     /**
-     * reg container
-     * Registers can only present in one of these
-     * Registers in coalescedNodes and selectStack are "deleted"
+     * node container, nodes are numbered by the graph
+     * Nodes can only present in one of these
+     * Nodes in coalescedNodes and selectStack are "deleted"
      */
-    private final HashSet<Register>
-            precolored = new LinkedHashSet<>(PhysicalReg.phyRegs.values()),
-            initial = new LinkedHashSet<>(),
-            simplifyWorklist = new LinkedHashSet<>(),
-            freezeWorklist = new LinkedHashSet<>(),
-            spillWorklist = new LinkedHashSet<>(),
-            spilledNodes = new LinkedHashSet<>(),
-            coalescedNodes = new LinkedHashSet<>(),
-            coloredNodes = new LinkedHashSet<>();
-    private final Stack<Register> selectStack = new Stack<>();
+    private final NodeList
+            initial = new NodeList(),
+            simplifyWorklist = new NodeList(),
+            freezeWorklist = new NodeList(),
+            spillWorklist = new NodeList(),
+            spilledNodes = new NodeList(),
+            coalescedNodes = new NodeList(),
+            coloredNodes = new NodeList();
+    private int[] selectStack = new int[0];
+    private int selectTop = 0;
+    // times a node is in selectStack
+    private int[] selected = new int[0];
     /**
-     * moves
+     * moves, numbered in the order build meets them
      * coalescedMoves: have been coalesced.
      * constrainedMoves: rd and rs have an edge
      * frozenMoves: have been frozen, no need to consider it.
      * worklistMoves and activeMoves are moves "exists"
      */
-    private final HashSet<AsmMoveInst>
-            coalescedMoves = new LinkedHashSet<>(),
-            constrainedMoves = new LinkedHashSet<>(),
-            frozenMoves = new LinkedHashSet<>(),
-            worklistMoves = new LinkedHashSet<>(),
-            activeMoves = new LinkedHashSet<>();
+    private final ArrayList<AsmMoveInst> moves = new ArrayList<>();
+    private final BitSet
+            coalescedMoves = new BitSet(),
+            constrainedMoves = new BitSet(),
+            frozenMoves = new BitSet(),
+            activeMoves = new BitSet();
+    private final NodeList worklistMoves = new NodeList();
     /* graph */
     private final InterferenceGraph G = new InterferenceGraph();
+    // of the function being colored, kept across its rounds
+    private LivenessAnalyzer liveness;
+    // what build found in each block of the function, by position
+    private BlockGraph[] blockGraphs;
+    // blocks spill code changed and the nodes it spilled in the last round, build walks the changed blocks again
+    private BitSet changedBlocks, spilled;
+    // nodes before it have their priority
+    private int priced;
     /* utils */
-    private final UnionSet<Register> unionSet = new UnionSet<Register>();
-    private final Set<Register> introducedTemp = new HashSet<>();
+    // node -> the node it is coalesced into
+    private int[] alias = new int[0];
+    // nodes of briggsCriterion already counted
+    private int[] visited = new int[0];
+    private int visitStamp = 0;
+    // spill slots and temporaries of the function being colored
+    private SpillRewriter spills;
     private AsmFunction curFunc;
 
+    // null: color functions one by one
+    private final ForkJoinPool pool;
+    // spill counter and records of the compilation this allocator belongs to
+    private final Statistics statistics;
+
+    public static final int DefaultLinearScanAbove = 10000;
+    // functions with more instructions go to LinearScanAllocator, 0: every function
+    public int linearScanAbove = DefaultLinearScanAbove;
+
+    public RegisterAllocator() {
+        this(null);
+    }
+
+    public RegisterAllocator(ForkJoinPool pool) {
+        this(pool, new Statistics());
+    }
+
+    public RegisterAllocator(ForkJoinPool pool, Statistics statistics) {
+        this.pool = pool;
+        this.statistics = statistics;
+    }
+
     @Override
     public void runOnModule(AsmModule module) {
         Log.info("K", K);
 
-        module.functions.forEach(this::runOnFunc);
+        // a reused function is not colored again, its shared colors come with its code
+        List<AsmFunction> functions = new ArrayList<>();
+        for (AsmFunction function : module.functions) if (function.reused == null) functions.add(function);
+
+        ParallelFor.forEach(pool, functions, function -> {
+            String name = "@" + function.identifier;
+            if (linearScan(function)) {
+                var allocator = new LinearScanAllocator(statistics);
+                statistics.measure("LinearScanAllocator", name, () -> allocator.allocate(function));
+            } else {
+                var allocator = new RegisterAllocator(null, statistics);
+                statistics.measure("RegisterAllocator", name, () -> allocator.color(function));
+            }
+        });
+        module.functions.forEach(RegisterAllocator::writeSharedColors);
     }
 
     @Override
     public void runOnFunc(AsmFunction function) {
+        if (linearScan(function)) new LinearScanAllocator(statistics).allocate(function);
+        else color(function);
+        writeSharedColors(function);
+    }
+
+    private boolean linearScan(AsmFunction function) {
+        int instructions = 0;
+        for (AsmBlock block : function.blocks) instructions += block.instructions.size();
+        return instructions > linearScanAbove;
+    }
+
+    private void color(AsmFunction function) {
         Log.info("color func: ", function);
 
         curFunc = function;
+        curFunc.sharedColors.clear();
+        spills = new SpillRewriter(function);
+        int rounds = 0, spilledCount = 0;
+        // rewriting spills keeps the liveness of the other registers, it is computed once
+        liveness = new LivenessAnalyzer();
+        liveness.runOnFunc(function);
+        blockGraphs = new BlockGraph[function.blocks.size()];
+        changedBlocks = new BitSet();
+        spilled = new BitSet();
+        priced = 0;
+        G.init(liveness.numbering());
 
         while (true) {
             init();
+            rounds++;
 
             Log.mark();
 
-            new LivenessAnalyzer().runOnFunc(function);
             build();
 
             makeWorklist();
@@ -106,6 +188,7 @@ public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
 
             if (!spilledNodes.isEmpty()) {
 
+                spilledCount += spilledNodes.size();
                 rewriteProgram();
 
                 Log.mark("color end: turn #");
@@ -123,134 +206,268 @@ public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
                 spilledNodes.forEach(n -> Log.report("spill: ", n.identifier, n.stackOffset.value));
                 */
                 Log.markReset("color end: turn #");
+                for (int node = coloredNodes.first(); node != NodeList.End; node = coloredNodes.next(node)) writeColor(node);
+                for (int node = coalescedNodes.first(); node != NodeList.End; node = coalescedNodes.next(node)) writeColor(node);
+
+                String name = "@" + function.identifier;
+                statistics.count("RegisterAllocator", name, "round", rounds);
+                statistics.count("RegisterAllocator", name, "spilled", spilledCount);
+                statistics.count("RegisterAllocator", name, "coalesced move", coalescedMoves.cardinality());
                 return;
             }
         }
     }
 
+    private void writeColor(int node) {
+        Register reg = G.register(node);
+        if (reg instanceof GlobalReg) curFunc.sharedColors.put(reg, G.color[node]);
+        else reg.color = G.color[node];
+    }
+
+    static void writeSharedColors(AsmFunction function) {
+        function.sharedColors.forEach((reg, color) -> reg.color = color);
+    }
+
     private void init() {
-        initial.clear();
-        simplifyWorklist.clear();
-        freezeWorklist.clear();
-        spillWorklist.clear();
-        spilledNodes.clear();
-        coalescedNodes.clear();
-        coloredNodes.clear();
-        selectStack.clear();
+        // all physical registers are precolored, the priority of a node is the same every round
+        G.clear();
+        moves.clear();
+        int size = G.size;
+
+        initial.reset(size);
+        simplifyWorklist.reset(size);
+        freezeWorklist.reset(size);
+        spillWorklist.reset(size);
+        spilledNodes.reset(size);
+        coalescedNodes.reset(size);
+        coloredNodes.reset(size);
+        if (selected.length < size) {
+            selectStack = new int[size];
+            selected = new int[size];
+            alias = new int[size];
+            visited = new int[size];
+        }
+        selectTop = 0;
+        Arrays.fill(selected, 0, size, 0);
+        for (int node = 0; node < size; node++) alias[node] = node;
 
         coalescedMoves.clear();
         constrainedMoves.clear();
         frozenMoves.clear();
-        worklistMoves.clear();
         activeMoves.clear();
+    }
 
-        // init the graph
-        G.init();
-
-        // all physical registers are precolored
-        precolored.forEach(reg -> {
-            reg.color = (PhysicalReg) reg;
-            reg.node.init(true);
-        });
+    /**
+     * what build found in a block: the edges met there first, by instruction, the initial nodes met there first, and the moves.
+     * a block spill code did not change finds the same next round less the spilled nodes, it is replayed instead of walked.
+     * in a changed block, so do the instructions spill code did not change, as the temporaries live only next to the
+     * instructions they were made for, if fp, used by the spill code, was live after them before.
+     * <p>
+     * edges met first somewhere else after spill code are dropped on replay, so the graph is the one walking every block gives:
+     * the same edges and nodes, in the same order of adjList, moveList and initial.
+     */
+    private static class BlockGraph {
+        // pairs of nodes, the ones of the last instruction first
+        private int[] edges = new int[16];
+        private int edgeCount = 0;
+        // instruction -> where its edges start, they end where the ones of the instruction before start
+        private final int[] from;
+        private int[] nodes = new int[4];
+        private int nodeCount = 0;
+        private final ArrayList<AsmMoveInst> moves = new ArrayList<>();
+        // instruction -> fp is live after it
+        private final BitSet fpLive = new BitSet();
+
+        private BlockGraph(int instructions) {
+            from = new int[instructions];
+        }
 
-        curFunc.blocks.forEach(block -> block.instructions.forEach(inst -> {
-            initial.addAll(inst.uses());
-            initial.addAll(inst.defs());
-        }));
-        initial.removeAll(precolored);
-        initial.forEach(reg -> {
-            reg.color = null;
-            reg.node.init(false);
-            unionSet.remove(reg);
-        });
+        private int end(int inst) {
+            return inst > 0 ? from[inst - 1] : edgeCount;
+        }
 
-        // this priority calculation is quite simple
-        // every reg's priority = sigma (use+def)*10^(the level of the block)
+        private void addEdge(int u, int v) {
+            if (edgeCount + 2 > edges.length) edges = Arrays.copyOf(edges, edges.length * 2);
+            edges[edgeCount++] = u;
+            edges[edgeCount++] = v;
+        }
 
-        for (AsmBlock block : curFunc.blocks) {
-            double weight = Math.pow(10, block.loopDepth);
-            block.instructions.forEach(inst -> {
-                inst.defs().forEach(def -> def.node.priority += weight);
-                inst.uses().forEach(use -> use.node.priority += weight);
-            });
+        private void addNode(int node) {
+            if (nodeCount == nodes.length) nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            nodes[nodeCount++] = node;
         }
     }
 
     /**
      * build the InterferenceGraph
+     * the first round walks every block, then only the blocks spill code changed, the others are replayed.
+     * initial: nodes in the order they are met, priority: sigma (use+def)*10^(the level of the block)
+     */
+    private void build() {
+        int zero = G.node(PhysicalReg.reg("zero")), fp = G.node(PhysicalReg.reg("fp"));
+
+        for (int index = 0; index < curFunc.blocks.size(); index++) {
+            BlockGraph graph = blockGraphs[index];
+            if (graph == null || changedBlocks.get(index)) {
+                int[] origin = graph == null ? null : spills.origin(index);
+                blockGraphs[index] = walk(curFunc.blocks.get(index), graph, origin, zero, fp);
+            } else replay(graph);
+        }
+
+        worklistMoves.reset(moves.size());
+        for (int move = 0; move < moves.size(); move++) worklistMoves.add(move);
+    }
+
+    /**
      * for inst from tail to head because we start with "liveOut"
      * for each inst, defs() and lives interference.
      * Then before move to pre inst, we do update: all defs() are dead while all uses() are live.
      * Notice that for Move we have to remove their uses()
+     * <p>
+     * old, origin: the graph of the block before spill code and where its instructions went, their edges are replayed
      */
-    private void build() {
+    private BlockGraph walk(AsmBlock block, BlockGraph old, int[] origin, int zero, int fp) {
+        BlockGraph graph = new BlockGraph(block.instructions.size());
+
+        // the nodes of uses() and defs() by instruction, in their order
+        int[][] uses = new int[block.instructions.size()][], defs = new int[block.instructions.size()][];
+
+        // this priority calculation is quite simple, the nodes priced before are where they were
+        double weight = Math.pow(10, block.loopDepth);
+        int index = 0;
+        for (AsmBaseInst inst : block.instructions) {
+            uses[index] = nodes(inst.uses());
+            defs[index] = nodes(inst.defs());
+            addInitial(uses[index], graph);
+            addInitial(defs[index], graph);
+            for (int node : uses[index]) if (node >= priced) G.priority[node] += weight;
+            for (int node : defs[index]) if (node >= priced) G.priority[node] += weight;
+            index++;
+        }
 
-        for (AsmBlock block : curFunc.blocks) {
-            HashSet<Register> lives = block.liveOut;
-
-            for (int i = block.instructions.size() - 1; i >= 0; i--) {
-                AsmBaseInst inst = block.instructions.get(i);
-                if (inst instanceof AsmMoveInst) {
-                    lives.removeAll(inst.uses());
-                    HashSet<Register> moveRelated = new HashSet<>(inst.defs());
-                    moveRelated.addAll(inst.uses());
-                    moveRelated.forEach(reg -> reg.node.moveList.add((AsmMoveInst) inst));
-                    worklistMoves.add((AsmMoveInst) inst);
-                }
+        BitSet lives = (BitSet) block.liveOut.clone();
+
+        for (Iterator<AsmBaseInst> it = block.instructions.descendingIterator(); it.hasNext(); ) {
+            AsmBaseInst inst = it.next();
+            graph.from[--index] = graph.edgeCount;
+            if (inst instanceof AsmMoveInst) {
+                for (int use : uses[index]) lives.clear(use);
+                graph.moves.add((AsmMoveInst) inst);
+                addMove((AsmMoveInst) inst);
+            }
+
+            lives.set(zero);
+            for (int def : defs[index]) lives.set(def);
+            if (lives.get(fp)) graph.fpLive.set(index);
+
+            if (origin != null && origin[index] >= 0 && old.fpLive.get(origin[index]) == lives.get(fp))
+                replay(old, origin[index], graph);
+            else for (int def : defs[index]) {
+                for (int live = lives.nextSetBit(0); live >= 0; live = lives.nextSetBit(live + 1))
+                    if (G.addEdge(def, live)) graph.addEdge(def, live);
+            }
+
+            for (int def : defs[index]) lives.clear(def);
+            for (int use : uses[index]) lives.set(use);
+        }
+        return graph;
+    }
 
-                lives.add(PhysicalReg.reg("zero"));
-                lives.addAll(inst.defs());
+    private int[] nodes(Set<Register> regs) {
+        int[] nodes = new int[regs.size()];
+        int i = 0;
+        for (Register reg : regs) nodes[i++] = G.node(reg);
+        return nodes;
+    }
 
-                for (Register def : inst.defs())
-                    for (Register live : lives)
-                        G.addEdge(new InterferenceGraph.Edge(def, live));
+    private void addInitial(int[] nodes, BlockGraph graph) {
+        for (int node : nodes) {
+            if (!G.precolored(node) && initial.add(node)) graph.addNode(node);
+        }
+    }
 
-                lives.removeAll(inst.defs());
-                lives.addAll(inst.uses());
+    // the edges an instruction not changed by spill code met first, less the spilled ones
+    private void replay(BlockGraph old, int inst, BlockGraph graph) {
+        for (int i = old.from[inst], end = old.end(inst); i < end; i += 2) {
+            int u = old.edges[i], v = old.edges[i + 1];
+            if (!spilled.get(u) && !spilled.get(v) && G.addEdge(u, v)) graph.addEdge(u, v);
+        }
+    }
+
+    // what walking the block gives, its instructions do not have the spilled nodes
+    private void replay(BlockGraph graph) {
+        int kept = 0;
+        for (int i = 0; i < graph.nodeCount; i++) {
+            int node = graph.nodes[i];
+            if (!spilled.get(node) && initial.add(node)) graph.nodes[kept++] = node;
+        }
+        graph.nodeCount = kept;
+
+        kept = 0;
+        for (int inst = graph.from.length - 1; inst >= 0; inst--) {
+            int start = graph.from[inst], end = graph.end(inst);
+            graph.from[inst] = kept;
+            for (int i = start; i < end; i += 2) {
+                int u = graph.edges[i], v = graph.edges[i + 1];
+                if (spilled.get(u) || spilled.get(v) || !G.addEdge(u, v)) continue;
+                graph.edges[kept++] = u;
+                graph.edges[kept++] = v;
             }
         }
+        graph.edgeCount = kept;
+
+        graph.moves.forEach(this::addMove);
+    }
+
+    // moves are numbered in the order build meets them
+    private void addMove(AsmMoveInst inst) {
+        int move = moves.size(), rd = G.node(inst.rd), rs1 = G.node(inst.rs1);
+        moves.add(inst);
+        G.addMove(rd, move);
+        if (rs1 != rd) G.addMove(rs1, move);
     }
 
     /**
      * dispatch the node in initial to three worklists.
      */
     private void makeWorklist() {
-        var it = initial.iterator();
-        while (it.hasNext()) {
-            Register reg = it.next();
-            it.remove();
-            if (reg.node.degree >= K) spillWorklist.add(reg);
-            else if (moveRelated(reg)) freezeWorklist.add(reg);
-            else simplifyWorklist.add(reg);
+        while (!initial.isEmpty()) {
+            int node = initial.first();
+            initial.remove(node);
+            if (G.degree[node] >= K) spillWorklist.add(node);
+            else if (moveRelated(node)) freezeWorklist.add(node);
+            else simplifyWorklist.add(node);
         }
     }
 
     /**
      * enable a move: from activeMoves to worklist
      */
-    private void enableMoves(Set<Register> regs) {
-        for (Register reg : regs)
-            for (AsmMoveInst move : nodeMoves(reg))
-                if (activeMoves.contains(move)) {
-                    activeMoves.remove(move);
-                    worklistMoves.add(move);
-                }
+    private void enableMoves(int node) {
+        for (int i = 0; i < G.moveCount[node]; i++) {
+            int move = G.moveList[node][i];
+            if (activeMoves.get(move)) {
+                activeMoves.clear(move);
+                worklistMoves.add(move);
+            }
+        }
     }
 
     /**
-     * decrease the degree of reg
+     * decrease the degree of node
      * if the degree from K to K-1, then the moves of the adjacent nodes is possible to be enabled.
      */
-    private void decrementDegree(Register reg) {
-        int d = reg.node.degree;
-        reg.node.degree--;
+    private void decrementDegree(int node) {
+        int d = G.degree[node]--;
         if (d == K) {
-            HashSet<Register> enableMovesWorklist = new HashSet<>(adjacent(reg));
-            enableMovesWorklist.add(reg);
-            enableMoves(enableMovesWorklist);
-            spillWorklist.remove(reg);
-            if (moveRelated(reg)) freezeWorklist.add(reg);
-            else simplifyWorklist.add(reg);
+            for (int i = 0; i < G.adjCount[node]; i++) {
+                int t = G.adjList[node][i];
+                if (!deleted(t)) enableMoves(t);
+            }
+            enableMoves(node);
+            spillWorklist.remove(node);
+            if (moveRelated(node)) freezeWorklist.add(node);
+            else simplifyWorklist.add(node);
         }
     }
 
@@ -258,18 +475,22 @@ public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
      * delete a node in simplifyWorklist, and decrement degree of its adjacent.
      */
     private void simplify() {
-        var it = simplifyWorklist.iterator();
-        Register reg = it.next();
-        // Log.track("simplify", reg);
-        it.remove();
-        selectStack.push(reg);
-        adjacent(reg).forEach(this::decrementDegree);
-    }
-
-    private void addWorklist(Register reg) {
-        if (!reg.node.precolored && !moveRelated(reg) && reg.node.degree < K) {
-            freezeWorklist.remove(reg);
-            simplifyWorklist.add(reg);
+        int node = simplifyWorklist.first();
+        // Log.track("simplify", G.register(node));
+        simplifyWorklist.remove(node);
+        if (selectTop == selectStack.length) selectStack = Arrays.copyOf(selectStack, selectTop * 2 + 1);
+        selectStack[selectTop++] = node;
+        selected[node]++;
+        for (int i = 0; i < G.adjCount[node]; i++) {
+            int t = G.adjList[node][i];
+            if (!deleted(t)) decrementDegree(t);
+        }
+    }
+
+    private void addWorklist(int node) {
+        if (!G.precolored(node) && !moveRelated(node) && G.degree[node] < K) {
+            freezeWorklist.remove(node);
+            simplifyWorklist.add(node);
         }
     }
 
@@ -277,63 +498,68 @@ public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
      * a union-set coalesce algorithm
      */
     private void coalesce() {
-        var it = worklistMoves.iterator();
-        AsmMoveInst move = it.next();
-
-        // Log.track("coalesce", move.rd, move.rs1);
-
-        Register rdAlias = unionSet.getAlias(move.rd),
-                rs1Alias = unionSet.getAlias(move.rs1);
-        InterferenceGraph.Edge edge;
-        if (rs1Alias.node.precolored) edge = new InterferenceGraph.Edge(rs1Alias, rdAlias);
-        else edge = new InterferenceGraph.Edge(rdAlias, rs1Alias);
-        it.remove();
-
-        if (edge.isLoop()) {
-            coalescedMoves.remove(move);
-            addWorklist(edge.u);
-        } else if (edge.v.node.precolored || G.adjSet.contains(edge)) {
-            constrainedMoves.add(move);
-            addWorklist(edge.u);
-            addWorklist(edge.v);
-        } else if ((edge.u.node.precolored && georgeCriterion(edge.u, edge.v))
-                || (!edge.u.node.precolored && briggsCriterion(edge.u, edge.v))) { // briggs strategy
-            coalescedMoves.add(move);
-
-            combine(edge.u, edge.v);
-            addWorklist(edge.u);
+        int move = worklistMoves.first();
+        AsmMoveInst inst = moves.get(move);
+
+        // Log.track("coalesce", inst.rd, inst.rs1);
+
+        int rdAlias = getAlias(G.node(inst.rd)), rs1Alias = getAlias(G.node(inst.rs1));
+        int u, v;
+        if (G.precolored(rs1Alias)) {
+            u = rs1Alias;
+            v = rdAlias;
+        } else {
+            u = rdAlias;
+            v = rs1Alias;
+        }
+        worklistMoves.remove(move);
+
+        if (u == v) {
+            coalescedMoves.clear(move);
+            addWorklist(u);
+        } else if (G.precolored(v) || G.adjacent(u, v)) {
+            constrainedMoves.set(move);
+            addWorklist(u);
+            addWorklist(v);
+        } else if ((G.precolored(u) && georgeCriterion(u, v))
+                || (!G.precolored(u) && briggsCriterion(u, v))) { // briggs strategy
+            coalescedMoves.set(move);
+
+            combine(u, v);
+            addWorklist(u);
         } else {
-            activeMoves.add(move);
+            activeMoves.set(move);
         }
     }
 
-    private void combine(Register u, Register v) {
-        if (freezeWorklist.contains(v)) freezeWorklist.remove(v);
-        else spillWorklist.remove(v);
+    private void combine(int u, int v) {
+        if (!freezeWorklist.remove(v)) spillWorklist.remove(v);
         coalescedNodes.add(v);
-        unionSet.setAlias(v, u); // v -> u
-        u.node.moveList.addAll(v.node.moveList);
-        enableMoves(Collections.singleton(v));
-
-        for (Register t : adjacent(v)) {
-            G.addEdge(new InterferenceGraph.Edge(t, u));
+        alias[v] = u; // v -> u
+        G.mergeMoves(u, v, moves.size());
+        enableMoves(v);
+
+        for (int i = 0, n = G.adjCount[v]; i < n; i++) {
+            int t = G.adjList[v][i];
+            if (deleted(t)) continue;
+            G.addEdge(t, u);
             decrementDegree(t);
         }
 
-        if (u.node.degree >= K && freezeWorklist.contains(u)) {
-            freezeWorklist.remove(u);
-            spillWorklist.add(u);
-        }
+        if (G.degree[u] >= K && freezeWorklist.remove(u)) spillWorklist.add(u);
     }
 
-    private void freezeMoves(Register u) {
-        for (AsmMoveInst move : nodeMoves(u)) {
-            Register v;
-            if (unionSet.getAlias(u) == unionSet.getAlias(move.rs1)) v = unionSet.getAlias(move.rd);
-            else v = unionSet.getAlias(move.rs1);
-            activeMoves.remove(move);
-            frozenMoves.add(move);
-            if (nodeMoves(v).isEmpty() && v.node.degree < K) {
+    private void freezeMoves(int u) {
+        for (int i = 0; i < G.moveCount[u]; i++) {
+            int move = G.moveList[u][i];
+            if (!activeMoves.get(move) && !worklistMoves.contains(move)) continue;
+            AsmMoveInst inst = moves.get(move);
+            int v;
+            if (getAlias(u) == getAlias(G.node(inst.rs1))) v = getAlias(G.node(inst.rd));
+            else v = getAlias(G.node(inst.rs1));
+            activeMoves.clear(move);
+            frozenMoves.set(move);
+            if (!moveRelated(v) && G.degree[v] < K) {
                 freezeWorklist.remove(v);
                 simplifyWorklist.add(v);
             }
@@ -341,12 +567,11 @@ public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
     }
 
     private void freeze() {
-        var it = freezeWorklist.iterator();
-        Register reg = it.next();
-        // Log.track("freeze", reg);
-        it.remove();
-        simplifyWorklist.add(reg);
-        freezeMoves(reg);
+        int node = freezeWorklist.first();
+        // Log.track("freeze", G.register(node));
+        freezeWorklist.remove(node);
+        simplifyWorklist.add(node);
+        freezeMoves(node);
     }
 
     /**
@@ -354,182 +579,143 @@ public class RegisterAllocator implements AsmModulePass, AsmFuncPass {
      */
     private void selectSpill() {
 
-        Register minReg = null;
+        int minNode = -1;
         double minCost = Double.POSITIVE_INFINITY;
-        for (Register reg : spillWorklist) {
-            if (introducedTemp.contains(reg)) continue;
-            double regCost = reg.node.priority / reg.node.degree;
-            if (regCost < minCost) {
-                minReg = reg;
-                minCost = regCost;
+        for (int node = spillWorklist.first(); node != NodeList.End; node = spillWorklist.next(node)) {
+            if (spills.introducedTemp.contains(G.register(node))) continue;
+            double cost = G.priority[node] / G.degree[node];
+            if (cost < minCost) {
+                minNode = node;
+                minCost = cost;
             }
         }
         // those introduced by rewrite
-        if (minReg == null) {
-            for (Register reg : spillWorklist) {
-                double regCost = reg.node.priority / reg.node.degree;
-                if (regCost < minCost) {
-                    minReg = reg;
-                    minCost = regCost;
+        if (minNode == -1) {
+            for (int node = spillWorklist.first(); node != NodeList.End; node = spillWorklist.next(node)) {
+                double cost = G.priority[node] / G.degree[node];
+                if (cost < minCost) {
+                    minNode = node;
+                    minCost = cost;
                 }
             }
         }
-        // Log.track("selectSpill", minReg);
+        // Log.track("selectSpill", G.register(minNode));
 
-        Statistics.plus("spill");
+        statistics.plus("spill");
 
-        spillWorklist.remove(minReg);
-        simplifyWorklist.add(minReg);
-        freezeMoves(minReg);
+        spillWorklist.remove(minNode);
+        simplifyWorklist.add(minNode);
+        freezeMoves(minNode);
     }
 
     private void assignColors() {
-        while (!selectStack.empty()) {
-            Register reg = selectStack.pop();
-            ArrayList<PhysicalReg> okColors = new ArrayList<>(PhysicalReg.assignable);
-
-            for (Register neighbor : reg.node.adjList) {
-                var neiborAlias = unionSet.getAlias(neighbor);
-                if (neiborAlias.node.precolored || coloredNodes.contains(neiborAlias))
-                    okColors.remove(neiborAlias.color);
+        boolean[] used = new boolean[K];
+        while (selectTop > 0) {
+            int node = selectStack[--selectTop];
+            selected[node]--;
+            Arrays.fill(used, false);
+
+            for (int i = 0; i < G.adjCount[node]; i++) {
+                int neighborAlias = getAlias(G.adjList[node][i]);
+                if (G.precolored(neighborAlias) || coloredNodes.contains(neighborAlias)) {
+                    int color = AssignableIndex[colorOf(neighborAlias).index];
+                    if (color >= 0) used[color] = true;
+                }
             }
 
-            if (okColors.isEmpty()) spilledNodes.add(reg);
+            int color = 0;
+            while (color < K && used[color]) color++;
+            if (color == K) spilledNodes.add(node);
             else {
-                coloredNodes.add(reg);
-                reg.color = okColors.iterator().next();
+                coloredNodes.add(node);
+                G.color[node] = PhysicalReg.assignable.get(color);
             }
         }
 
-        for (Register reg : coalescedNodes) {
-            reg.color = unionSet.getAlias(reg).color;
+        for (int node = coalescedNodes.first(); node != NodeList.End; node = coalescedNodes.next(node)) {
+            G.color[node] = colorOf(getAlias(node));
         }
     }
 
-    /**
-     * rewrite the program. mainly for:
-     * 1. allocate stack space for these nodes
-     * 2. insert load/store for nodes (will introduce temps in this step)
-     */
+    private PhysicalReg colorOf(int node) {
+        if (G.precolored(node)) return (PhysicalReg) G.register(node);
+        return G.color[node];
+    }
+
+    // the spilled registers go to the stack, the rest keep their liveness
     private void rewriteProgram() {
         // Log.track("rewrite");
 
-        for (Register reg : spilledNodes) {
-            reg.stackOffset = new RawStackOffset(curFunc.spillStackUse, RawType.spill);
-            curFunc.spillStackUse += MLOG.I32Unit;
-        }
-
-        for (AsmBlock block : curFunc.blocks) {
-            ListIterator<AsmBaseInst> it = block.instructions.listIterator();
-            // instruction insert & delete, use iterator
-
-            while (it.hasNext()) {
-                AsmBaseInst inst = it.next();
-
-                for (Register use : inst.uses()) {
-                    if (use.stackOffset == null) continue;
-
-                    if (!inst.defs().contains(use)) {
-                        if (inst instanceof AsmMoveInst && inst.rd.stackOffset == null) {
-                            // move rd reg -> load rd stackPos(sp)
-                            assert use.equals(inst.rs1);
-                            AsmBaseInst loadInst = new AsmLoadInst(((VirtualReg) use).size, inst.rd, PhysicalReg.reg("fp"), use.stackOffset, null);
-                            it.set(loadInst);
-                        } else {
-                            VirtualReg temp = new VirtualReg(((VirtualReg) use).size);
-                            AsmBaseInst loadInst = new AsmLoadInst(temp.size, temp, PhysicalReg.reg("fp"), use.stackOffset, null);
-                            inst.replaceUse(use, temp); // will it miss?
-                            it.previous();
-                            it.add(loadInst);
-                            it.next();
-                            introducedTemp.add(temp);
-                        }
-                    } else {
-                        // if it is also in defs()
-                        VirtualReg temp = new VirtualReg(((VirtualReg) use).size);
-                        AsmBaseInst loadInst = new AsmLoadInst(temp.size, temp, PhysicalReg.reg("fp"), use.stackOffset, null);
-                        AsmBaseInst storeInst = new AsmStoreInst(temp, PhysicalReg.reg("fp"), use.stackOffset, null);
-                        inst.replaceUse(use, temp);
-                        inst.replaceDef(use, temp);
-                        it.previous();
-                        it.add(loadInst);
-                        it.next();
-                        it.add(storeInst);
-                        introducedTemp.add(temp);
-                    }
-                }
-
-                for (Register def : inst.defs()) {
-                    if (def.stackOffset == null) continue;
-
-                    if (inst.uses().contains(def)) continue; // has been considered previously
-                    if (inst instanceof AsmMoveInst && inst.rs1.stackOffset == null) {
-                        AsmBaseInst storeInst = new AsmStoreInst(PhysicalReg.reg("fp"), inst.rs1, def.stackOffset, null);
-                        it.set(storeInst);
-                    } else {
-                        VirtualReg temp = new VirtualReg(((VirtualReg) def).size);
-                        inst.replaceDef(def, temp);
-                        AsmBaseInst storeInst = new AsmStoreInst(PhysicalReg.reg("fp"), temp, def.stackOffset, null);
-                        it.add(storeInst);
-                        introducedTemp.add(temp);
-                    }
-                }
-            }
+        spilled = new BitSet();
+        List<Register> regs = new ArrayList<>(spilledNodes.size());
+        for (int node = spilledNodes.first(); node != NodeList.End; node = spilledNodes.next(node)) {
+            spilled.set(node);
+            regs.add(G.register(node));
         }
+        priced = G.size;
+        changedBlocks = spills.rewrite(regs);
+        liveness.removeRegisters(curFunc, spilled);
     }
 
     /* tool functions */
 
-    /**
-     * return a set of adjacent nodes
-     * notice that here we should move nodes in selectStack and coalescedNodes (which is considered to be deleted)
-     */
-    private LinkedHashSet<Register> adjacent(Register reg) {
-        LinkedHashSet<Register> ret = new LinkedHashSet<>(reg.node.adjList);
-        selectStack.forEach(ret::remove);
-        ret.removeAll(coloredNodes);
-        return ret;
+    // the node is in selectStack or colored, "deleted" for adjacent nodes
+    private boolean deleted(int node) {
+        return selected[node] > 0 || coloredNodes.contains(node);
+    }
+
+    private int getAlias(int node) {
+        int root = node;
+        while (alias[root] != root) root = alias[root];
+        while (alias[node] != root) {
+            int next = alias[node];
+            alias[node] = root;
+            node = next;
+        }
+        return root;
     }
 
     /**
-     * return a set of this nodes move insts
-     * only those in workList or active are valid.
+     * whether the node has a move in worklistMoves or activeMoves
      * warning: adjList < worklistMoves, so use this to make program faster
      */
-    private HashSet<AsmMoveInst> nodeMoves(Register reg) {
-        HashSet<AsmMoveInst> ret = new HashSet<>();
-        reg.node.moveList.forEach(move -> {
-            if (activeMoves.contains(move) || worklistMoves.contains(move))
-                ret.add(move);
-        });
-        return ret;
-    }
-
-    private boolean moveRelated(Register reg) {
-        return !nodeMoves(reg).isEmpty();
+    private boolean moveRelated(int node) {
+        for (int i = 0; i < G.moveCount[node]; i++) {
+            int move = G.moveList[node][i];
+            if (activeMoves.get(move) || worklistMoves.contains(move)) return true;
+        }
+        return false;
     }
 
-    private boolean ok(Register t, Register r) {
-        return t.node.degree < K || t.node.precolored || G.adjSet.contains(new InterferenceGraph.Edge(t, r));
+    private boolean ok(int t, int r) {
+        return G.degree[t] < K || G.precolored(t) || G.adjacent(t, r);
     }
 
-    private boolean georgeCriterion(Register u, Register v) {
-        for (Register t : adjacent(v)) if (!ok(t, u)) return false;
+    private boolean georgeCriterion(int u, int v) {
+        for (int i = 0; i < G.adjCount[v]; i++) {
+            int t = G.adjList[v][i];
+            if (!deleted(t) && !ok(t, u)) return false;
+        }
         return true;
     }
 
     /**
      * a conservative strategy
      */
-    private boolean briggsCriterion(Register u, Register v) {
+    private boolean briggsCriterion(int u, int v) {
+        if (++visitStamp == 0) {
+            Arrays.fill(visited, 0);
+            visitStamp = 1;
+        }
         int k = 0;
-
-        Set<Register> commonAdj = new HashSet<>(adjacent(u));
-        commonAdj.addAll(adjacent(v));
-
-        for (var n : commonAdj)
-            if (n.node.degree >= K) k++;
+        for (int node : new int[]{u, v})
+            for (int i = 0; i < G.adjCount[node]; i++) {
+                int n = G.adjList[node][i];
+                if (deleted(n) || visited[n] == visitStamp) continue;
+                visited[n] = visitStamp;
+                if (G.degree[n] >= K) k++;
+            }
 
         return k < K;
     }
-}
\ No newline at end of file
+}
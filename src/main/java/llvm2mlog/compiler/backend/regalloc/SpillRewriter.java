@@ -0,0 +1,151 @@
+package llvm2mlog.compiler.backend.regalloc;
+
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmLoadInst;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmMoveInst;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmStoreInst;
+import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.RawStackOffset;
+import llvm2mlog.compiler.backend.rvasm.operand.RawStackOffset.RawType;
+import llvm2mlog.compiler.backend.rvasm.operand.Register;
+import llvm2mlog.compiler.backend.rvasm.operand.VirtualReg;
+import llvm2mlog.compiler.share.lang.MLOG;
+
+import java.util.*;
+
+/**
+ * Spill code of one function, shared by the allocators: every round the spilled registers get a stack slot,
+ * each use is loaded into a new temporary before the instruction and each def stored after it.
+ * <p>
+ * The temporaries live inside one instruction, spilling them again does not help, so they are kept in introducedTemp.
+ * Loads and stores go right before and after the instruction, the instructions not spilling anything are not changed.
+ */
+public class SpillRewriter {
+
+    private final AsmFunction function;
+    public final Set<Register> introducedTemp = new HashSet<>();
+    /**
+     * registers shared by functions (GlobalReg)
+     * their color (AsmFunction.sharedColors) and spill slot are kept per function,
+     * the colors are written back after the function is done, in the order of functions
+     */
+    private final Map<Register, RawStackOffset> sharedSpills = new HashMap<>();
+    // of the last rewrite, by block position, see origin
+    private int[][] origins = new int[0][];
+
+    public SpillRewriter(AsmFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * rewrite the program. mainly for:
+     * 1. allocate stack space for these nodes
+     * 2. insert load/store for nodes (will introduce temps in this step)
+     * returns the positions of the blocks changed, the others have the same instructions
+     */
+    public BitSet rewrite(List<Register> spilled) {
+        for (Register reg : spilled) {
+            var stackOffset = new RawStackOffset(function.spillStackUse, RawType.spill);
+            if (reg instanceof GlobalReg) sharedSpills.put(reg, stackOffset);
+            else reg.stackOffset = stackOffset;
+            function.spillStackUse += MLOG.I32Unit;
+        }
+
+        BitSet changed = new BitSet(function.blocks.size());
+        origins = new int[function.blocks.size()][];
+        int[] origin = new int[16];
+        for (int index = 0; index < function.blocks.size(); index++) {
+            AsmBlock block = function.blocks.get(index);
+            ListIterator<AsmBaseInst> it = block.instructions.listIterator();
+            // instruction insert & delete, use iterator
+            int position = 0, size = 0;
+
+            while (it.hasNext()) {
+                AsmBaseInst inst = it.next();
+                // loads inserted before and stores after the instruction
+                int before = 0, after = 0;
+                boolean touched = false;
+
+                for (Register use : inst.uses()) {
+                    if (spillSlot(use) == null) continue;
+                    touched = true;
+
+                    if (!inst.defs().contains(use)) {
+                        if (inst instanceof AsmMoveInst && spillSlot(inst.rd) == null) {
+                            // move rd reg -> load rd stackPos(sp)
+                            assert use.equals(inst.rs1);
+                            AsmBaseInst loadInst = new AsmLoadInst(((VirtualReg) use).size, inst.rd, PhysicalReg.reg("fp"), spillSlot(use), null);
+                            it.set(loadInst);
+                        } else {
+                            VirtualReg temp = new VirtualReg(function, ((VirtualReg) use).size);
+                            AsmBaseInst loadInst = new AsmLoadInst(temp.size, temp, PhysicalReg.reg("fp"), spillSlot(use), null);
+                            inst.replaceUse(use, temp); // will it miss?
+                            it.previous();
+                            it.add(loadInst);
+                            it.next();
+                            introducedTemp.add(temp);
+                            before++;
+                        }
+                    } else {
+                        // if it is also in defs()
+                        VirtualReg temp = new VirtualReg(function, ((VirtualReg) use).size);
+                        AsmBaseInst loadInst = new AsmLoadInst(temp.size, temp, PhysicalReg.reg("fp"), spillSlot(use), null);
+                        AsmBaseInst storeInst = new AsmStoreInst(temp, PhysicalReg.reg("fp"), spillSlot(use), null);
+                        inst.replaceUse(use, temp);
+                        inst.replaceDef(use, temp);
+                        it.previous();
+                        it.add(loadInst);
+                        it.next();
+                        it.add(storeInst);
+                        introducedTemp.add(temp);
+                        before++;
+                        after++;
+                    }
+                }
+
+                for (Register def : inst.defs()) {
+                    if (spillSlot(def) == null) continue;
+                    touched = true;
+
+                    if (inst.uses().contains(def)) continue; // has been considered previously
+                    if (inst instanceof AsmMoveInst && spillSlot(inst.rs1) == null) {
+                        AsmBaseInst storeInst = new AsmStoreInst(PhysicalReg.reg("fp"), inst.rs1, spillSlot(def), null);
+                        it.set(storeInst);
+                    } else {
+                        VirtualReg temp = new VirtualReg(function, ((VirtualReg) def).size);
+                        inst.replaceDef(def, temp);
+                        AsmBaseInst storeInst = new AsmStoreInst(PhysicalReg.reg("fp"), temp, spillSlot(def), null);
+                        it.add(storeInst);
+                        introducedTemp.add(temp);
+                        after++;
+                    }
+                }
+
+                if (touched) changed.set(index);
+                if (size + before + after + 1 > origin.length) origin = Arrays.copyOf(origin, (size + before + after + 1) * 2);
+                for (int i = 0; i < before; i++) origin[size++] = -1;
+                origin[size++] = touched ? -1 : position;
+                for (int i = 0; i < after; i++) origin[size++] = -1;
+                position++;
+            }
+            if (changed.get(index)) origins[index] = Arrays.copyOf(origin, size);
+        }
+        return changed;
+    }
+
+    /**
+     * the position each instruction of the block had before the last rewrite,
+     * -1: inserted or changed, null: no instruction of the block changed
+     */
+    public int[] origin(int block) {
+        return origins[block];
+    }
+
+    private RawStackOffset spillSlot(Register reg) {
+        if (reg instanceof GlobalReg) return sharedSpills.get(reg);
+        return reg.stackOffset;
+    }
+}
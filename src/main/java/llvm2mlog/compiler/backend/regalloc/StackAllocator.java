@@ -6,14 +6,31 @@ import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmModule;
 import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
 import llvm2mlog.compiler.backend.rvasm.operand.Immediate;
 import llvm2mlog.compiler.backend.rvasm.operand.RawStackOffset;
+import llvm2mlog.compiler.share.misc.ParallelFor;
 import llvm2mlog.compiler.share.pass.AsmFuncPass;
 import llvm2mlog.compiler.share.pass.AsmModulePass;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class StackAllocator implements AsmModulePass, AsmFuncPass {
 
+    // null: allocate functions one by one
+    private final ForkJoinPool pool;
+
+    public StackAllocator() {
+        this(null);
+    }
+
+    public StackAllocator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     @Override
     public void runOnModule(AsmModule module) {
-        module.functions.forEach(this::runOnFunc);
+        // a reused function has its frame in its code already
+        ParallelFor.forEach(pool, module.functions, function -> {
+            if (function.reused == null) runOnFunc(function);
+        });
     }
 
     @Override
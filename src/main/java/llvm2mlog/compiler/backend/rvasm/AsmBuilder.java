@@ -20,12 +20,16 @@ import llvm2mlog.compiler.share.error.codegen.InternalError;
 import llvm2mlog.compiler.share.lang.LLVM;
 import llvm2mlog.compiler.share.lang.MLOG;
 import llvm2mlog.compiler.share.misc.Pair;
+import llvm2mlog.compiler.share.misc.ParallelFor;
 import llvm2mlog.compiler.share.pass.IRBlockPass;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
 import llvm2mlog.compiler.share.pass.IRModulePass;
 import llvm2mlog.compiler.share.pass.InstVisitor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /*
  implements @IRVisitor and @InstVisitor
@@ -35,11 +39,34 @@ import java.util.ArrayList;
 
 public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVisitor {
 
-    public final AsmModule module = new AsmModule();
+    public final AsmModule module;
 
     private final AsmCurrent cur = new AsmCurrent();
 
+    // null: lower functions one by one
+    private final ForkJoinPool pool;
+    // functions whose code comes from an earlier compilation, they are not lowered
+    private final Map<IRFunction, AsmFunction.Reused> reused;
+
     public AsmBuilder() {
+        this((ForkJoinPool) null);
+    }
+
+    public AsmBuilder(ForkJoinPool pool) {
+        this(pool, Map.of());
+    }
+
+    public AsmBuilder(ForkJoinPool pool, Map<IRFunction, AsmFunction.Reused> reused) {
+        this.module = new AsmModule();
+        this.pool = pool;
+        this.reused = reused;
+    }
+
+    // a worker lowering one function of a built skeleton
+    private AsmBuilder(AsmModule module) {
+        this.module = module;
+        this.pool = null;
+        this.reused = Map.of();
     }
 
     private static boolean validImm(int value) {
@@ -66,6 +93,8 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
     public void buildModuleSkeleton(IRModule irModule) {
         globalDecl(irModule);
+        Map<String, GlobalReg> globalRegs = new HashMap<>();
+        module.globalVarSeg.forEach(globalReg -> globalRegs.put(globalReg.identifier, globalReg));
 
 
         for (IRFunction builtinFunc : irModule.builtinFunctions) {
@@ -73,7 +102,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 //            function.inline = true;
             builtinFunc.asmOperand = function;
             for (int i = 0; i < ((IRFuncType) builtinFunc.type).argTypes.size(); i++) {
-                VirtualReg reg = new VirtualReg(builtinFunc.getArgType(i).size());
+                VirtualReg reg = new VirtualReg(function, builtinFunc.getArgType(i).size());
                 function.arguments.add(reg);
 
                 // spill
@@ -102,9 +131,9 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
             AsmFunction function = new AsmFunction(irFunc.name);
             irFunc.asmOperand = function;
 
-            for (int i = 0; i < irFunc.operands.size(); i++) {
-                Value arg = irFunc.operands.get(i);
-                VirtualReg reg = new VirtualReg(arg.type.size());
+            for (int i = 0; i < irFunc.operands().size(); i++) {
+                Value arg = irFunc.operands().get(i);
+                VirtualReg reg = new VirtualReg(function, arg.type.size());
                 arg.asmOperand = reg;
 
                 function.arguments.add(reg);
@@ -118,6 +147,16 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
             module.functions.add((AsmFunction) irFunc.asmOperand);
 
+            // callers only need the interface of a reused function
+            function.reused = reused.get(irFunc);
+            if (function.reused != null) {
+                function.reused.sharedColors.forEach((global, color) ->
+                        function.sharedColors.put(globalRegs.get(global), PhysicalReg.reg(color)));
+                // detached, calls only jump to its label
+                function.entryBlock = new AsmBlock(function.reused.entryLabel);
+                continue;
+            }
+
             for (IRBlock irBlock : irFunc.blocks) {
                 AsmBlock block = new AsmBlock(irBlock.name);
                 block.loopDepth = irBlock.loopDepth;
@@ -142,7 +181,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
         for (GlobalVariable globalVar : irModule.globalVarSeg) {
 
-            GlobalReg globalReg = new GlobalReg(globalVar.name);
+            GlobalReg globalReg = new GlobalReg(globalVar.name, module.globalVarSeg.size());
             var memOffset = new RawMemOffset(globalReg, memUse);
             globalVar.asmOperand = memOffset;
             module.globalVarSeg.add(globalReg);
@@ -189,7 +228,10 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
     @Override
     public void runOnModule(IRModule irModule) {
         buildModuleSkeleton(irModule);
-        irModule.functions.forEach(this::runOnFunc);
+        // the skeleton fixes the order of functions, each body only writes its own AsmFunction
+        ParallelFor.forEach(pool, irModule.functions, function -> {
+            if (!reused.containsKey(function)) new AsmBuilder(module).runOnFunc(function);
+        });
     }
 
 //    public Register awesomeGEP(Value ptrPos, Value index, int elementSize, StructType classType) {
@@ -260,14 +302,14 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
         ArrayList<Register> calleeSaveTemp = new ArrayList<>();
         for (PhysicalReg phyReg : PhysicalReg.calleeSaved) {
-            VirtualReg rd = new VirtualReg();
+            VirtualReg rd = new VirtualReg(cur.func);
             calleeSaveTemp.add(rd);
             new AsmMoveInst(rd, phyReg, cur.func.entryBlock);
         }
 
 
         // ra
-        VirtualReg raTemp = new VirtualReg();
+        VirtualReg raTemp = new VirtualReg(cur.func);
 
 
         new AsmMoveInst(raTemp, PhysicalReg.reg("ra"), cur.func.entryBlock);
@@ -285,7 +327,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
         // load arguments in mem to reg
         for (int i = MLOG.MaxArgRegNum; i < cur.func.arguments.size(); i++) {
 
-            argInStack = new VirtualReg();
+            argInStack = new VirtualReg(cur.func);
             new AsmALUInst(MLOG.SubOperation, argInStack, PhysicalReg.reg("sp"), new Immediate(1 - MLOG.MaxArgRegNum + i), cur.func.entryBlock);
             new AsmLoadInst(1, cur.func.arguments.get(i), argInStack
 
@@ -348,8 +390,6 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
                 inst.imm = new Immediate(inst.imm.value);
             });
         });
-        VirtualReg.regNumReset();
-
     }
 
     @Override
@@ -462,7 +502,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
         // spill to mem
         for (int i = MLOG.MaxArgRegNum; i < callFunc.arguments.size(); i++) {
 
-            argInStack = new VirtualReg();
+            argInStack = new VirtualReg(cur.func);
             new AsmALUInst(MLOG.SubOperation, argInStack, PhysicalReg.reg("sp"), new Immediate(2 - MLOG.MaxArgRegNum + i), cur.func.entryBlock);
             new AsmStoreInst(argInStack,
                     // notice: here use the argument of CallInst, not the func
@@ -523,7 +563,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
         Register instReg = cur.toReg(inst);
 
-        VirtualReg virtualReg = new VirtualReg();// = new VirtualReg();
+        VirtualReg virtualReg = new VirtualReg(cur.func);// = new VirtualReg();
         int elementSize = curElement.size();
 
 
@@ -743,7 +783,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
 //        Register instReg = cur.toReg(inst);
 //
-//        var operands = inst.operands;
+//        var operands = inst.operands();
 //
 //        IRBlock irBlock =new IRBlock();
 //        AsmBlock block = new AsmBlock(irBlock.name);
@@ -851,7 +891,7 @@ public class AsmBuilder implements IRModulePass, IRFuncPass, IRBlockPass, InstVi
 
     //    private boolean specialGEPCheck(IRGetElementPtrInst inst) {
 //        if (inst.asmOperand != null) return false;
-//        for (User user : inst.users)
+//        for (User user : inst.users())
 //            if (!(user instanceof IRLoadInst || user instanceof IRStoreInst)) return false;
 //        return true;
 //    }
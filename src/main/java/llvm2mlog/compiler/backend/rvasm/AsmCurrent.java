@@ -60,7 +60,7 @@ public class AsmCurrent {
 //            }
             if (value.asmOperand instanceof RawMemOffset) {
 //
-                var virtualReg = new VirtualReg();
+                var virtualReg = new VirtualReg(func);
 //
 //                var virtualReg1 = new VirtualReg();
 //                new AsmALUInst(MLOG.SubOperation, virtualReg, PhysicalReg.reg("fp"),
@@ -86,7 +86,7 @@ public class AsmCurrent {
         if (recordLi.containsKey(intValue)) {
             ret = recordLi.get(intValue);
         } else {
-            ret = new VirtualReg(value.type.size());
+            ret = new VirtualReg(func, value.type.size());
             if (intValue != null) {
                 new AsmLiInst(ret, new Immediate(intValue), this.block);
                 recordLi.put(intValue, ret);
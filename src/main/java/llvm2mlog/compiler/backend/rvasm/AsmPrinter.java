@@ -4,6 +4,7 @@ import llvm2mlog.compiler.backend.rvasm.hierarchy.ASMBuildinFunction;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmModule;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
 import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
 import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
 import llvm2mlog.compiler.share.lang.MLOG;
@@ -13,52 +14,74 @@ import llvm2mlog.compiler.share.pass.AsmFuncPass;
 import llvm2mlog.compiler.share.pass.AsmModulePass;
 import llvm2mlog.debug.Log;
 
-import java.io.PrintStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 
 public class AsmPrinter implements AsmModulePass, AsmFuncPass, AsmBlockPass {
 
-    private final PrintStream ps;
+    // the buffer goes out in chunks of about this size
+    private static final int FlushSize = 1 << 16;
+    private static final String NewLine = System.lineSeparator();
+
+    private final Appendable out;
+    // every line is built here, instructions append to it directly
+    private final StringBuilder buffer = new StringBuilder(FlushSize + 1024);
 
     public int funcCounter = 0;
     public int blockCounter = 0;
     public int instructionCounter = 0;
 
-    public AsmPrinter(PrintStream ps) {
-        this.ps = ps;
+    // a PrintStream, a Writer or a StringBuilder
+    public AsmPrinter(Appendable out) {
+        this.out = out;
+    }
+
+    private void println(String line) {
+        buffer.append(line).append(NewLine);
+        if (buffer.length() >= FlushSize) flush();
+    }
 
+    // write out what is buffered, runOnModule does at the end, callers of runOnFunc have to
+    public void flush() {
+        try {
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
     }
 
     @Override
     public void runOnModule(AsmModule module) {
 
-        ps.println("# compiled by @llvm2mlog\n");
+        println("# compiled by @llvm2mlog\n");
 
-        ps.println("# init");
+        println("# init");
 
-        RegInitFormat().forEach(ps::println);
+        RegInitFormat().forEach(this::println);
 
-        DataInitFormat(module.dataZone).forEach(ps::println);
+        DataInitFormat(module.dataZone).forEach(this::println);
 
-        BuildinFuncVarInitFormat(module.builtinFunctions).forEach(ps::println);
+        BuildinFuncVarInitFormat(module.builtinFunctions).forEach(this::println);
 
 
         module.globalVarSeg.forEach(globalVar -> {
-            globalVariableFormat(globalVar).forEach(ps::println);
-            ps.println();
+            globalVariableFormat(globalVar).forEach(this::println);
+            println("");
         });
 
 
         runOnFunc(module.mainFunction);
         // ps.println("jump " + module.mainFunction.entryBlock.identifier + " always");
-        ps.println("stop");
+        println("stop");
         module.functions.stream().filter(asmFunction -> !asmFunction.identifier.equals(MLOG.MainFunctionIdentifier)).forEach(this::runOnFunc);
 
-        ps.println("\n# BuiltinFunctions");
+        println("\n# BuiltinFunctions");
 
         module.builtinFunctions.forEach(function -> {
 //            var x = MLOG.BuildinFunctionConfig.get(function.identifier);
-            if (!function.inline) ps.println(function.getCode());
+            if (!function.inline) println(function.getCode());
         });
 
 
@@ -66,6 +89,7 @@ public class AsmPrinter implements AsmModulePass, AsmFuncPass, AsmBlockPass {
 
 
         printCompileRecord();
+        flush();
 
         Log.info("Asm Print Sucess");
     }
@@ -115,25 +139,34 @@ public class AsmPrinter implements AsmModulePass, AsmFuncPass, AsmBlockPass {
 
     @Override
     public void runOnFunc(AsmFunction function) {
-        ps.println("\t\t\t\t\t\t\t\t\t\t# -- Start function " + function);
+        if (function.reused != null) {
+            buffer.append(function.reused.code);
+            funcCounter++;
+            blockCounter += function.reused.blocks;
+            instructionCounter += function.reused.instructions;
+            return;
+        }
+        buffer.append("\t\t\t\t\t\t\t\t\t\t# -- Start function ").append(function).append(NewLine);
         function.blocks.forEach(this::runOnBlock);
         funcCounter++;
     }
 
     private void printCompileRecord() {
-        ps.println("#--End Compile");
-        ps.println("#----funcs:" + funcCounter);
-        ps.println("#----blocks:" + blockCounter);
-        ps.println("#----insts:" + instructionCounter);
+        println("#--End Compile");
+        println("#----funcs:" + funcCounter);
+        println("#----blocks:" + blockCounter);
+        println("#----insts:" + instructionCounter);
     }
 
     @Override
     public void runOnBlock(AsmBlock block) {
-        ps.printf("\t\t\t\t\t\t%s:\t#label%n", block.identifier);
-        block.instructions.forEach(inst -> {
-            ps.println(inst.format());
+        buffer.append("\t\t\t\t\t\t").append(block.identifier).append(":\t#label").append(NewLine);
+        for (AsmBaseInst inst : block.instructions) {
+            inst.formatTo(buffer);
+            buffer.append(NewLine);
             instructionCounter++;
-        });
+        }
         blockCounter++;
+        if (buffer.length() >= FlushSize) flush();
     }
 }
\ No newline at end of file
@@ -1,11 +1,11 @@
 package llvm2mlog.compiler.backend.rvasm.hierarchy;
 
-import java.util.ArrayList;
+import llvm2mlog.compiler.share.lang.MLOG;
+
 import java.util.LinkedHashMap;
 import java.util.Objects;
 
 public class ASMBuildinFunction extends AsmFunction {
-    public static final ArrayList<ASMBuildinFunction> BuildinFunctions = new ArrayList<>();
     public boolean inline = false;
     String inlineCode;
     String code;
@@ -16,19 +16,8 @@ public class ASMBuildinFunction extends AsmFunction {
     }
 
     public static ASMBuildinFunction get(String identifier) {
-
-        var asmBuildinFunction = BuildinFunctions.stream().filter(asmBuildinFunc -> Objects.equals(asmBuildinFunc.identifier, identifier)).findFirst().get();
-
-//        asmBuildinFunction.allocaStackUse=0;
-        asmBuildinFunction.arguments.clear();
-        asmBuildinFunction.blocks.clear();
-//        asmBuildinFunction.calleeArgStackUse=0;
-//        asmBuildinFunction.callerArgStackUse=0;
-        asmBuildinFunction.entryBlock = null;
-        asmBuildinFunction.exitBlock = null;
-//        asmBuildinFunction.spillStackUse=0;
-//        asmBuildinFunction.totalStackUse=0;
-        return asmBuildinFunction;
+        // a new instance per module, so modules compiled concurrently never share one
+        return MLOG.buildinFunctions().stream().filter(asmBuildinFunc -> Objects.equals(asmBuildinFunc.identifier, identifier)).findFirst().get();
     }
 
     public String getCode() {
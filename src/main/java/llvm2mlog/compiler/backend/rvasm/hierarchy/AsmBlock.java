@@ -2,22 +2,21 @@ package llvm2mlog.compiler.backend.rvasm.hierarchy;
 
 import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
 import llvm2mlog.compiler.backend.rvasm.operand.BaseOperand;
-import llvm2mlog.compiler.backend.rvasm.operand.Register;
 import llvm2mlog.compiler.share.error.codegen.InternalError;
+import llvm2mlog.compiler.share.misc.InstList;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.BitSet;
 
 public class AsmBlock extends BaseOperand {
 
-    public LinkedList<AsmBaseInst> instructions = new LinkedList<>();
+    public InstList<AsmBaseInst> instructions = new InstList<>();
 
     // control flow graph
     public ArrayList<AsmBlock> prevs = new ArrayList<>(), nexts = new ArrayList<>();
 
-    // liveIn and LiveOut in block, assigned in LivenessAnalyzer
-    public HashSet<Register> liveIn = new HashSet<>(), liveOut = new HashSet<>();
+    // liveIn and LiveOut in block, assigned in LivenessAnalyzer, bits of the RegisterNumbering of the function
+    public BitSet liveIn = new BitSet(), liveOut = new BitSet();
 
     // from IRBlock
     public int loopDepth = 0;
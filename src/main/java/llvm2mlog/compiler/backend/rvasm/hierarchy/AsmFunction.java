@@ -1,9 +1,12 @@
 package llvm2mlog.compiler.backend.rvasm.hierarchy;
 
 import llvm2mlog.compiler.backend.rvasm.operand.BaseOperand;
+import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
 import llvm2mlog.compiler.backend.rvasm.operand.Register;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class AsmFunction extends BaseOperand {
 
@@ -19,7 +22,32 @@ public class AsmFunction extends BaseOperand {
             calleeArgStackUse = 0,
             totalStackUse = 0;
 
+    // counter for VirtualReg of this function
+    public int virtualRegNum = 0;
+
+    // colors this function gives to registers shared by functions (GlobalReg)
+    // written back in the order of functions, so the last function wins
+    public final LinkedHashMap<Register, PhysicalReg> sharedColors = new LinkedHashMap<>();
+
+    // not null: the code comes from an earlier compilation, the function is not lowered, allocated or optimized
+    public Reused reused;
+
     public AsmFunction(String identifier) {
         super(identifier);
     }
+
+    public static class Reused {
+        public final String code, entryLabel;
+        public final int blocks, instructions;
+        // GlobalReg identifier -> color, the sharedColors it had
+        public final Map<String, String> sharedColors;
+
+        public Reused(String code, String entryLabel, int blocks, int instructions, Map<String, String> sharedColors) {
+            this.code = code;
+            this.entryLabel = entryLabel;
+            this.blocks = blocks;
+            this.instructions = instructions;
+            this.sharedColors = sharedColors;
+        }
+    }
 }
@@ -34,20 +34,14 @@ static final String symbol ="op";
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // add rd, rs1, rs2
         // addi rd, rs1, imm
-
-
-
+        out.append(symbol).append(' ').append(op).append(' ').append(rd).append(' ').append(rs1);
         if (this.imm != null) // I-Type
-            return String.format("%s %s %s %s %s", symbol, op
-//                    + RV32I.ITypeSuffix
-                    , rd, rs1, imm);
+            out.append(' ').append(imm);
         else if (this.rs2 != null) // R-Type
-            return String.format("%s %s %s %s %s", symbol, op, rd, rs1, rs2);
-        else
-            // unary, maybe pseudo inst
-            return String.format("%s %s %s %s", symbol, op, rd, rs1);
+            out.append(' ').append(rs2);
+        // else unary, maybe pseudo inst
     }
 }
@@ -3,13 +3,19 @@ package llvm2mlog.compiler.backend.rvasm.inst;
 import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
 import llvm2mlog.compiler.backend.rvasm.operand.Immediate;
 import llvm2mlog.compiler.backend.rvasm.operand.Register;
+import llvm2mlog.compiler.share.misc.InstList;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
-public abstract class AsmBaseInst {
+public abstract class AsmBaseInst implements InstList.Node<AsmBaseInst> {
     public Register rd, rs1, rs2;
     public Immediate imm;
 
+    // links in the instructions of the block
+    private InstList<AsmBaseInst> list;
+    private AsmBaseInst prev, next;
+
     // the parentBlock will be "null" if this instruction will be inserted to a specific position
     public AsmBaseInst(Register rd, Register rs1, Register rs2, Immediate imm, AsmBlock parentBlock) {
         this.rd = rd;
@@ -19,6 +25,30 @@ public abstract class AsmBaseInst {
         if (parentBlock != null) parentBlock.addInst(this);
     }
 
+    @Override
+    public InstList<AsmBaseInst> list() {
+        return list;
+    }
+
+    // the instruction before in the block, null at the head
+    @Override
+    public AsmBaseInst prev() {
+        return prev;
+    }
+
+    // the instruction after in the block, null at the tail
+    @Override
+    public AsmBaseInst next() {
+        return next;
+    }
+
+    @Override
+    public void link(InstList<AsmBaseInst> list, AsmBaseInst prev, AsmBaseInst next) {
+        this.list = list;
+        this.prev = prev;
+        this.next = next;
+    }
+
     public void replaceUse(Register oldUse, Register newUse) {
         if (rs1 == oldUse) rs1 = newUse;
         if (rs2 == oldUse) rs2 = newUse;
@@ -31,14 +61,14 @@ public abstract class AsmBaseInst {
     }
 
     public HashSet<Register> uses() {
-        HashSet<Register> ret = new HashSet<>();
+        HashSet<Register> ret = new LinkedHashSet<>();
         if (rs1 != null) ret.add(rs1);
         if (rs2 != null) ret.add(rs2);
         return ret;
     }
 
     public HashSet<Register> defs() {
-        HashSet<Register> ret = new HashSet<>();
+        HashSet<Register> ret = new LinkedHashSet<>();
         if (rd != null) ret.add(rd);
         return ret;
     }
@@ -46,6 +76,13 @@ public abstract class AsmBaseInst {
     // copy method will create a copy of the original instruction
     public abstract AsmBaseInst copy();
 
-    public abstract String format();
+    // appends the mlog of the instruction, the printer reuses one buffer for all of them
+    public abstract void formatTo(StringBuilder out);
+
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        formatTo(out);
+        return out.toString();
+    }
 
 }
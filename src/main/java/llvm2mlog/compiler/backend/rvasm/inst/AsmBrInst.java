@@ -21,8 +21,8 @@ public class AsmBrInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // beq rs1, rs2, dest
-        return String.format("jump %s %s %s %s", dest, op, rs1, rs2);
+        out.append("jump ").append(dest).append(' ').append(op).append(' ').append(rs1).append(' ').append(rs2);
     }
 }
@@ -8,6 +8,7 @@ import llvm2mlog.compiler.backend.rvasm.operand.Register;
 import llvm2mlog.compiler.share.lang.MLOG;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class AsmCallInst extends AsmBaseInst {
     public final AsmFunction callFunc;
@@ -22,7 +23,7 @@ public class AsmCallInst extends AsmBaseInst {
 
     @Override
     public HashSet<Register> uses() {
-        HashSet<Register> ret = new HashSet<>();
+        HashSet<Register> ret = new LinkedHashSet<>();
         for (int i = 0; i < Integer.min(MLOG.MaxArgRegNum, callFunc.arguments.size()); i++)
             ret.add(PhysicalReg.a(i));
         return ret;
@@ -30,7 +31,7 @@ public class AsmCallInst extends AsmBaseInst {
 
     @Override
     public HashSet<Register> defs() {
-        return new HashSet<>(PhysicalReg.callerSaved);
+        return new LinkedHashSet<>(PhysicalReg.callerSaved);
     }
 
     @Override
@@ -39,14 +40,11 @@ public class AsmCallInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         if (callFunc instanceof ASMBuildinFunction && ((ASMBuildinFunction) callFunc).inline) {
-            return ((ASMBuildinFunction) callFunc).getInlineCode();
+            out.append(((ASMBuildinFunction) callFunc).getInlineCode());
         } else {
-            return
-                    String.format("op add ra @counter 1\njump %s always", callFunc.entryBlock.identifier)
-                    ;
+            out.append("op add ra @counter 1\njump ").append(callFunc.entryBlock.identifier).append(" always");
         }
-
     }
 }
@@ -16,8 +16,8 @@ public class AsmJmpInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // j offset
-        return String.format("jump %s always", dest);
+        out.append("jump ").append(dest).append(" always");
     }
 }
@@ -18,7 +18,7 @@ private final String label;
     }
 
     @Override
-    public String format() {
-        return null;
+    public void formatTo(StringBuilder out) {
+        out.append((String) null);
     }
 }
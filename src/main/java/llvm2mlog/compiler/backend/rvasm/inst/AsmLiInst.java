@@ -15,7 +15,7 @@ public class AsmLiInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
-        return String.format("set %s %s", rd, imm);
+    public void formatTo(StringBuilder out) {
+        out.append("set ").append(rd).append(' ').append(imm);
     }//set a number
 }
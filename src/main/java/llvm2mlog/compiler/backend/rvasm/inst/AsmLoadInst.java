@@ -21,32 +21,15 @@ public class AsmLoadInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // lw rd, offset(rs1)
-        //yes it is
         if (imm.value == 0) {
-
-            return String.format("read %s %s %s"
-
-                    , rd, MLOG.DefaultMemmory, rs1);
-        }
-
-        if (Objects.equals(rs1.toString(), "zero")) {
-
-            return String.format("read %s %s %s",
-
-
-                    //+ AsmTranslator.translateByteWidth(byteWidth)
-                    rd, MLOG.DefaultMemmory, imm);
+            out.append("read ").append(rd).append(' ').append(MLOG.DefaultMemmory).append(' ').append(rs1);
+        } else if (Objects.equals(rs1.toString(), "zero")) {
+            out.append("read ").append(rd).append(' ').append(MLOG.DefaultMemmory).append(' ').append(imm);
         } else {
-            return String.format("op add b0 %s %s\n", imm, rs1) +
-
-                    String.format("read %s %s b0",
-
-
-                            //+ AsmTranslator.translateByteWidth(byteWidth)
-                            rd, MLOG.DefaultMemmory);
+            out.append("op add b0 ").append(imm).append(' ').append(rs1).append('\n')
+                    .append("read ").append(rd).append(' ').append(MLOG.DefaultMemmory).append(" b0");
         }
-
     }
 }
@@ -14,8 +14,8 @@ public class AsmMoveInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // mv rd, rs1
-        return String.format("set %s %s", rd, rs1);
+        out.append("set ").append(rd).append(' ').append(rs1);
     }
 }
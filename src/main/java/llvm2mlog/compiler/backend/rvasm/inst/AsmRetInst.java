@@ -5,6 +5,7 @@ import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
 import llvm2mlog.compiler.backend.rvasm.operand.Register;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class AsmRetInst extends AsmBaseInst {
     public AsmRetInst(AsmBlock parentBlock) {
@@ -14,7 +15,7 @@ public class AsmRetInst extends AsmBaseInst {
 
     @Override
     public HashSet<Register> uses() {
-        HashSet<Register> ret = new HashSet<Register>();
+        HashSet<Register> ret = new LinkedHashSet<>();
         ret.add(PhysicalReg.reg("ra"));
         return ret;
     }
@@ -25,7 +26,7 @@ public class AsmRetInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
-        return "set @counter ra";
+    public void formatTo(StringBuilder out) {
+        out.append("set @counter ra");
     }
 }
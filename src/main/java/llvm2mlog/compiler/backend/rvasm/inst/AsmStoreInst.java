@@ -20,30 +20,15 @@ public class AsmStoreInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // sw rs2, offset(rs1)
-
         if (imm.value == 0) {
-
-            return String.format("write %s %s %s"
-
-                    , rs2, MLOG.DefaultMemmory, rs1);
-        }
-        if (Objects.equals(rs1.toString(), "zero")) {
-
-            return String.format("write %s %s %s"
-
-
-                    //+ AsmTranslator.translateByteWidth(byteWidth)
-                    , rd, MLOG.DefaultMemmory, imm);
+            out.append("write ").append(rs2).append(' ').append(MLOG.DefaultMemmory).append(' ').append(rs1);
+        } else if (Objects.equals(rs1.toString(), "zero")) {
+            out.append("write ").append(rd).append(' ').append(MLOG.DefaultMemmory).append(' ').append(imm);
         } else {
-            return String.format("op add b0 %s %s\n", imm, rs1) +
-                    String.format("write %s %s b0"
-
-                            //  + AsmTranslator.translateByteWidth(byteWidth)
-                            , rs2, MLOG.DefaultMemmory);
+            out.append("op add b0 ").append(imm).append(' ').append(rs1).append('\n')
+                    .append("write ").append(rs2).append(' ').append(MLOG.DefaultMemmory).append(" b0");
         }
-
-
     }
 }
@@ -7,6 +7,7 @@ import llvm2mlog.compiler.backend.rvasm.operand.Register;
 import llvm2mlog.compiler.share.lang.MLOG;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class AsmTailInst extends AsmBaseInst {
 //todo
@@ -19,7 +20,7 @@ public class AsmTailInst extends AsmBaseInst {
 //todo wanna give up this but...
     @Override
     public HashSet<Register> uses() {
-        HashSet<Register> ret = new HashSet<>();
+        HashSet<Register> ret = new LinkedHashSet<>();
         for (int i = 0; i < Integer.min(MLOG.MaxArgRegNum, callFunc.arguments.size()); i++)
             ret.add(PhysicalReg.a(i));
         return ret;
@@ -27,7 +28,7 @@ public class AsmTailInst extends AsmBaseInst {
 
     @Override
     public HashSet<Register> defs() {
-        return new HashSet<>(PhysicalReg.callerSaved);
+        return new LinkedHashSet<>(PhysicalReg.callerSaved);
     }
 
     @Override
@@ -36,9 +37,9 @@ public class AsmTailInst extends AsmBaseInst {
     }
 
     @Override
-    public String format() {
+    public void formatTo(StringBuilder out) {
         // tail symbol
-        return String.format("%s %s %s", "jump always", callFunc.identifier, "_LabelForTail");
+        out.append("jump always ").append(callFunc.identifier).append(" _LabelForTail");
     }
 
 }
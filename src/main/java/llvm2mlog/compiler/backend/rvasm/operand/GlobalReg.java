@@ -3,8 +3,9 @@ package llvm2mlog.compiler.backend.rvasm.operand;
 public class GlobalReg extends VirtualReg {
 //    public String stringConst;
 
-    public GlobalReg(String identifier) {
-        super();
+    // num: index in the global segment
+    public GlobalReg(String identifier, int num) {
+        super(num, 4);
         this.identifier = identifier;
     }
 
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 public class PhysicalReg extends Register {
+    private static int count = 0;
+
     /*
      * RV32 Physical Reg Arch
      */
@@ -34,9 +36,13 @@ public class PhysicalReg extends Register {
         }
     };
 
+    // numbered in the order of MLOG.Reg, the precolored nodes of every interference graph
+    public final int index;
 
     public PhysicalReg(String identifier) {
         super(identifier);
+        this.color = this;
+        this.index = count++;
     }
 
     public static PhysicalReg reg(String regName) {
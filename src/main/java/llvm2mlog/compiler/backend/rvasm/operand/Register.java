@@ -1,15 +1,11 @@
 package llvm2mlog.compiler.backend.rvasm.operand;
 
-import llvm2mlog.compiler.backend.regalloc.InterferenceGraph;
-
 public abstract class Register extends BaseOperand {
 
     // assigned in RegisterAllocator
     public PhysicalReg color;
     // location in stack, only spill registers have (graphColor spill & function call spill)
     public RawStackOffset stackOffset;
-    // info in InterferenceGraph, used in RegisterAllocator
-    public InterferenceGraph.Node node = new InterferenceGraph.Node();
 
     public Register(String identifier) {
         super(identifier);
@@ -1,27 +1,24 @@
 package llvm2mlog.compiler.backend.rvasm.operand;
 
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
 import llvm2mlog.compiler.share.lang.MLOG;
 
 public class VirtualReg extends Register {
 
-    public static int virtualRegNum = 0;
     public final int num, size;
 
-    public VirtualReg() {
-        super(MLOG.VirtualRegPrefix + virtualRegNum);
-        this.num = virtualRegNum;
-        this.size = 4;
-        virtualRegNum++;
+    // numbered inside its function, so functions can be lowered in parallel
+    public VirtualReg(AsmFunction function) {
+        this(function, 4);
     }
 
-    public VirtualReg(int size) {
-        super(MLOG.VirtualRegPrefix + virtualRegNum);
-        this.num = virtualRegNum;
-        this.size = size;
-        virtualRegNum++;
+    public VirtualReg(AsmFunction function, int size) {
+        this(function.virtualRegNum++, size);
     }
 
-    public static void regNumReset() {
-        virtualRegNum = 0;
+    protected VirtualReg(int num, int size) {
+        super(MLOG.VirtualRegPrefix + num);
+        this.num = num;
+        this.size = size;
     }
 }
@@ -0,0 +1,227 @@
+package llvm2mlog.compiler.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * The mlog of whole modules, stored under a directory and keyed by the hash of the module, the compiler version
+ * and the flags, so that a rebuild of an unchanged module neither parses nor compiles it.
+ * <p>
+ * Several processes may use one directory at the same time:
+ * an entry is written to a temporary file and renamed into place, so a reader sees a whole entry or none,
+ * and reading an entry another process is evicting still gets all of it.
+ * Eviction is least recently used first (a hit touches the modification time) down to the size bound,
+ * one process at a time under a lock file, the others skip it.
+ * The directory is only walked when the size this DiskCache knows of, the last walk and its own writes since,
+ * goes above the bound, so a store costs no walk until then; the writes of other processes are seen at the next walk.
+ * A walk that evicts goes down to nine tenths of the bound, the next one comes after a tenth of it is written again.
+ */
+public class DiskCache {
+
+    public static final long DefaultMaxBytes = 256L << 20;
+    public static final String Suffix = ".mlog";
+    private static final String TempSuffix = ".tmp", LockFileName = "lock";
+    // a temporary file this old was left by a process that died while writing it
+    private static final long StaleTempMillis = 60 * 60 * 1000;
+
+    public final Path directory;
+    public final long maxBytes;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    // a FileChannel lock belongs to the process, threads of it take turns here first
+    private final Object evicting = new Object();
+    // bytes of the entries at the last walk plus the ones written since, -1: not walked yet
+    private final AtomicLong knownBytes = new AtomicLong(-1);
+
+    // the compiler that produced an entry, rebuilding the compiler must not reuse its entries,
+    // hashed on the first key so that a compile without a disk cache does not read the classes
+    private static class Version {
+        static final String Compiler = compilerVersion();
+    }
+
+    public DiskCache(Path directory) {
+        this(directory, DefaultMaxBytes);
+    }
+
+    public DiskCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public static String key(byte[] module, String flags) {
+        return key(module, flags, Version.Compiler);
+    }
+
+    public static String key(byte[] module, String flags, String compilerVersion) {
+        MessageDigest digest = sha256();
+        digest.update((compilerVersion + '\n' + flags + '\n').getBytes(StandardCharsets.UTF_8));
+        digest.update(module);
+        return hex(digest.digest());
+    }
+
+    // two hex digits of fan-out keep directories small
+    private Path pathOf(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + Suffix);
+    }
+
+    /**
+     * the entry of key, read whole so that a failing read leaves nothing half printed
+     * null: no such entry
+     */
+    public String get(String key) throws IOException {
+        Path path = pathOf(key);
+        String mlog;
+        try {
+            mlog = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // evicted meanwhile
+        }
+        return mlog;
+    }
+
+    public void put(String key, String mlog) throws IOException {
+        Path path = pathOf(key);
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), key, TempSuffix);
+        byte[] bytes = mlog.getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.write(temp, bytes);
+            // an entry written by another process meanwhile has the same content
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        // a replaced entry is counted twice, the walk it brings forward corrects it
+        if (knownBytes.get() < 0 || knownBytes.addAndGet(bytes.length) > maxBytes) evict();
+    }
+
+    // remove least recently used entries until the size bound holds, with a tenth of it to spare
+    public void evict() throws IOException {
+        synchronized (evicting) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(LockFileName),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+                if (lock == null) return;
+
+                List<Path> entries = new ArrayList<>();
+                List<BasicFileAttributes> attributes = new ArrayList<>();
+                long total = 0, now = System.currentTimeMillis();
+                try (Stream<Path> files = Files.walk(directory, 2)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        BasicFileAttributes attribute;
+                        try {
+                            attribute = Files.readAttributes(file, BasicFileAttributes.class);
+                        } catch (NoSuchFileException e) {
+                            continue;
+                        }
+                        if (!attribute.isRegularFile()) continue;
+                        if (name.endsWith(TempSuffix)) {
+                            if (now - attribute.lastModifiedTime().toMillis() > StaleTempMillis)
+                                Files.deleteIfExists(file);
+                        } else if (name.endsWith(Suffix)) {
+                            entries.add(file);
+                            attributes.add(attribute);
+                            total += attribute.size();
+                        }
+                    }
+                }
+                if (total <= maxBytes) {
+                    knownBytes.set(total);
+                    return;
+                }
+
+                List<Integer> order = new ArrayList<>();
+                for (int i = 0; i < entries.size(); i++) order.add(i);
+                order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+                for (int i : order) {
+                    if (total <= maxBytes - maxBytes / 10) break;
+                    Files.deleteIfExists(entries.get(i));
+                    total -= attributes.get(i).size();
+                }
+                knownBytes.set(total);
+            } catch (OverlappingFileLockException ignored) {
+                // another DiskCache of this process on the same directory is evicting
+            }
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("disk cache %s: %d hits, %d misses", directory, hits(), misses());
+    }
+
+    // the implementation version and the hash of all the classes, rebuilding any of them must miss
+    private static String compilerVersion() {
+        String version = DiskCache.class.getPackage().getImplementationVersion();
+        StringBuilder ret = new StringBuilder(version == null ? "1.0-SNAPSHOT" : version);
+        try {
+            CodeSource source = DiskCache.class.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null)
+                ret.append(' ').append(versionOf(Paths.get(source.getLocation().toURI())));
+        } catch (IOException | UncheckedIOException | URISyntaxException | SecurityException | IllegalArgumentException ignored) {
+        }
+        return ret.toString();
+    }
+
+    // the hash of a jar, or of every file under a class directory with its relative path
+    public static String versionOf(Path location) throws IOException {
+        MessageDigest digest = sha256();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> files = Files.walk(location)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                    digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(Files.readAllBytes(file));
+                }
+            }
+        } else digest.update(Files.readAllBytes(location));
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+}
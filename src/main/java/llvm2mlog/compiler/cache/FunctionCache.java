@@ -0,0 +1,233 @@
+package llvm2mlog.compiler.cache;
+
+import llvm2mlog.compiler.backend.rvasm.AsmPrinter;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
+import llvm2mlog.compiler.backend.rvasm.operand.GlobalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.Register;
+import llvm2mlog.compiler.middleend.analyzer.CallGraphAnalyzer;
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import llvm2mlog.compiler.middleend.llvmir.User;
+import llvm2mlog.compiler.middleend.llvmir.Value;
+import llvm2mlog.compiler.middleend.llvmir.constant.GlobalVariable;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
+import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
+import llvm2mlog.compiler.middleend.llvmir.inst.IRLoadInst;
+import llvm2mlog.compiler.middleend.llvmir.inst.IRStoreInst;
+import llvm2mlog.compiler.share.lang.LLVM;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled code of functions, keyed by the hash of everything the code depends on:
+ * the canonical IR of the function, the pass configuration, the layout of the module (types, globals, declarations),
+ * its call graph node and its callees' (Glo2Loc reads glbUses, glbDefs and cyclic), and for every global it
+ * touches, whether that global is stored outside the init function and whether some function localizes it
+ * (Glo2Loc replaces a constant global in all functions).
+ * <p>
+ * After the middle end the only thing shared by functions is the color of a GlobalReg (the last function wins),
+ * so an entry keeps the colors it gave, which are given again when it is reused, and the colors its code was
+ * printed with, which must still hold after allocation.
+ * <p>
+ * One cache can serve many sessions at the same time.
+ */
+public class FunctionCache {
+
+    public static final int DefaultCapacity = 4096;
+
+    public static class Entry {
+        public final String code, entryLabel;
+        public final int blocks, instructions;
+        // GlobalReg identifier -> color name
+        public final Map<String, String> sharedColors, printedColors;
+
+        Entry(String code, String entryLabel, int blocks, int instructions, Map<String, String> sharedColors, Map<String, String> printedColors) {
+            this.code = code;
+            this.entryLabel = entryLabel;
+            this.blocks = blocks;
+            this.instructions = instructions;
+            this.sharedColors = sharedColors;
+            this.printedColors = printedColors;
+        }
+
+        public AsmFunction.Reused reused() {
+            return new AsmFunction.Reused(code, entryLabel, blocks, instructions, sharedColors);
+        }
+    }
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    // guarded by itself, least recently used first
+    private final LinkedHashMap<String, Entry> entries;
+
+    public FunctionCache() {
+        this(DefaultCapacity);
+    }
+
+    public FunctionCache(int capacity) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FunctionCache.Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public Entry get(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    public void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // functions reused and compiled, counted once per compiled module
+    public void count(int reused, int compiled) {
+        hits.add(reused);
+        misses.add(compiled);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long hit = hits(), total = hit + misses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("function cache: %d reused, %d compiled, hit rate %.1f%%", hits(), misses(), hitRate() * 100);
+    }
+
+    /**
+     * keys of all functions, the builder must have kept the canonical text
+     * run before the middle end, it analyzes the call graph itself
+     */
+    public static Map<IRFunction, String> keys(IRModule module, IRBuilder builder, String passConfig) {
+        new CallGraphAnalyzer().runOnModule(module);
+
+        Set<Value> storedOutsideInit = new HashSet<>(), localized = new HashSet<>();
+        for (GlobalVariable global : module.globalVarSeg)
+            for (User use : global.users())
+                if (use instanceof IRStoreInst && ((IRStoreInst) use).parentBlock != null &&
+                        !Objects.equals(((IRStoreInst) use).parentBlock.parentFunction.name, LLVM.InitFuncName))
+                    storedOutsideInit.add(global);
+        for (IRFunction function : module.functions) {
+            if (function.node.cyclic || function.name.equals(LLVM.InitFuncName)) continue;
+            for (IRBaseInst inst : instructions(function)) {
+                if (inst instanceof IRLoadInst) localized.add(((IRLoadInst) inst).loadPtr());
+                if (inst instanceof IRStoreInst) localized.add(((IRStoreInst) inst).storePtr());
+            }
+        }
+
+        String moduleMaterial = passConfig + "\n" + builder.layoutText;
+        Map<IRFunction, String> keys = new LinkedHashMap<>();
+        for (IRFunction function : module.functions) {
+            StringBuilder material = new StringBuilder(moduleMaterial);
+            material.append(builder.functionText.get(function)).append('\n');
+            summary(function, material);
+            function.node.callee.stream().sorted(Comparator.comparing(callee -> callee.name))
+                    .forEach(callee -> summary(callee, material));
+
+            SortedSet<String> globals = new TreeSet<>();
+            for (IRBaseInst inst : instructions(function))
+                for (Value operand : inst.operands())
+                    if (operand instanceof GlobalVariable)
+                        globals.add(operand.name + " " + storedOutsideInit.contains(operand) + " " + localized.contains(operand));
+            material.append(globals).append('\n');
+
+            keys.put(function, sha256(material.toString()));
+        }
+        return keys;
+    }
+
+    private static List<IRBaseInst> instructions(IRFunction function) {
+        List<IRBaseInst> instructions = new ArrayList<>();
+        for (IRBlock block : function.blocks) {
+            instructions.addAll(block.phiInsts);
+            instructions.addAll(block.instructions);
+        }
+        return instructions;
+    }
+
+    private static void summary(IRFunction function, StringBuilder material) {
+        material.append(function.name).append(" cyclic=").append(function.node.cyclic)
+                .append(" uses=").append(names(function.node.glbUses))
+                .append(" defs=").append(names(function.node.glbDefs)).append('\n');
+    }
+
+    private static String names(Set<Value> values) {
+        return values.stream().map(value -> value.name).sorted().collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String sha256(String material) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // GlobalRegs in the code of an allocated function, their colors decide its code from then on
+    public static Set<GlobalReg> globalRegsIn(AsmFunction function) {
+        Set<GlobalReg> globalRegs = new HashSet<>();
+        for (AsmBlock block : function.blocks)
+            for (AsmBaseInst inst : block.instructions)
+                for (Register reg : new Register[]{inst.rd, inst.rs1, inst.rs2})
+                    if (reg instanceof GlobalReg) globalRegs.add((GlobalReg) reg);
+        return globalRegs;
+    }
+
+    // the code of a function done with, globalRegs from globalRegsIn right after allocation
+    public static Entry entryOf(AsmFunction function, Set<GlobalReg> globalRegs) {
+        var code = new StringBuilder();
+        var printer = new AsmPrinter(code);
+        printer.runOnFunc(function);
+        printer.flush();
+
+        Map<String, String> sharedColors = new LinkedHashMap<>(), printedColors = new TreeMap<>();
+        function.sharedColors.forEach((reg, color) -> sharedColors.put(reg.identifier, colorName(color)));
+        globalRegs.forEach(reg -> printedColors.put(reg.identifier, colorName(reg.color)));
+        return new Entry(code.toString(), function.entryBlock.identifier, printer.blockCounter, printer.instructionCounter,
+                sharedColors, printedColors);
+    }
+
+    // whether the colors the code of an entry was printed with still hold after allocating this module
+    public static boolean stillPrintable(Entry entry, List<GlobalReg> globalRegs) {
+        for (GlobalReg globalReg : globalRegs)
+            if (entry.printedColors.containsKey(globalReg.identifier) &&
+                    !Objects.equals(entry.printedColors.get(globalReg.identifier), colorName(globalReg.color)))
+                return false;
+        return true;
+    }
+
+    private static String colorName(Register color) {
+        return color == null ? null : color.identifier;
+    }
+}
@@ -1,6 +1,7 @@
 package llvm2mlog.compiler.middleend.analyzer;
 
 import llvm2mlog.compiler.middleend.llvmir.Value;
+import llvm2mlog.compiler.middleend.llvmir.constant.GlobalVariable;
 import llvm2mlog.compiler.middleend.llvmir.constant.NumConst;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
@@ -9,10 +10,11 @@ import llvm2mlog.compiler.middleend.llvmir.inst.IRBitCastInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRCallInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRGetElementPtrInst;
 import llvm2mlog.compiler.middleend.llvmir.type.PointerType;
-import llvm2mlog.compiler.share.misc.UnionSet;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
 import llvm2mlog.debug.Log;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Objects;
 
@@ -44,39 +46,64 @@ import java.util.Objects;
 
 public class AliasAnalyzer implements IRFuncPass {
 
-    private final HashSet<Value> certain = new HashSet<>();
-    private final UnionSet<Value> bitcastUnion = new UnionSet<>();
+    private final HashSet<Value> certainGlobals = new HashSet<>();
+    // indexed by the numbers of the function: the malloc calls, and what a pointer bitcast casts from
+    private final BitSet certain = new BitSet();
+    private Value[] bitcastFrom = new Value[0];
+    private IRFunction function;
+    private int numbering;
 
     @Override
     public void runOnFunc(IRFunction function) {
         Log.info("alias analyzer", function.identifier());
 
+        this.function = function;
+        numbering = function.numbering();
+        certainGlobals.clear();
         certain.clear();
-        bitcastUnion.clear();
-        certain.addAll(function.parentModule.globalVarSeg);
+        bitcastFrom = new Value[function.numberedCount()];
+        certainGlobals.addAll(function.parentModule.globalVarSeg);
         //certain.addAll(function.parentModule.stringConstSeg);
 
         for (IRBlock block : function.blocks)
             for (IRBaseInst inst : block.instructions) {
                 if (inst instanceof IRCallInst && Objects.equals(((IRCallInst) inst).callFunc(), function.parentModule.getBuiltinFunction("malloc")))//todo maybe it is called this
-                    certain.add(inst);
+                    certain.set(function.number(inst));
                 if (inst instanceof IRBitCastInst && ((IRBitCastInst) inst).fromValue().type instanceof PointerType) {
                     // Log.info("bslink", inst.format());
-                    bitcastUnion.setAlias(inst, ((IRBitCastInst) inst).fromValue());
+                    int index = function.number(inst);
+                    if (index >= bitcastFrom.length) bitcastFrom = Arrays.copyOf(bitcastFrom, Math.max(index + 1, bitcastFrom.length * 2));
+                    bitcastFrom[index] = ((IRBitCastInst) inst).fromValue();
                     // Log.info("tryget", bitcastUnion.getAlias(inst).identifier());
                 }
             }
     }
 
+    // the value a chain of pointer bitcasts starts from
+    private Value getAlias(Value addr) {
+        for (int index = function.index(addr); index >= 0 && index < bitcastFrom.length && bitcastFrom[index] != null; index = function.index(addr))
+            addr = bitcastFrom[index];
+        return addr;
+    }
+
+    private boolean isCertain(Value addr) {
+        if (addr instanceof GlobalVariable) return certainGlobals.contains(addr);
+        int index = function.index(addr);
+        return index >= 0 && certain.get(index);
+    }
+
     public boolean mayAlias(Value addr1, Value addr2) {
         // Log.info("alias", addr1.identifier(), addr2.identifier());
 
-        addr1 = bitcastUnion.getAlias(addr1);
-        addr2 = bitcastUnion.getAlias(addr2);
+        // the numbers were taken again since, so are the results
+        if (function.numbering() != numbering) runOnFunc(function);
+
+        addr1 = getAlias(addr1);
+        addr2 = getAlias(addr2);
 
         // Log.info("bitcast", addr1.identifier(), addr2.identifier());
 
-        if (certain.contains(addr1) || certain.contains(addr2)) {
+        if (isCertain(addr1) || isCertain(addr2)) {
             return addr1.equals(addr2);
         }
 
@@ -34,7 +34,7 @@ public class CallGraphAnalyzer implements IRModulePass {
                         function.node.callee.add(callee);
                     }
                     // glb use: load or store
-                    inst.operands.forEach(operand -> {
+                    inst.operands().forEach(operand -> {
                         if (operand instanceof GlobalVariable) function.node.glbUses.add(operand);
                     });
                     // glb def: store
@@ -5,6 +5,7 @@ import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -13,7 +14,9 @@ public class DomTreeBuilder implements IRFuncPass {
 
     private final boolean postDomTree;
     private final ArrayList<IRBlock> blocksInRPO = new ArrayList<>();
-    private final HashSet<IRBlock> visited = new HashSet<>();
+    // numbers of the visited blocks
+    private final BitSet visited = new BitSet();
+    private IRFunction function;
     private IRBlock startBlock;
 
     public DomTreeBuilder(boolean postDomTree) {
@@ -22,6 +25,7 @@ public class DomTreeBuilder implements IRFuncPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
+        this.function = function;
         init(function);
         startBlock = postDomTree ? function.exitBlock : function.entryBlock;
 
@@ -36,16 +40,19 @@ public class DomTreeBuilder implements IRFuncPass {
     }
 
     private void init(IRFunction function) {
-        function.blocks.forEach(block -> block.dtNode.init());
+        function.blocks.forEach(block -> {
+            if (block.dtNode == null) block.dtNode = new Node(block);
+            block.dtNode.init();
+        });
     }
 
     private void sortByRPO(IRBlock block) {
-        visited.add(block);
+        visited.set(function.number(block));
 
         var trueNext = postDomTree ? block.prevs : block.nexts;
 
         for (IRBlock suc : trueNext)
-            if (!visited.contains(suc)) sortByRPO(suc);
+            if (!visited.get(function.number(suc))) sortByRPO(suc);
         blocksInRPO.add(block);
     }
 
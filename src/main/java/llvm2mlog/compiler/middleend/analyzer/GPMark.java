@@ -22,7 +22,7 @@ public class GPMark implements IRModulePass {
         module.functions.forEach(func -> new LoopAnalyzer().runOnFunc(func));
 
         for (GlobalValue glo : module.globalVarSeg) {
-            for (User user : glo.users) {
+            for (User user : glo.users()) {
                 assert user instanceof IRBaseInst;
                 useCount.put(glo, (int) Math.pow(10, ((IRBaseInst) user).parentBlock.loopDepth));
             }
@@ -4,7 +4,9 @@ import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.Loop;
 import llvm2mlog.compiler.share.misc.Pair;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
 import java.util.*;
@@ -18,8 +20,6 @@ public class LoopAnalyzer implements IRFuncPass {
     private final HashSet<IRBlock> visited = new HashSet<>();
 
     private void init(IRFunction function) {
-        new CFGBuilder().runOnFunc(function);
-        new DomTreeBuilder(false).runOnFunc(function);
         function.topLevelLoops.clear();
         function.blocks.forEach(block -> {
             block.loopDepth = 0;
@@ -94,6 +94,21 @@ public class LoopAnalyzer implements IRFuncPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree);
+    }
+
+    @Override
+    public Set<Analysis> preserves() {
+        return Analysis.All;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("loop analyse", function.identifier());
 
         init(function);
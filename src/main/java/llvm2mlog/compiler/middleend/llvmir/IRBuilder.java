@@ -8,30 +8,60 @@ import llvm2mlog.compiler.middleend.llvmir.inst.*;
 import llvm2mlog.compiler.middleend.llvmir.type.*;
 import llvm2mlog.compiler.middleend.rewrite.Rewriter;
 import llvm2mlog.compiler.share.error.InternalError;
+import llvm2mlog.compiler.share.lang.LLVM;
+import llvm2mlog.compiler.share.lang.MLOG;
 import llvm2mlog.debug.Log;
 import llvm2mlog.parser.LLVMIR.LLVMIRBaseVisitor;
 import llvm2mlog.parser.LLVMIR.LLVMIRLexer;
 import llvm2mlog.parser.LLVMIR.LLVMIRParser;
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
-    static String destName;
-    static IRBlock CurrentBlock;
-    static int counter = 0;
+    // building state of this module, nothing is shared between builders
+    String destName;
+    IRBlock CurrentBlock;
+    int counter = 0;
+    // forward references waiting for their definition
+    ArrayList<RawOnlyName> rawOnlyNames = new ArrayList<>();
+
+    // canonical text of the definitions, only kept if asked, to recognize unchanged code
+    public boolean keepCanonicalText = false;
+    public final LinkedHashMap<IRFunction, String> functionText = new LinkedHashMap<>();
+    // types, globals and declarations, in order
+    public final StringBuilder layoutText = new StringBuilder();
     private final LinkedHashMap<IRBlock, LLVMIRParser.BasicBlockContext> blockCtx = new LinkedHashMap<>();
     public LinkedHashMap<String, Value> valueMap = new LinkedHashMap<>();
     public IRModule irModule = new IRModule();
     public LinkedHashMap<Value, RowMark> rowMarker = new LinkedHashMap<>();
+    // release the parse tree, the block contexts and the names of a function once its instructions are built,
+    // rows keep only where the instruction is, the code is read again from the module text if asked for
+    public boolean lowMemory = false;
+    // the module text the rows of a low memory build point to
+    RowMark.Source rowSource;
     LinkedHashMap<String, Value> globalValueMap = new LinkedHashMap<>();
     ArrayList<IRFunction> SolveFunctions = new ArrayList<IRFunction>();
     Value TypePasser = new Value("TypePasser", null);
     IRFunction CurrentFunction;
+    // null: parse on this thread
+    ForkJoinPool pool;
+    // only build bodies of functions main, the init function or a global can reach, drop the others
+    public boolean reachableOnly = false;
+    public final ArrayList<String> skippedFunctions = new ArrayList<>();
+    // chunks parsed again in LL mode
+    public int parseFallbacks = 0;
+    // functions named by the initializers of globals, roots of reachableOnly
+    final LinkedHashSet<String> globalRefs = new LinkedHashSet<>();
 
     public IRBuilder(CharStream charStream) throws IOException {
 
@@ -42,18 +72,13 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
     }
 
     public void run(CharStream charStream) {
-        LLVMIRLexer irLexer = new LLVMIRLexer(charStream);
-        irLexer.removeErrorListeners();
-        // irLexer.addErrorListener(new ParseErrorListener());
-
-        // parser
-        LLVMIRParser irParser = new LLVMIRParser(new CommonTokenStream(irLexer));
-        irParser.removeErrorListeners();
-        //  irParser.addErrorListener(new ParseErrorListener());
-
+        // lexer and parser, chunks of the text at the same time with a pool
         // irModule.setBottomFunctions();
         // no need!
-        visit(irParser.compilationUnit());
+        ModuleParser parser = new ModuleParser(pool);
+        if (lowMemory) rowSource = new RowMark.Source(charStream);
+        build(parser.parse(charStream));
+        parseFallbacks = parser.fallbacks();
 
         // clear onlyName
 
@@ -62,15 +87,20 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
     public IRBuilder() {
     }
+
+    public IRBuilder(ForkJoinPool pool) {
+        this.pool = pool;
+    }
 //    IRPhiInst SelectInstToSolve = null;
 
-    private void deepToInst(IRFunction function) {
+    // instructions: builds the instructions of a block, blocks come in the order of the control flow from the entry
+    void deepToInst(IRFunction function, Consumer<IRBlock> instructions) {
         CurrentFunction = function;
         HashSet<IRBlock> visited = new HashSet<>();
 
 
 //        valueMap = new LinkedHashMap<String, Value>();
-        RawOnlyName.workList = new ArrayList<>();
+        rawOnlyNames = new ArrayList<>();
         valueMap = function.valueMap;
 
 
@@ -80,11 +110,28 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         LinkedList<IRBlock> blocks = function.blocks;
         for (int i = 0, blocksSize = blocks.size(); i < blocksSize; i++) {
             IRBlock block = blocks.get(i);
-            deepToInst(block, visited);
+            deepToInst(block, visited, instructions);
         }
         function.entryBlock = function.blocks.get(0);
         solveRawOnlyName(valueMap);
+        if (lowMemory) release(function);
+    }
 
+    // nothing after the instructions looks up a name or a context of the function
+    private void release(IRFunction function) {
+        function.Source = null;
+        function.blocks.forEach(blockCtx::remove);
+        function.valueMap = new LinkedHashMap<>();
+        valueMap = function.valueMap;
+        rawOnlyNames = new ArrayList<>();
+    }
+
+    private RowMark rowMark(ParserRuleContext ctx) {
+        Token start = ctx.getStart();
+        if (!lowMemory) return new RowMark(start.getLine(), ctx.getText());
+        if (rowSource == null) rowSource = new RowMark.Source(start.getInputStream());
+        return new RowMark(start.getLine(), start.getCharPositionInLine(),
+                ctx.getStop().getStopIndex() + 1 - start.getStartIndex(), rowSource);
     }
 
     //private void setNewValue(IRBaseType type, Value value) {//cover rename
@@ -94,37 +141,41 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
 
     // visitint
-    private void deepToInst(IRBlock block, HashSet<IRBlock> visited) {
+    private void deepToInst(IRBlock block, HashSet<IRBlock> visited, Consumer<IRBlock> instructions) {
 
 
         // IRBlock block = (IRBlock) valueMap.get(CurrentFunction.name + getBasicBlockLabel(ctx).replaceAll(":", ""));
 
         if (visited.contains(block)) return;
         visited.add(block);
-        var ctx = blockCtx.get(block);
         CurrentBlock = block;
-        for (var instCtx : ctx.instruction()) {
-            var visit = visit(instCtx);
-            IRBaseInst inst = (IRBaseInst) visit;
-            inst.setParentBlock(block);
-            rowMarker.put(inst, new RowMark(instCtx.getStart().getLine(), instCtx.getText()));
-        }
-        IRBaseInst inst = (IRBaseInst) ctx.terminator().accept(this);
-        inst.setParentBlock(block);
-        rowMarker.put(inst, new RowMark(ctx.terminator().getStart().getLine(), ctx.terminator().getText()));
+        instructions.accept(block);
 
 
         if (block.terminator() instanceof IRBrInst) {
             if (((IRBrInst) block.terminator()).isJump()) {
-                deepToInst(((IRBrInst) block.terminator()).destBlock(), visited);
+                deepToInst(((IRBrInst) block.terminator()).destBlock(), visited, instructions);
             } else {
-                deepToInst(((IRBrInst) block.terminator()).ifTrueBlock(), visited);
-                deepToInst(((IRBrInst) block.terminator()).ifFalseBlock(), visited);
+                deepToInst(((IRBrInst) block.terminator()).ifTrueBlock(), visited, instructions);
+                deepToInst(((IRBrInst) block.terminator()).ifFalseBlock(), visited, instructions);
             }
         } else if (block.terminator() instanceof IRRetInst) {
             block.parentFunction.exitBlock = block;
         }
     }
+
+    private void visitInstructions(IRBlock block) {
+        var ctx = blockCtx.get(block);
+        for (var instCtx : ctx.instruction()) {
+            var visit = visit(instCtx);
+            IRBaseInst inst = (IRBaseInst) visit;
+            inst.setParentBlock(block);
+            rowMarker.put(inst, rowMark(instCtx));
+        }
+        IRBaseInst inst = (IRBaseInst) ctx.terminator().accept(this);
+        inst.setParentBlock(block);
+        rowMarker.put(inst, rowMark(ctx.terminator()));
+    }
 //    private void deepToInst(IRBlock block, HashSet<IRBlock> visited) {
 //
 //
@@ -143,8 +194,8 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 //                var visit = visit(ctx.instruction(i));
 //                IRBaseInst inst = (IRBaseInst) visit;
 //                if (SelectInstToSolve != null) {
-//                    var ifFalseBlock = (IRBlock) SelectInstToSolve.operands.get(3);
-//                    var ifTrueBlock = (IRBlock) SelectInstToSolve.operands.get(1);
+//                    var ifFalseBlock = (IRBlock) SelectInstToSolve.operands().get(3);
+//                    var ifTrueBlock = (IRBlock) SelectInstToSolve.operands().get(1);
 //
 //                    var irBrInst = new IRBrInst((Value) SelectInstToSolve.temp,
 //                            ifTrueBlock
@@ -244,15 +295,15 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 //                IRTranslator.boolType, IRTranslator.stringType, IRTranslator.stringType));
     }
 
-    private void solveRawOnlyName(LinkedHashMap<String, Value> map) {
-        for (RawOnlyName onlyName : RawOnlyName.workList) {
-            var userList = new ArrayList<>(onlyName.users);
+    void solveRawOnlyName(LinkedHashMap<String, Value> map) {
+        for (RawOnlyName onlyName : rawOnlyNames) {
+            var userList = new ArrayList<>(onlyName.users());
             for (User user : userList) {
-                user.resetOperand(user.operands.indexOf(onlyName), map.get(onlyName.name));
+                user.resetOperand(user.operands().indexOf(onlyName), map.get(onlyName.name));
             }
         }
 
-        RawOnlyName.workList.clear();
+        rawOnlyNames.clear();
     }
 
     //    public void solveReference(ListIterator<LLVMIRParser.TopLevelEntityContext> iterator){
@@ -289,16 +340,26 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 //    }
     @Override
     public Value visitCompilationUnit(LLVMIRParser.CompilationUnitContext ctx) {
+        build(ctx.topLevelEntity());
+        return null;
+    }
+
+    // entities in the order of the text, however they were parsed, so the module is always built the same way
+    private void build(List<LLVMIRParser.TopLevelEntityContext> entities) {
 
         ///  var funcDeclContexts = new ArrayList<LLVMIRParser.FuncDeclContext>();
         //var funcDefContexts = new ArrayList<LLVMIRParser.FuncDefContext>();
         // var globalDefContexts = new ArrayList<LLVMIRParser.GlobalDefContext>();
 
         ListIterator<LLVMIRParser.TopLevelEntityContext> iterator;
-        iterator = ctx.topLevelEntity().listIterator();
+        iterator = entities.listIterator();
         while (iterator.hasNext()) {
             var context = iterator.next();
 
+            if (keepCanonicalText && context.funcDef() == null) {
+                layoutText.append(canonicalText(context)).append('\n');
+            }
+
             if (context.funcDecl() != null) {
                 var irFunction = (IRFunction) visitFuncDecl(context.funcDecl());
                 irFunction.entryBlock = new IRBlock(irFunction.name + '0', irFunction);
@@ -314,9 +375,11 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
                 function1.parentModule = irModule;
                 irModule.functions.add(function1);
                 SolveFunctions.add(function1);
+                if (keepCanonicalText) functionText.put(function1, canonicalText(context.funcDef()));
             } else if (context.globalDef() != null) {
 
                 irModule.globalVarSeg.add((GlobalVariable) visit(context.globalDef()));
+                if (reachableOnly) globalNames(context.globalDef(), globalRefs);
 
 
             } else if (context.metadataDef() != null) {
@@ -328,6 +391,11 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         }
 
         solveRawOnlyName(globalValueMap);
+        if (reachableOnly) materializeReachable(function -> {
+            LinkedHashSet<String> names = new LinkedHashSet<>();
+            globalNames(function.Source.funcBody(), names);
+            return names;
+        }, function -> visitFuncBody(function, function.Source));
 
 //        for (var classDecl : ctx.classDecl()) {
 //            StructType classType = new StructType(classDecl.LocalReg().getText().substring(1 + LLVM.StructPrefix.length()));
@@ -341,11 +409,8 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
         // start
         for (var function : SolveFunctions) {
-            deepToInst(function);
+            deepToInst(function, this::visitInstructions);
         }
-
-
-        return null;
     }
 
     @Override
@@ -389,6 +454,14 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
     @Override
     public Value visitFuncDef(LLVMIRParser.FuncDefContext ctx) {
         IRFunction function = (IRFunction) visitFuncHeader(ctx.funcHeader());
+        function.Source = ctx;
+        // blocks come when the function turns out to be reachable
+        if (reachableOnly) return function;
+        visitFuncBody(function, ctx);
+        return function;
+    }
+
+    private void visitFuncBody(IRFunction function, LLVMIRParser.FuncDefContext ctx) {
         CurrentFunction = function;
         for (var blockCtx : ctx.funcBody().basicBlock()) {
             IRBlock block = (IRBlock) visit(blockCtx);
@@ -397,9 +470,50 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
             setNewValue(function, block.name, block);
             function.blocks.add(block);
         }
+    }
+
+    // walk the bodies from the roots, names in a body are its edges, the others keep only their header
+    // names: the global names in the body of a function, body: builds its blocks
+    void materializeReachable(Function<IRFunction, Set<String>> names, Consumer<IRFunction> body) {
+        LinkedHashMap<String, IRFunction> defined = new LinkedHashMap<>();
+        SolveFunctions.forEach(function -> defined.put(function.name, function));
+
+        HashSet<IRFunction> reached = new HashSet<>();
+        ArrayDeque<IRFunction> workList = new ArrayDeque<>();
+        List<String> roots = new ArrayList<>(List.of(MLOG.MainFunctionIdentifier, LLVM.InitFuncName));
+        roots.addAll(globalRefs);
+        for (String root : roots) {
+            IRFunction function = defined.get(root);
+            if (function != null && reached.add(function)) workList.add(function);
+        }
+        while (!workList.isEmpty()) {
+            for (String name : names.apply(workList.poll())) {
+                IRFunction callee = defined.get(name);
+                if (callee != null && reached.add(callee)) workList.add(callee);
+            }
+        }
 
-        function.Source = ctx;
-        return function;
+        // in the order of the text, as if every body was built
+        SolveFunctions.removeIf(function -> {
+            if (reached.contains(function)) {
+                body.accept(function);
+                return false;
+            }
+            irModule.functions.remove(function);
+            functionText.remove(function);
+            function.Source = null;
+            skippedFunctions.add(function.name);
+            return true;
+        });
+    }
+
+    private static void globalNames(ParseTree tree, Set<String> names) {
+        if (tree instanceof TerminalNode) {
+            if (((TerminalNode) tree).getSymbol().getType() == LLVMIRLexer.GlobalIdent)
+                names.add(tree.getText().substring(1).replaceAll("\"", ""));
+            return;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) globalNames(tree.getChild(i), names);
     }
 
     @Override
@@ -436,7 +550,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         return function;
     }
 
-    private Value newValue(IRFunction function, String name, IRBaseType type) {//new get
+    Value newValue(IRFunction function, String name, IRBaseType type) {//new get
         if (function.valueMap.get(name) != null) return valueMap.get(name);
         Value ret = new Value(name, type);
         function.valueMap.put(name, ret);
@@ -621,7 +735,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         if (ctx.LocalIdent() != null) {
             String name = ctx.LocalIdent().getText().substring(1).replaceAll("\"", "");
             if (valueMap.get(name) == null) {
-                return new RawOnlyName(name);
+                return rawOnlyName(name);
             }
             return valueMap.get(name);
 
@@ -633,7 +747,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
     @Override
     public Value visitType(LLVMIRParser.TypeContext ctx) {
         if (ctx.getText().equals("void")) {
-            TypePasser.type = new VoidType();
+            TypePasser.type = IRTranslator.voidType;
             return TypePasser;
         }
         return visitChildren(ctx);
@@ -656,20 +770,20 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
     @Override
     public Value visitIntType(LLVMIRParser.IntTypeContext ctx) {
-        TypePasser.type = new NumType();
+        TypePasser.type = IRTranslator.i32Type;
         return TypePasser;
     }
 
     @Override
     public Value visitFloatType(LLVMIRParser.FloatTypeContext ctx) {
-        TypePasser.type = new NumType();
+        TypePasser.type = IRTranslator.i32Type;
         return TypePasser;
     }
 
     @Override
     public Value visitPointerType(LLVMIRParser.PointerTypeContext ctx) {
         if (ctx.opaquePointerType() != null) {
-            TypePasser.type = new PointerType(new VoidType());//todo what is this
+            TypePasser.type = new PointerType(IRTranslator.voidType);//todo what is this
         } else {
             TypePasser.type = new PointerType(ctx.type().accept(this).type);
 
@@ -681,7 +795,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
     @Override
     public Value visitLabelType(LLVMIRParser.LabelTypeContext ctx) {
-        TypePasser.type = new LabelType();
+        TypePasser.type = IRTranslator.labelType;
         return TypePasser;
     }
 
@@ -714,7 +828,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
     @Override
     public Value visitOpaquePointerType(LLVMIRParser.OpaquePointerTypeContext ctx) {
         // return super.visitOpaquePointerType(ctx);
-        TypePasser.type = new PointerType(new VoidType());//todo how to do it
+        TypePasser.type = new PointerType(IRTranslator.voidType);//todo how to do it
         return TypePasser;
     }
 
@@ -745,32 +859,29 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         // assert inst.type instanceof PointerType;
 
         //  inst.type = ((PointerType) inst.type).pointedType;
-        for (int i = 1; i < inst.indicesNum(); ++i) {
-
-            if (inst.type instanceof StructType) {
-                inst.type = ((StructType) inst.type).memberVarTypes.get(((NumConst) indices.get(i)).getConstData());
-            } else if (inst.type instanceof ArrayType) {
-                inst.type = ((ArrayType) inst.type).elementType;
-            } else if (inst.type instanceof PointerType) {
-                inst.type = //(PointerType) inst.type;
-                        ((PointerType) inst.type).pointedType;
-            } else if (inst.type instanceof VoidType) {
+        inst.type = indexedType(inst.type, indices);
+
+        inst.setParentBlock(CurrentBlock);
+
+        return inst;
+    }
+
+    // the type the indices after the first lead to from the source type, the result points to it
+    static IRBaseType indexedType(IRBaseType type, ArrayList<Value> indices) {
+        for (int i = 1; i < indices.size(); ++i) {
+            if (type instanceof StructType) {
+                type = ((StructType) type).memberVarTypes.get(((NumConst) indices.get(i)).getConstData());
+            } else if (type instanceof ArrayType) {
+                type = ((ArrayType) type).elementType;
+            } else if (type instanceof PointerType) {
+                type = ((PointerType) type).pointedType;
+            } else if (type instanceof VoidType) {
                 break;
-//                inst.type = //(PointerType) inst.type;
-//                        ((PointerType) inst.type).pointedType;
             } else {
                 throw new InternalError("getelementptr in other types");
-
             }
-
         }
-
-        // wrapped
-        inst.type = new PointerType(inst.type);
-
-        inst.setParentBlock(CurrentBlock);
-
-        return inst;
+        return new PointerType(type);
     }
 
     @Override
@@ -802,7 +913,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
 
     }
 
-    private Value newValue(String name, IRBaseType type) {//new get
+    Value newValue(String name, IRBaseType type) {//new get
         if (valueMap.get(name) != null) return valueMap.get(name);
         Value ret = new Value(name, type);
         valueMap.put(name, ret);
@@ -1021,28 +1132,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         // assert inst.type instanceof PointerType;
 
         //  inst.type = ((PointerType) inst.type).pointedType;
-        for (int i = 1; i < inst.indicesNum(); ++i) {
-
-            if (inst.type instanceof StructType) {
-                inst.type = ((StructType) inst.type).memberVarTypes.get(((NumConst) indices.get(i)).getConstData());
-            } else if (inst.type instanceof ArrayType) {
-                inst.type = ((ArrayType) inst.type).elementType;
-            } else if (inst.type instanceof PointerType) {
-                inst.type = //(PointerType) inst.type;
-                        ((PointerType) inst.type).pointedType;
-            } else if (inst.type instanceof VoidType) {
-                break;
-//                inst.type = //(PointerType) inst.type;
-//                        ((PointerType) inst.type).pointedType;
-            } else {
-                throw new InternalError("getelementptr in other types");
-
-            }
-
-        }
-
-        // wrapped
-        inst.type = new PointerType(inst.type);
+        inst.type = indexedType(inst.type, indices);
 
         //  setNewValue(destName, inst);
         return inst;
@@ -1165,16 +1255,16 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         return inst;
     }
 
-    private Value getGlobalValue(String name) {
+    Value getGlobalValue(String name) {
         if (globalValueMap.get(name) == null) {
-            return new RawOnlyName(name);
+            return rawOnlyName(name);
         }
 
 
         return globalValueMap.get(name);
     }
 
-    private Value setNewValue(String name, Value value) {//cover rename
+    Value setNewValue(String name, Value value) {//cover rename
         if (valueMap.containsKey(name)) {
             valueMap.remove(value.name);
         }
@@ -1184,7 +1274,7 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         return value;
     }
 
-    private void setNewValue(IRFunction function, String name, Value value) {//cover rename
+    void setNewValue(IRFunction function, String name, Value value) {//cover rename
         value.name = name;
         function.valueMap.put(name, value);
     }
@@ -1208,13 +1298,33 @@ public class IRBuilder extends LLVMIRBaseVisitor<Value> {
         return super.visitTerminal(node);
     }
 
+    // tokens joined by spaces, layout and comments do not matter
+    private static String canonicalText(ParseTree tree) {
+        StringBuilder text = new StringBuilder();
+        appendTokens(tree, text);
+        return text.toString();
+    }
+
+    private static void appendTokens(ParseTree tree, StringBuilder text) {
+        if (tree instanceof TerminalNode) {
+            if (text.length() > 0) text.append(' ');
+            text.append(tree.getText());
+            return;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) appendTokens(tree.getChild(i), text);
+    }
+
+    RawOnlyName rawOnlyName(String name) {
+        var onlyName = new RawOnlyName(name);
+        rawOnlyNames.add(onlyName);
+        return onlyName;
+    }
+
     // this is used to handle forward reference
     public static class RawOnlyName extends Value {
-        public static ArrayList<RawOnlyName> workList = new ArrayList<>();
 
         public RawOnlyName(String name) {
             super(name, null);
-            workList.add(this);
         }
     }
 
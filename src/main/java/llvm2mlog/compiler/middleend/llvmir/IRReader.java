@@ -0,0 +1,949 @@
+package llvm2mlog.compiler.middleend.llvmir;
+
+import llvm2mlog.compiler.middleend.llvmir.constant.*;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.compiler.middleend.llvmir.inst.*;
+import llvm2mlog.compiler.middleend.llvmir.type.*;
+import llvm2mlog.debug.Log;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Reads a module straight into an IRBuilder, with one cursor over the text and no tokens or tree in between.
+ * It gives the values, names, types and row marks visiting the ANTLR tree gives, made in the same order.
+ * <p>
+ * Only the part of the language clang emits without optimization is read: plain globals and types, declarations,
+ * attribute groups and metadata tuples, and in bodies alloca, load, store, getelementptr, the binary operations,
+ * icmp, phi, call, trunc, zext, ptrtoint, bitcast, br and ret with simple operands.
+ * Anything else throws Unsupported, the builder is then half built and the module is built from the tree instead.
+ * <p>
+ * As in IRBuilder a body is read twice: first it is cut into blocks at the labels,
+ * then the instructions of the blocks are read in the order of the control flow.
+ */
+public class IRReader {
+
+    // the module uses something only the ANTLR path builds
+    public static class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        // only steers the fallback, no stack trace is filled in
+        Unsupported(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    // a block of a body: its label and where its first instruction starts
+    private static class Span {
+        final String label;
+        final int start, line;
+
+        Span(String label, int start, int line) {
+            this.label = label;
+            this.start = start;
+            this.line = line;
+        }
+    }
+
+    private static class Body {
+        final ArrayList<Span> blocks = new ArrayList<>();
+        // global names in the body, the edges of reachableOnly
+        final LinkedHashSet<String> names = new LinkedHashSet<>();
+    }
+
+    // token kinds, punctuation is its own character
+    private static final int End = -1, Word = 256, IntLit = 257, FloatLit = 258, StringLit = 259, LocalIdent = 260,
+            GlobalIdent = 261, LabelIdent = 262, AttrGroupId = 263, MetadataName = 264, MetadataId = 265;
+
+    private final IRBuilder builder;
+    private final char[] text;
+    private int pos = 0, line = 1;
+    // the current token
+    private int kind, start, end, tokenLine;
+    // the end of the token consumed last
+    private int consumedEnd;
+
+    // the tokens read since the start of an instruction, and of an entity joined by spaces
+    private final StringBuilder row = new StringBuilder(), canonical = new StringBuilder();
+    private boolean recordRow = false, recordCanonical = false;
+    // null: global names are not collected
+    private Set<String> names = null;
+
+    private final HashMap<IRFunction, Body> bodies = new HashMap<>();
+    private final HashMap<IRBlock, Span> spans = new HashMap<>();
+
+    public IRReader(IRBuilder builder, String text) {
+        this.builder = builder;
+        this.text = text.toCharArray();
+    }
+
+    public void read() {
+        lex();
+        while (kind != End) {
+            canonical.setLength(0);
+            recordCanonical = builder.keepCanonicalText;
+            if (is("define")) {
+                IRFunction function = funcDef();
+                builder.CurrentFunction = function;
+                function.parentModule = builder.irModule;
+                builder.irModule.functions.add(function);
+                builder.SolveFunctions.add(function);
+                if (builder.keepCanonicalText) builder.functionText.put(function, canonical.toString());
+            } else {
+                entity();
+                if (builder.keepCanonicalText) builder.layoutText.append(canonical).append('\n');
+            }
+            recordCanonical = false;
+        }
+
+        builder.solveRawOnlyName(builder.globalValueMap);
+        if (builder.reachableOnly)
+            builder.materializeReachable(function -> bodies.get(function).names, this::blocks);
+        for (var function : builder.SolveFunctions) {
+            builder.deepToInst(function, this::instructions);
+        }
+        Log.info("Build Module finish from .ll file.");
+    }
+
+    //region lexer
+
+    // the next token, without recording the current one
+    private void lex() {
+        for (; ; ) {
+            if (pos >= text.length) {
+                kind = End;
+                start = end = pos;
+                tokenLine = line;
+                return;
+            }
+            char c = text[pos];
+            if (c == '\n') {
+                line++;
+                pos++;
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                pos++;
+            } else if (c == ';') {
+                // the grammar ends a comment with a newline
+                while (pos < text.length && text[pos] != '\n') pos++;
+                if (pos >= text.length) throw unsupported("comment at the end");
+            } else {
+                break;
+            }
+        }
+        start = pos;
+        tokenLine = line;
+        char c = text[pos];
+        if (c == '%' || c == '@') {
+            pos++;
+            if (pos < text.length && text[pos] == '"') quoted();
+            else if (!run()) throw unsupported("empty name");
+            kind = c == '%' ? LocalIdent : GlobalIdent;
+        } else if (c == '"') {
+            quoted();
+            if (pos < text.length && text[pos] == ':') throw unsupported("quoted label");
+            kind = StringLit;
+        } else if (c == '#') {
+            pos++;
+            if (!digits()) throw unsupported("attribute group");
+            kind = AttrGroupId;
+        } else if (c == '!' && pos + 1 < text.length && isDigit(text[pos + 1])) {
+            pos++;
+            digits();
+            kind = MetadataId;
+        } else if (c == '!' && pos + 1 < text.length && (isLetter(text[pos + 1]) || text[pos + 1] == '\\')) {
+            pos++;
+            while (pos < text.length && (isLetter(text[pos]) || isDigit(text[pos]) || text[pos] == '\\')) pos++;
+            kind = MetadataName;
+        } else if (isLetter(c) || isDigit(c)) {
+            run();
+            end = pos;
+            if (pos < text.length && text[pos] == ':') {
+                pos++;
+                kind = LabelIdent;
+            } else {
+                kind = classify();
+            }
+        } else if ("=,(){}[]*<>!|".indexOf(c) >= 0) {
+            pos++;
+            kind = c;
+        } else {
+            throw unsupported("character " + c);
+        }
+        end = pos;
+    }
+
+    // consume the current token
+    private void next() {
+        if (recordRow) row.append(text, start, end - start);
+        if (recordCanonical) {
+            if (canonical.length() > 0) canonical.append(' ');
+            canonical.append(text, start, end - start);
+        }
+        if (names != null && kind == GlobalIdent) names.add(name());
+        consumedEnd = end;
+        lex();
+    }
+
+    private void quoted() {
+        pos++;
+        while (pos < text.length && text[pos] != '"') {
+            if (text[pos] == '\n' || text[pos] == '\r') throw unsupported("string over lines");
+            pos++;
+        }
+        if (pos >= text.length) throw unsupported("unterminated string");
+        pos++;
+    }
+
+    // letters, digits and [-$._], false: none
+    private boolean run() {
+        int from = pos;
+        while (pos < text.length && (isLetter(text[pos]) || isDigit(text[pos]))) pos++;
+        return pos > from;
+    }
+
+    private boolean digits() {
+        int from = pos;
+        while (pos < text.length && isDigit(text[pos])) pos++;
+        return pos > from;
+    }
+
+    // a word, an integer or a decimal float, as the ANTLR lexer would take the run
+    private int classify() {
+        int i = start, n = pos;
+        if (text[i] == '-') i++;
+        int digitsFrom = i;
+        while (i < n && isDigit(text[i])) i++;
+        if (i == n && i > digitsFrom) return IntLit;
+        if (i > digitsFrom && text[i] == '.') {
+            i++;
+            while (i < n && isDigit(text[i])) i++;
+            if (i < n && (text[i] == 'e' || text[i] == 'E')) {
+                i++;
+                if (i < n && text[i] == '-') i++;
+                int exponent = i;
+                while (i < n && isDigit(text[i])) i++;
+                if (i == exponent) throw unsupported("float " + text());
+            }
+            if (i == n) return FloatLit;
+        }
+        if (isAsciiLetter(text[start]) || text[start] == '_' || n - start == 3 && text[start] == '.' && text[start + 1] == '.' && text[start + 2] == '.')
+            return Word;
+        throw unsupported("token " + text());
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLetter(char c) {
+        return isAsciiLetter(c) || c == '-' || c == '$' || c == '.' || c == '_';
+    }
+
+    private boolean is(String word) {
+        if (kind != Word || end - start != word.length()) return false;
+        for (int i = 0; i < word.length(); i++)
+            if (text[start + i] != word.charAt(i)) return false;
+        return true;
+    }
+
+    private boolean isIntType() {
+        if (kind != Word || end - start < 2 || text[start] != 'i') return false;
+        for (int i = start + 1; i < end; i++)
+            if (!isDigit(text[i])) return false;
+        return true;
+    }
+
+    private String text() {
+        return new String(text, start, end - start);
+    }
+
+    // where the row of a position starts
+    private int rowStart(int position) {
+        while (position > 0 && text[position - 1] != '\n') position--;
+        return position;
+    }
+
+    // a local or global name without its sigil and quotes
+    private String name() {
+        return name(start, end);
+    }
+
+    private String name(int from, int to) {
+        if (text[from + 1] == '"') return new String(text, from + 2, to - from - 3);
+        return new String(text, from + 1, to - from - 1);
+    }
+
+    private void expect(int token) {
+        if (kind != token) throw unsupported("expected " + (char) token);
+        next();
+    }
+
+    private void expect(String word) {
+        if (!is(word)) throw unsupported("expected " + word);
+        next();
+    }
+
+    private Unsupported unsupported(String what) {
+        return new Unsupported("line " + tokenLine + ": " + what);
+    }
+
+    //endregion
+
+    //region top level
+
+    private void entity() {
+        if (kind == GlobalIdent) {
+            globalDef();
+        } else if (kind == LocalIdent) {
+            typeDef();
+        } else if (is("declare")) {
+            next();
+            IRFunction function = funcHeader();
+            funcHdrFields(false);
+            function.entryBlock = new IRBlock(function.name + '0', function);
+            builder.irModule.builtinFunctions.add(function);
+        } else if (is("source_filename")) {
+            next();
+            expect('=');
+            expect(StringLit);
+        } else if (is("target")) {
+            next();
+            if (!is("datalayout") && !is("triple")) throw unsupported("target " + text());
+            next();
+            expect('=');
+            expect(StringLit);
+        } else if (is("attributes")) {
+            next();
+            expect(AttrGroupId);
+            expect('=');
+            expect('{');
+            while (kind != '}') {
+                if (kind == End) throw unsupported("attribute group");
+                next();
+            }
+            next();
+        } else if (kind == MetadataName) {
+            next();
+            expect('=');
+            expect('!');
+            expect('{');
+            while (kind == MetadataId) {
+                next();
+                if (kind != ',') break;
+                next();
+            }
+            expect('}');
+        } else if (kind == MetadataId) {
+            next();
+            expect('=');
+            if (is("distinct")) next();
+            expect('!');
+            mdTuple();
+        } else {
+            throw unsupported("top level " + text());
+        }
+    }
+
+    // after the '!': integers, strings, names and nested tuples, no specialized nodes
+    private void mdTuple() {
+        expect('{');
+        while (kind != '}') {
+            if (kind == '!') {
+                next();
+                if (kind == StringLit) next();
+                else if (kind == '{') mdTuple();
+                else throw unsupported("metadata");
+            } else if (kind == MetadataId || kind == GlobalIdent || kind == IntLit || kind == ',' || kind == Word && !is("distinct")) {
+                next();
+            } else {
+                throw unsupported("metadata");
+            }
+        }
+        next();
+    }
+
+    private void typeDef() {
+        String typeName = name();
+        next();
+        expect('=');
+        expect("type");
+        IRBaseType type = type();
+        type.setName(typeName);
+        builder.globalValueMap.put(typeName, new Value(typeName, type));
+    }
+
+    private void globalDef() {
+        if (builder.reachableOnly) names = builder.globalRefs;
+        String glbName = name();
+        next();
+        expect('=');
+        while (is("dso_local") || is("dso_preemptable") || is("internal") || is("private") || is("linkonce_odr")
+                || is("weak_odr") || is("linkonce") || is("weak") || is("common") || is("hidden") || is("protected")
+                || is("default") || is("unnamed_addr") || is("local_unnamed_addr"))
+            next();
+        if (!is("global") && !is("constant")) throw unsupported("global " + glbName);
+        next();
+
+        IRBaseType type = type();
+        GlobalVariable glbVar = new GlobalVariable(glbName, type);
+        builder.TypePasser.type = type;
+        glbVar.initValue = constant();
+        while (kind == ',') {
+            next();
+            if (is("align")) {
+                next();
+                expect(IntLit);
+            } else if (is("section")) {
+                next();
+                expect(StringLit);
+            } else {
+                throw unsupported("global field");
+            }
+        }
+        while (kind == AttrGroupId) next();
+        builder.globalValueMap.put(glbName, glbVar);
+        builder.irModule.globalVarSeg.add(glbVar);
+        names = null;
+    }
+
+    private IRFunction funcDef() {
+        next();
+        IRFunction function = funcHeader();
+        funcHdrFields(true);
+        Body body = new Body();
+        bodies.put(function, body);
+        body(body);
+        // blocks come when the function turns out to be reachable
+        if (!builder.reachableOnly) blocks(function);
+        return function;
+    }
+
+    private IRFunction funcHeader() {
+        while (is("dso_local") || is("dso_preemptable") || is("internal") || is("private") || is("external")
+                || is("linkonce_odr") || is("weak_odr") || is("hidden") || is("protected") || is("default")
+                || is("ccc") || is("fastcc") || is("noundef") || is("signext") || is("zeroext") || is("noalias")
+                || is("nonnull") || is("inreg"))
+            next();
+        IRBaseType retType = type();
+        if (kind != GlobalIdent) throw unsupported("function name");
+        String funcName = name();
+        next();
+        var function = new IRFunction(funcName, retType);
+
+        expect('(');
+        for (int i = 0; kind != ')'; ++i) {
+            if (i > 0) expect(',');
+            if (is("...")) {
+                next();
+                break;
+            }
+            IRBaseType argType = type();
+            paramAttributes();
+            String name;
+            if (kind == LocalIdent) {
+                name = name();
+                next();
+            } else {
+                name = "arg" + i;
+            }
+            ((IRFuncType) function.type).argTypes.add(argType);
+            function.addArg(builder.newValue(function, name, argType));
+        }
+        next();
+
+        builder.globalValueMap.put(funcName, function);
+        return function;
+    }
+
+    private void paramAttributes() {
+        for (; ; ) {
+            if (kind == StringLit) {
+                next();
+                if (kind == '=') {
+                    next();
+                    expect(StringLit);
+                }
+            } else if (is("align")) {
+                next();
+                expect(IntLit);
+            } else if (is("dereferenceable") || is("dereferenceable_or_null")) {
+                next();
+                expect('(');
+                expect(IntLit);
+                expect(')');
+            } else if (is("byval") || is("sret") || is("byref") || is("elementtype")) {
+                next();
+                expect('(');
+                type();
+                expect(')');
+            } else if (is("noundef") || is("nocapture") || is("readonly") || is("readnone") || is("writeonly")
+                    || is("signext") || is("zeroext") || is("nonnull") || is("noalias") || is("nofree") || is("returned")
+                    || is("immarg") || is("inreg") || is("nest") || is("swiftself") || is("swifterror")
+                    || is("swiftasync") || is("allocalign") || is("allocptr")) {
+                next();
+            } else {
+                return;
+            }
+        }
+    }
+
+    // until the body or the next entity
+    private void funcHdrFields(boolean body) {
+        if (is("unnamed_addr") || is("local_unnamed_addr")) next();
+        for (; ; ) {
+            if (body && kind == '{') return;
+            if (kind == AttrGroupId) {
+                next();
+            } else if (kind == StringLit) {
+                next();
+                if (kind == '=') {
+                    next();
+                    expect(StringLit);
+                }
+            } else if (is("align")) {
+                next();
+                expect(IntLit);
+            } else if (is("section")) {
+                next();
+                expect(StringLit);
+            } else if (kind == Word && !body && (is("define") || is("declare") || is("attributes") || is("target")
+                    || is("source_filename"))) {
+                return;
+            } else if (is("personality") || is("prefix") || is("prologue") || is("gc") || is("comdat")
+                    || is("partition") || is("uselistorder")) {
+                throw unsupported("function field " + text());
+            } else if (kind == Word) {
+                next();
+                if (kind == '(') {
+                    // uwtable(sync), allocsize(0)
+                    next();
+                    while (kind == IntLit || kind == Word || kind == StringLit || kind == ',') next();
+                    expect(')');
+                }
+            } else if (body) {
+                throw unsupported("function field");
+            } else {
+                return;
+            }
+        }
+    }
+
+    // cut the body into blocks at the labels
+    private void body(Body body) {
+        if (builder.reachableOnly) names = body.names;
+        expect('{');
+        String label = "0";
+        int terminators = 0;
+        if (kind == LabelIdent) {
+            label = labelName();
+            next();
+        }
+        body.blocks.add(new Span(label, start, tokenLine));
+        while (kind != '}') {
+            if (kind == LabelIdent) {
+                if (terminators != 1) throw unsupported("block without one terminator");
+                terminators = 0;
+                label = labelName();
+                next();
+                body.blocks.add(new Span(label, start, tokenLine));
+                continue;
+            }
+            if (kind == End || kind == MetadataName || kind == MetadataId) throw unsupported("body");
+            if (is("ret") || is("br") || is("switch") || is("unreachable") || is("indirectbr") || is("invoke")
+                    || is("resume") || is("callbr") || is("catchswitch") || is("catchret") || is("cleanupret"))
+                terminators++;
+            next();
+        }
+        if (terminators != 1) throw unsupported("block without one terminator");
+        next();
+        names = null;
+    }
+
+    private String labelName() {
+        return new String(text, start, end - start - 1);
+    }
+
+    // the blocks of a body, as IRBuilder.visitFuncBody
+    private void blocks(IRFunction function) {
+        builder.CurrentFunction = function;
+        for (Span span : bodies.get(function).blocks) {
+            IRBlock block = new IRBlock(function.name + span.label, null);
+            spans.put(block, span);
+            block.parentFunction = function;
+
+            builder.setNewValue(function, block.name, block);
+            function.blocks.add(block);
+        }
+    }
+
+    //endregion
+
+    //region instructions
+
+    private void instructions(IRBlock block) {
+        Span span = spans.get(block);
+        pos = span.start;
+        line = span.line;
+        lex();
+        for (; ; ) {
+            int instLine = tokenLine, instStart = start;
+            row.setLength(0);
+            recordRow = !builder.lowMemory;
+            boolean terminator = is("ret") || is("br");
+            IRBaseInst inst = terminator ? terminator() : instruction();
+            recordRow = false;
+            inst.setParentBlock(block);
+            if (builder.lowMemory) {
+                if (builder.rowSource == null) builder.rowSource = new RowMark.Source(CharBuffer.wrap(text));
+                int rowStart = rowStart(instStart);
+                // code points, as the positions of the parser
+                builder.rowMarker.put(inst, new RowMark(instLine, Character.codePointCount(text, rowStart, instStart - rowStart),
+                        Character.codePointCount(text, instStart, consumedEnd - instStart), builder.rowSource));
+            } else builder.rowMarker.put(inst, new RowMark(instLine, row.toString()));
+            if (terminator) break;
+        }
+        if (kind != LabelIdent && kind != '}') throw unsupported("after the terminator");
+    }
+
+    private IRBaseInst terminator() {
+        if (is("ret")) {
+            next();
+            if (is("void")) {
+                next();
+                return new IRRetInst(null);
+            }
+            type();
+            return new IRRetInst(value(), null);
+        }
+        next();
+        if (is("label")) return new IRBrInst(label(), null);
+        if (!isIntType()) throw unsupported("br");
+        next();
+        Value condition = value();
+        expect(',');
+        IRBlock ifTrue = label();
+        expect(',');
+        return new IRBrInst(condition, ifTrue, label(), null);
+    }
+
+    private IRBaseInst instruction() {
+        if (kind == LocalIdent) {
+            builder.destName = name();
+            next();
+            expect('=');
+            var value = valueInstruction();
+            builder.newValue(builder.destName, value.type);
+            builder.setNewValue(builder.destName, value);
+            return value;
+        }
+        if (is("store")) {
+            next();
+            if (is("volatile") || is("atomic")) throw unsupported("store " + text());
+            // the pointer is visited first
+            type();
+            int valueKind = kind, valueStart = start, valueEnd = end;
+            skipValue();
+            expect(',');
+            type();
+            Value storePtr = value();
+            Value storeValue = value(valueKind, valueStart, valueEnd);
+            align();
+            return new IRStoreInst(storePtr, storeValue, null);
+        }
+        return valueInstruction();
+    }
+
+    private IRBaseInst valueInstruction() {
+        if (kind != Word) throw unsupported("instruction");
+        String op = binaryOp();
+        if (op != null) {
+            next();
+            while (is("nsw") || is("nuw") || is("exact") || is("fast") || is("nnan") || is("ninf") || is("nsz")
+                    || is("arcp") || is("contract") || is("afn") || is("reassoc"))
+                next();
+            var retType = new NumType(8);
+            type();
+            Value lhs = value();
+            expect(',');
+            return new IRBinaryInst(op, retType, lhs, value(), null);
+        }
+        if (is("alloca")) {
+            next();
+            var inst = new IRAllocaInst(builder.destName, type(), null);
+            align();
+            return inst;
+        }
+        if (is("load")) {
+            next();
+            if (is("volatile") || is("atomic")) throw unsupported("load " + text());
+            type();
+            expect(',');
+            type();
+            var inst = new IRLoadInst(value(), null);
+            align();
+            return inst;
+        }
+        if (is("getelementptr")) {
+            next();
+            if (is("inbounds")) next();
+            IRBaseType sourceType = type();
+            expect(',');
+            // the indices are visited before the pointer
+            type();
+            int headKind = kind, headStart = start, headEnd = end;
+            skipValue();
+            ArrayList<Value> indices = new ArrayList<>();
+            while (kind == ',') {
+                next();
+                type();
+                indices.add(value());
+            }
+            var inst = new IRGetElementPtrInst(value(headKind, headStart, headEnd), null, null, indices);
+            inst.type = sourceType;
+            inst.SourseType = inst.type;
+            inst.type = IRBuilder.indexedType(inst.type, indices);
+            return inst;
+        }
+        if (is("trunc") || is("zext") || is("ptrtoint") || is("bitcast")) {
+            boolean bitCast = is("bitcast");
+            next();
+            type();
+            Value fromValue = value();
+            expect("to");
+            IRBaseType targetType = type();
+            return bitCast ? new IRBitCastInst(fromValue, targetType, null) : new IRCastInst(fromValue, targetType, null);
+        }
+        if (is("icmp")) {
+            next();
+            if (!(is("eq") || is("ne") || is("sge") || is("sgt") || is("sle") || is("slt") || is("uge") || is("ugt")
+                    || is("ule") || is("ult")))
+                throw unsupported("icmp " + text());
+            String pred = text();
+            next();
+            type();
+            Value lhs = value();
+            expect(',');
+            return new IRICmpInst(pred, lhs, value(), null);
+        }
+        if (is("phi")) {
+            next();
+            IRPhiInst inst = new IRPhiInst(type(), null);
+            for (; ; ) {
+                expect('[');
+                Value branchData = value();
+                expect(',');
+                if (kind != LocalIdent) throw unsupported("phi");
+                IRBlock preBlock = block(name());
+                next();
+                expect(']');
+                inst.addBranch(branchData, preBlock);
+                if (kind != ',') break;
+                next();
+            }
+            return inst;
+        }
+        if (is("call") || is("tail") || is("notail") || is("musttail")) {
+            if (!is("call")) next();
+            expect("call");
+            while (is("fast") || is("nnan") || is("ninf") || is("nsz") || is("arcp") || is("contract") || is("afn")
+                    || is("reassoc") || is("ccc") || is("fastcc") || is("noundef") || is("signext") || is("zeroext")
+                    || is("noalias") || is("nonnull") || is("inreg"))
+                next();
+            IRBaseType type = type();
+            if (kind != GlobalIdent) throw unsupported("indirect call");
+            String callee = name();
+            next();
+            expect('(');
+            ArrayList<Value> argsValue = new ArrayList<>();
+            while (kind != ')') {
+                if (!argsValue.isEmpty()) expect(',');
+                if (is("metadata") || is("...")) throw unsupported("argument " + text());
+                type();
+                paramAttributes();
+                argsValue.add(value());
+            }
+            next();
+            while (kind == AttrGroupId) next();
+            if (kind == '[') throw unsupported("operand bundle");
+            if (!(builder.getGlobalValue(callee) instanceof IRFunction)) throw unsupported("callee " + callee);
+            IRCallInst inst = new IRCallInst((IRFunction) builder.getGlobalValue(callee), null, argsValue);
+            inst.type = type;
+            return inst;
+        }
+        throw unsupported("instruction " + text());
+    }
+
+    private String binaryOp() {
+        if (is("add") || is("fadd")) return "add";
+        if (is("sub") || is("fsub")) return "sub";
+        if (is("mul") || is("fmul")) return "mul";
+        if (is("udiv") || is("sdiv") || is("fdiv")) return "div";
+        if (is("urem") || is("srem") || is("frem")) return "mod";
+        if (is("shl")) return "shl";
+        if (is("lshr")) return "lshr";
+        if (is("and")) return "and";
+        if (is("or")) return "or";
+        if (is("xor")) return "xor";
+        return null;
+    }
+
+    private void align() {
+        if (kind != ',') return;
+        next();
+        expect("align");
+        expect(IntLit);
+    }
+
+    private IRBlock label() {
+        expect("label");
+        if (kind != LocalIdent) throw unsupported("label");
+        IRBlock block = block(name());
+        next();
+        return block;
+    }
+
+    // as IRBuilder.visitLabel, colons are left out of the name
+    private IRBlock block(String name) {
+        Value block = builder.valueMap.get(builder.CurrentFunction.name + name.replace(":", ""));
+        if (!(block instanceof IRBlock)) throw unsupported("no block " + name);
+        return (IRBlock) block;
+    }
+
+    //endregion
+
+    //region types and values
+
+    // types without state are shared, the others are new objects as visiting the type gives
+    private IRBaseType type() {
+        IRBaseType type;
+        if (isIntType() || is("float") || is("double") || is("half") || is("bfloat") || is("x86_fp80") || is("fp128")
+                || is("ppc_fp128")) {
+            type = IRTranslator.i32Type;
+            next();
+        } else if (is("ptr")) {
+            type = new PointerType(IRTranslator.voidType);
+            next();
+            if (is("addrspace")) throw unsupported("addrspace");
+        } else if (is("void")) {
+            type = IRTranslator.voidType;
+            next();
+        } else if (is("label")) {
+            type = IRTranslator.labelType;
+            next();
+        } else if (kind == '[') {
+            next();
+            int length = kind == IntLit ? Integer.parseInt(text()) : 0;
+            expect(IntLit);
+            expect("x");
+            IRBaseType elementType = type();
+            expect(']');
+            type = new ArrayType(elementType, length);
+        } else if (kind == '{') {
+            next();
+            var structType = new StructType();
+            while (kind != '}') {
+                if (!structType.memberVarTypes.isEmpty()) expect(',');
+                structType.memberVarTypes.add(type());
+            }
+            next();
+            type = structType;
+        } else if (kind == LocalIdent) {
+            Value named = builder.globalValueMap.get(name());
+            if (named == null) throw unsupported("type " + text());
+            type = named.type;
+            next();
+        } else {
+            throw unsupported("type " + text());
+        }
+        if (kind == '*' || kind == '(') throw unsupported("pointer or function type");
+        return type;
+    }
+
+    private void skipValue() {
+        if (kind != LocalIdent && kind != GlobalIdent && kind != IntLit && kind != FloatLit && !is("true") && !is("false")
+                && !is("null") && !is("zeroinitializer"))
+            throw unsupported("value " + text());
+        next();
+    }
+
+    private Value value() {
+        Value ret = value(kind, start, end);
+        next();
+        return ret;
+    }
+
+    // a value of one token, as IRBuilder.visitValue
+    private Value value(int kind, int from, int to) {
+        if (kind == LocalIdent) {
+            String name = name(from, to);
+            if (builder.valueMap.get(name) == null) {
+                return builder.rawOnlyName(name);
+            }
+            return builder.valueMap.get(name);
+        }
+        if (kind == GlobalIdent) return builder.getGlobalValue(name(from, to));
+        if (kind == IntLit) return new NumConst(Integer.parseInt(new String(text, from, to - from)));
+        if (kind == FloatLit)
+            return new NumConst(Float.floatToIntBits(Float.parseFloat(new String(text, from, to - from))));
+        String word = new String(text, from, to - from);
+        if (kind == Word && (word.equals("true") || word.equals("false"))) return new BoolConst(word.equals("true"));
+        if (kind == Word && (word.equals("null") || word.equals("zeroinitializer"))) return new NullptrConst();
+        throw unsupported("value " + word);
+    }
+
+    // a constant of an initializer, builder.TypePasser holds its type as visitConstant expects
+    private Value constant() {
+        if (kind == '[') {
+            IRBaseType type = builder.TypePasser.type;
+            next();
+            ArrayList<BaseConst> constData = new ArrayList<>();
+            while (kind != ']') {
+                if (!constData.isEmpty()) expect(',');
+                Value value = typeConst();
+                if (!(value instanceof BaseConst)) throw unsupported("array element");
+                constData.add((BaseConst) value);
+            }
+            next();
+            var arrayConst = new ArrayConst(type, constData.size());
+            arrayConst.constData.addAll(constData);
+            return arrayConst;
+        }
+        if (is("c")) {
+            next();
+            expect(StringLit);
+            return new ArrayConst(builder.TypePasser.type, 0);
+        }
+        if (kind == '{') {
+            var structConst = new StructConst(builder.TypePasser.type);
+            next();
+            while (kind != '}') {
+                if (!structConst.constData.isEmpty()) expect(',');
+                var value = typeConst();
+                if (value instanceof BaseConst) {
+                    structConst.constData.add((BaseConst) value);
+                } else {
+                    structConst.constData.add(new NullptrConst());
+                }
+            }
+            next();
+            return structConst;
+        }
+        if (kind == LocalIdent) throw unsupported("constant " + text());
+        return value();
+    }
+
+    private Value typeConst() {
+        builder.TypePasser.type = type();
+        return constant();
+    }
+
+    //endregion
+}
@@ -9,6 +9,7 @@ public class IRTranslator {
             memBoolType = new MemBoolType(),
             i32Type = new NumType(32),
             voidType = new VoidType(),
+            labelType = new LabelType(),
             heapPointerType = new PointerType(new NumType(8)),
             nullType = heapPointerType,
             i32PointerType = new PointerType(i32Type);
@@ -0,0 +1,146 @@
+package llvm2mlog.compiler.middleend.llvmir;
+
+import llvm2mlog.compiler.share.misc.ParallelFor;
+import llvm2mlog.parser.LLVMIR.LLVMIRLexer;
+import llvm2mlog.parser.LLVMIR.LLVMIRParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lexes and parses a module into its top level entities.
+ * <p>
+ * With a pool the text is cut before every line starting with "define" (a top level boundary, strings and
+ * bodies never start a line with it), neighbouring pieces are merged into chunks of at least MinChunkLength
+ * and the chunks are parsed at the same time, each by its own lexer and parser.
+ * The lexer of a chunk starts at the line of the chunk in the module, so line numbers are the same as parsing
+ * the whole text, and the entities are returned in the order of the text.
+ * <p>
+ * A chunk is parsed in SLL prediction mode first, bailing out at the first syntax error, and again in LL mode
+ * with the default error recovery only if that fails, which gives the same tree as parsing in LL mode at once.
+ * Every parser of the grammar shares one DFA cache, warmUp fills it before the first real module.
+ */
+public class ModuleParser {
+
+    public static final int MinChunkLength = 1 << 14;
+
+    private static class Chunk {
+        final String text;
+        final int line;
+        List<LLVMIRParser.TopLevelEntityContext> entities;
+
+        Chunk(String text, int line) {
+            this.text = text;
+            this.line = line;
+        }
+    }
+
+    // null: parse the whole text at once
+    private final ForkJoinPool pool;
+    // false: LL prediction only, as the benchmark compares
+    public boolean twoStage = true;
+    // chunks SLL could not parse
+    private final AtomicInteger fallbacks = new AtomicInteger();
+
+    public ModuleParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public List<LLVMIRParser.TopLevelEntityContext> parse(CharStream charStream) {
+        if (pool == null) return parse(charStream, 1);
+
+        List<Chunk> chunks = split(charStream.getText(Interval.of(0, charStream.size() - 1)));
+        if (chunks.size() <= 1) return parse(charStream, 1);
+        ParallelFor.forEach(pool, chunks, chunk -> chunk.entities = parse(CharStreams.fromString(chunk.text), chunk.line));
+
+        // join in the order of the text
+        List<LLVMIRParser.TopLevelEntityContext> entities = new ArrayList<>();
+        chunks.forEach(chunk -> entities.addAll(chunk.entities));
+        return entities;
+    }
+
+    public int fallbacks() {
+        return fallbacks.get();
+    }
+
+    private List<LLVMIRParser.TopLevelEntityContext> parse(CharStream charStream, int line) {
+        LLVMIRLexer irLexer = new LLVMIRLexer(charStream);
+        irLexer.removeErrorListeners();
+        irLexer.setLine(line);
+        // irLexer.addErrorListener(new ParseErrorListener());
+
+        // parser
+        CommonTokenStream tokens = new CommonTokenStream(irLexer);
+        LLVMIRParser irParser = new LLVMIRParser(tokens);
+        irParser.removeErrorListeners();
+        //  irParser.addErrorListener(new ParseErrorListener());
+        if (twoStage) {
+            irParser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            irParser.setErrorHandler(new BailErrorStrategy());
+            try {
+                return irParser.compilationUnit().topLevelEntity();
+            } catch (ParseCancellationException e) {
+                // a real syntax error or a decision SLL gets wrong, the tokens are kept
+                fallbacks.incrementAndGet();
+                tokens.seek(0);
+                irParser.reset();
+                irParser.setErrorHandler(new DefaultErrorStrategy());
+            }
+        }
+        irParser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return irParser.compilationUnit().topLevelEntity();
+    }
+
+    private static List<Chunk> split(String text) {
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0, startLine = 1, line = 1;
+        for (int i = 0; i < text.length(); i = text.indexOf('\n', i) + 1, line++) {
+            if (i - start >= MinChunkLength && text.startsWith("define", i)) {
+                chunks.add(new Chunk(text.substring(start, i), startLine));
+                start = i;
+                startLine = line;
+            }
+            if (text.indexOf('\n', i) < 0) break;
+        }
+        chunks.add(new Chunk(text.substring(start), startLine));
+        return chunks;
+    }
+
+    /**
+     * parse every .ll under a directory, or a single file, in both modes and throw the trees away,
+     * so that later parsers of this process predict from a filled DFA cache
+     * returns the number of files parsed
+     */
+    public static int warmUp(Path corpus) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(corpus)) {
+            files = walk.filter(file -> Files.isRegularFile(file) && (file.equals(corpus) || file.toString().endsWith(".ll")))
+                    .sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            CharStream text = CharStreams.fromPath(file);
+            ModuleParser parser = new ModuleParser(null);
+            parser.parse(text);
+            // the LL decisions of the fallback
+            text.seek(0);
+            parser.twoStage = false;
+            parser.parse(text);
+        }
+        return files.size();
+    }
+}
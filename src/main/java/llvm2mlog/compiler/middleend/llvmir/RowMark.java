@@ -1,11 +1,88 @@
 package llvm2mlog.compiler.middleend.llvmir;
 
+import llvm2mlog.parser.LLVMIR.LLVMIRLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Where an instruction is in the module text.
+ * Either its code is kept, or only where it starts and how long it is, and the code is read again from the module
+ * text when asked for, as a low memory build does. Both give the tokens of the instruction joined without spaces.
+ */
 public class RowMark {
-    public int row;
-    public String code;
+    public final int row;
+    // in code points from the start of the row, -1: code is kept
+    public final int column;
+    // in code points from the column to the end of the last token
+    private final int length;
+    // read again by any thread asking for it, always to the same text
+    private volatile String code;
+    // null: code is kept
+    private final Source source;
 
     public RowMark(int row, String code) {
         this.row = row;
+        this.column = -1;
+        this.length = 0;
         this.code = code;
+        this.source = null;
+    }
+
+    public RowMark(int row, int column, int length, Source source) {
+        this.row = row;
+        this.column = column;
+        this.length = length;
+        this.source = source;
+    }
+
+    public String code() {
+        if (code == null) code = source.code(row, column, length);
+        return code;
+    }
+
+    /**
+     * The module text the rows point to, a stream is only turned into text and split in rows for the first code.
+     */
+    public static class Source {
+        private CharStream stream;
+        private CharSequence text;
+        // starts of the rows, from row 1
+        private int[] rowStarts;
+
+        public Source(CharStream stream) {
+            this.stream = stream;
+        }
+
+        public Source(CharSequence text) {
+            this.text = text;
+        }
+
+        // the span lexed again, comments and spaces dropped as the parser does
+        String code(int row, int column, int length) {
+            LLVMIRLexer lexer = new LLVMIRLexer(CharStreams.fromString(span(row, column, length)));
+            lexer.removeErrorListeners();
+            StringBuilder ret = new StringBuilder();
+            for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken())
+                if (token.getChannel() == Token.DEFAULT_CHANNEL) ret.append(token.getText());
+            return ret.toString();
+        }
+
+        private synchronized String span(int row, int column, int length) {
+            if (rowStarts == null) {
+                if (text == null) text = stream.getText(Interval.of(0, stream.size() - 1));
+                stream = null;
+                int rows = 1;
+                for (int i = 0; i < text.length(); i++) if (text.charAt(i) == '\n') rows++;
+                rowStarts = new int[rows + 1];
+                rows = 1;
+                rowStarts[1] = 0;
+                for (int i = 0; i < text.length(); i++) if (text.charAt(i) == '\n') rowStarts[++rows] = i + 1;
+            }
+            if (row < 1 || row >= rowStarts.length) return "";
+            int start = Character.offsetByCodePoints(text, rowStarts[row], column);
+            return text.subSequence(start, Character.offsetByCodePoints(text, start, length)).toString();
+        }
     }
 }
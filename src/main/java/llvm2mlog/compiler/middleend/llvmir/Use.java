@@ -0,0 +1,38 @@
+package llvm2mlog.compiler.middleend.llvmir;
+
+/**
+ * An operand of a user, the edge between the user and the value it uses.
+ * <p>
+ * Uses of a value are linked in its use list, so RAUW, resetting an operand and removing an instruction
+ * touch only the uses they change, not every user of the value.
+ * A use not linked still has its value: operands of removed instructions stay readable.
+ */
+public class Use {
+    public final User user;
+    Value value;
+    // in the use list of value
+    Use prev, next;
+    boolean linked = false;
+
+    Use(User user, Value value) {
+        this.user = user;
+        this.value = value;
+    }
+
+    public Value value() {
+        return value;
+    }
+
+    // the next use of the same value, null at the last one
+    public Use next() {
+        return next;
+    }
+
+    // point the operand to another value, moving the use from one use list to the other
+    void set(Value newValue) {
+        if (newValue == value && linked) return;
+        if (value != null) value.removeUse(this);
+        value = newValue;
+        if (value != null) value.addUse(this);
+    }
+}
@@ -2,31 +2,90 @@ package llvm2mlog.compiler.middleend.llvmir;
 
 import llvm2mlog.compiler.middleend.llvmir.type.IRBaseType;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 
 public class User extends Value {
-    public final ArrayList<Value> operands = new ArrayList<Value>();
+    private static final Use[] NoUses = new Use[0];
+    // exactly as long as the operands once added, most users have one to three
+    private Use[] uses = NoUses;
+    private int useSize = 0;
 
     public User(String name, IRBaseType type) {
         super(name, type);
     }
 
     public void addOperand(Value value) {
-        if (value != null) value.addUser(this);
-        operands.add(value);
+        operands().add(value);
+    }
+
+    // the values of uses, changing it keeps the use lists
+    public List<Value> operands() {
+        return new Operands();
     }
 
     public Value getOperand(int index) {
-        return operands.get(index);
+        return use(index).value;
     }
 
     public void resetOperand(int index, Value value) {
-        operands.get(index).users.remove(this);
-        operands.set(index, value);
-        value.addUser(this);
+        use(index).set(value);
     }
 
     public int operandSize() {
-        return operands.size();
+        return useSize;
+    }
+
+    // take the uses out of the use lists of their values, the operands are still there
+    public void unlinkOperands() {
+        for (int i = 0; i < useSize; i++)
+            if (uses[i].value != null) uses[i].value.removeUse(uses[i]);
+    }
+
+    private Use use(int index) {
+        if (index < 0 || index >= useSize) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + useSize);
+        return uses[index];
+    }
+
+    private class Operands extends AbstractList<Value> implements RandomAccess {
+        @Override
+        public int size() {
+            return useSize;
+        }
+
+        @Override
+        public Value get(int index) {
+            return use(index).value;
+        }
+
+        @Override
+        public Value set(int index, Value value) {
+            Use use = use(index);
+            Value old = use.value;
+            use.set(value);
+            return old;
+        }
+
+        @Override
+        public void add(int index, Value value) {
+            if (index < 0 || index > useSize) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + useSize);
+            Use use = new Use(User.this, value);
+            if (useSize == uses.length) uses = Arrays.copyOf(uses, useSize + 1 + (useSize >> 1));
+            System.arraycopy(uses, index, uses, index + 1, useSize - index);
+            uses[index] = use;
+            useSize++;
+            if (value != null) value.addUse(use);
+        }
+
+        @Override
+        public Value remove(int index) {
+            Use use = use(index);
+            System.arraycopy(uses, index + 1, uses, index, useSize - index - 1);
+            uses[--useSize] = null;
+            if (use.value != null) use.value.removeUse(use);
+            return use.value;
+        }
     }
 }
@@ -5,44 +5,38 @@ import llvm2mlog.compiler.middleend.llvmir.inst.IRMoveInst;
 import llvm2mlog.compiler.middleend.llvmir.type.IRBaseType;
 import llvm2mlog.compiler.share.lang.LLVM;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.AbstractList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 
 public class Value {
-    // value rename
-    public static Boolean rename = false;
-    public static HashMap<String, Integer> renameTable = new HashMap<>();
     public IRBaseType type;
-    public ArrayList<User> users = new ArrayList<User>();
+    // the use list: every operand using this value, in the order they were linked
+    private Use firstUse, lastUse;
+    private int useCount = 0;
     //public ArrayList<Value> mem = new ArrayList<Value>();
-    public Value resolveFrom = null;
     public String name;
-    public String comment = null;
     // a move will def a value but due to it is a void inst, use this
-    public Set<IRMoveInst> moveDefs = new HashSet<>();
+    // null until the first, most values have none
+    private Set<IRMoveInst> moveDefs = null;
     // interact with BackEnd
     public BaseOperand asmOperand = null;
+    // dense number in its function, only valid through IRFunction.index
+    public int index = -1;
     public Value(IRBaseType type) {
         this.name = LLVM.TypeAnon;
         this.type = type;
     }
     public Value(String name, IRBaseType type) {
-        this.name = rename(name);
+        this.name = name;
         this.type = type;
     }
 
-    public static String rename(String rawName) {
-        if (!rename) return rawName;
-        Integer renameCnt = renameTable.get(rawName);
-        if (renameCnt == null) renameCnt = 0;
-        renameTable.put(rawName, renameCnt + 1);
-        if (renameCnt == 0) return rawName;
-        return rawName + LLVM.Splitter + renameCnt;
-    }
-
     public static String addrRename(String rawName) {
         return rawName + LLVM.AddrSuffix;
     }
@@ -59,25 +53,91 @@ public class Value {
         return rawName.substring(0, lastAddrSuffixIndex) + LLVM.ResolveSuffix;
     }
 
-    public void addUser(User user) {
-        users.add(user);
+    // the user of each use, a user using the value twice is there twice
+    public List<User> users() {
+        return new Users();
+    }
+
+    public Set<IRMoveInst> moveDefs() {
+        return moveDefs == null ? Collections.emptySet() : moveDefs;
+    }
+
+    public void addMoveDef(IRMoveInst move) {
+        if (moveDefs == null) moveDefs = new HashSet<>();
+        moveDefs.add(move);
+    }
+
+    public Use firstUse() {
+        return firstUse;
+    }
+
+    // only for Use and User, keeping the use list
+    public void addUse(Use use) {
+        if (use.linked) return;
+        use.prev = lastUse;
+        use.next = null;
+        if (lastUse == null) firstUse = use;
+        else lastUse.next = use;
+        lastUse = use;
+        use.linked = true;
+        useCount++;
+    }
+
+    public void removeUse(Use use) {
+        if (!use.linked) return;
+        if (use.prev == null) firstUse = use.next;
+        else use.prev.next = use.next;
+        if (use.next == null) lastUse = use.prev;
+        else use.next.prev = use.prev;
+        use.prev = use.next = null;
+        use.linked = false;
+        useCount--;
     }
 
     public String identifier() {
         return "%" + name;
     }
 
-    // RAUW
+    // RAUW, the uses move to the end of the use list of replace
     public void replaceAllUsesWith(Value replace) {
         if (this == replace) return;
 
-        for (User user : users) {
-            var operands = user.operands;
-            for (int i = 0; i < operands.size(); i++) {
-                if (operands.get(i) == this)
-                    operands.set(i, replace);
-            }
-            replace.users.add(user);
+        for (Use use = firstUse; use != null; use = firstUse) use.set(replace);
+    }
+
+    // users walks the use list, get(index) too, users().get(0) is the first user
+    private class Users extends AbstractList<User> {
+        @Override
+        public int size() {
+            return useCount;
+        }
+
+        @Override
+        public User get(int index) {
+            if (index < 0 || index >= useCount) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + useCount);
+            Use use = firstUse;
+            for (int i = 0; i < index; i++) use = use.next;
+            return use.user;
+        }
+
+        @Override
+        public Iterator<User> iterator() {
+            return new Iterator<>() {
+                private Use use = firstUse;
+
+                @Override
+                public boolean hasNext() {
+                    return use != null;
+                }
+
+                @Override
+                public User next() {
+                    if (use == null) throw new NoSuchElementException();
+                    User user = use.user;
+                    use = use.next;
+                    return user;
+                }
+            };
         }
     }
 
@@ -1,13 +1,13 @@
 package llvm2mlog.compiler.middleend.llvmir.constant;
 
-import llvm2mlog.compiler.middleend.llvmir.type.BoolType;
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.share.lang.LLVM;
 
 public class BoolConst extends BaseConst {
     public boolean constData;
 
     public BoolConst(boolean constData) {
-        super(LLVM.ConstAnon, new BoolType());
+        super(LLVM.ConstAnon, IRTranslator.boolType);
         this.constData = constData;
     }
 
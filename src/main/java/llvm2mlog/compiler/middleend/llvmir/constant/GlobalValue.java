@@ -1,5 +1,6 @@
 package llvm2mlog.compiler.middleend.llvmir.constant;
 
+import llvm2mlog.compiler.middleend.llvmir.Use;
 import llvm2mlog.compiler.middleend.llvmir.type.IRBaseType;
 
 public class GlobalValue extends BaseConst {
@@ -9,6 +10,18 @@ public class GlobalValue extends BaseConst {
         super(name, type);
     }
 
+    // global values are shared by every function,
+    // so their use lists may be touched by functions optimized in parallel
+    @Override
+    public synchronized void addUse(Use use) {
+        super.addUse(use);
+    }
+
+    @Override
+    public synchronized void removeUse(Use use) {
+        super.removeUse(use);
+    }
+
     @Override
     public String identifier() {
         return "@" + this.name;
@@ -1,5 +1,6 @@
 package llvm2mlog.compiler.middleend.llvmir.constant;
 
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.type.NumType;
 import llvm2mlog.compiler.share.lang.LLVM;
 
@@ -7,12 +8,12 @@ public class NumConst extends BaseConst {
     private int constData;
 
     public NumConst(int constData) {
-        super(LLVM.ConstAnon, new NumType());
+        super(LLVM.ConstAnon, IRTranslator.i32Type);
         this.setConstData(constData);
     }
 
     public NumConst(int constData, int bitWidth) {
-        super(LLVM.ConstAnon, new NumType(bitWidth));
+        super(LLVM.ConstAnon, bitWidth == 32 ? IRTranslator.i32Type : new NumType(bitWidth));
         this.setConstData(constData);
     }
 
@@ -1,21 +1,21 @@
 package llvm2mlog.compiler.middleend.llvmir.hierarchy;
 
 import llvm2mlog.compiler.middleend.analyzer.DomTreeBuilder;
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBrInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRPhiInst;
-import llvm2mlog.compiler.middleend.llvmir.type.LabelType;
 import llvm2mlog.compiler.share.error.codegen.InternalError;
+import llvm2mlog.compiler.share.misc.InstList;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.ListIterator;
 
 // BasicBlock is also a Value
 
 public class IRBlock extends Value {
-    public LinkedList<IRBaseInst> instructions = new LinkedList<>();
+    public InstList<IRBaseInst> instructions = new InstList<>();
 
     // phi inst will be eliminated by SSADestructor
     public ArrayList<IRPhiInst> phiInsts = new ArrayList<>();
@@ -28,15 +28,15 @@ public class IRBlock extends Value {
     // control flow graph
     public ArrayList<IRBlock> prevs = new ArrayList<>(), nexts = new ArrayList<>();
 
-    // info in DomTree, assigned in DomTreeBuilder
-    public DomTreeBuilder.Node dtNode = new DomTreeBuilder.Node(this);
+    // info in DomTree, assigned in DomTreeBuilder, null before the first dominator tree of the function
+    public DomTreeBuilder.Node dtNode = null;
 
     // info in Loop
     public int loopDepth = 0;
     public Loop belongLoop = null;
 
     public IRBlock(String label, IRFunction parentFunction) {
-        super(label, new LabelType());
+        super(label, IRTranslator.labelType);
         this.parentFunction = parentFunction;
         if (parentFunction != null) parentFunction.blocks.add(this);
     }
@@ -82,7 +82,12 @@ public class IRBlock extends Value {
     public void tAddBeforeTerminator(IRBaseInst inst) {
         inst.parentBlock = this;
         if (instructions.isEmpty()) return;
-        instructions.add(instructions.size() - 1, inst);
+        instructions.addBefore(instructions.getLast(), inst);
+    }
+
+    public void tAddBefore(IRBaseInst inst, IRBaseInst before) {
+        inst.parentBlock = this;
+        instructions.addBefore(before, inst);
     }
 
     public void tAddByIterator(IRBaseInst inst, ListIterator<IRBaseInst> it) {
@@ -108,8 +113,8 @@ public class IRBlock extends Value {
             for (int i = 1; i < phi.operandSize(); i += 2) {
                 if (phi.getOperand(i) == remove) {
                     // remove the branch
-                    phi.operands.remove(i - 1);
-                    phi.operands.remove(remove);
+                    phi.operands().remove(i - 1);
+                    phi.operands().remove(remove);
                 }
             }
             if (phi.operandSize() == 2) {
@@ -128,20 +133,6 @@ public class IRBlock extends Value {
         return instructions.getLast();
     }
 
-    public void setComment() {
-        StringBuilder ret = new StringBuilder("preds = ");
-        if (!prevs.isEmpty()) {
-            prevs.forEach(pre -> ret.append(pre.identifier()).append(", "));
-            ret.delete(ret.length() - 2, ret.length() - 1);
-        }
-        if (!nexts.isEmpty()) {
-            ret.append(" | nexts = ");
-            nexts.forEach(suc -> ret.append(suc.identifier()).append(", "));
-            ret.delete(ret.length() - 2, ret.length() - 1);
-        }
-        comment = ret.toString();
-    }
-
     // link blocks related
 
     public void linkBlock(IRBlock toBlock) {
@@ -3,6 +3,7 @@ package llvm2mlog.compiler.middleend.llvmir.hierarchy;
 import llvm2mlog.compiler.middleend.analyzer.CallGraphAnalyzer;
 import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
+import llvm2mlog.compiler.middleend.llvmir.constant.BaseConst;
 import llvm2mlog.compiler.middleend.llvmir.constant.GlobalValue;
 import llvm2mlog.compiler.middleend.llvmir.type.IRBaseType;
 import llvm2mlog.compiler.middleend.llvmir.type.IRFuncType;
@@ -27,6 +28,10 @@ public class IRFunction extends GlobalValue {
     public LLVMIRParser.FuncDefContext Source;
     public LinkedHashMap<String, Value> valueMap = new LinkedHashMap<>();
 
+    // dense numbers of blocks and local values, for analyses to keep their state in arrays and bitsets
+    private Value[] numbered = new Value[16];
+    private int numberedCount = 0, numbering = 0;
+
     public IRFunction(String name, IRFuncType funcType, IRModule parentModule) {
         // not init complete.
         // finished in IRBuilder
@@ -59,7 +64,7 @@ public class IRFunction extends GlobalValue {
     }
 
     public List Args() {
-        return this.operands;
+        return this.operands();
     }
 
     public Value getArg(int index) {
@@ -73,4 +78,51 @@ public class IRFunction extends GlobalValue {
     public IRBaseType getArgType(int index) {
         return ((IRFuncType) this.type).argTypes.get(index);
     }
+
+    /**
+     * number the blocks from 0 in their order, then the args, phis and instructions,
+     * values met later are numbered after them by number.
+     * Numbers taken before are no longer valid, analyses keeping them check numbering().
+     */
+    public void renumber() {
+        Arrays.fill(numbered, 0, numberedCount, null);
+        numberedCount = 0;
+        numbering++;
+        blocks.forEach(this::number);
+        operands().forEach(this::number);
+        for (IRBlock block : blocks) {
+            block.phiInsts.forEach(this::number);
+            block.instructions.forEach(this::number);
+        }
+    }
+
+    // the number of value, numbered now if it was not, constants and globals are shared by functions so not numbered: -1
+    public int number(Value value) {
+        if (value instanceof BaseConst) return -1;
+        int index = index(value);
+        if (index >= 0) return index;
+        if (numberedCount == numbered.length) numbered = Arrays.copyOf(numbered, numberedCount * 2);
+        numbered[numberedCount] = value;
+        return value.index = numberedCount++;
+    }
+
+    // -1: not numbered
+    public int index(Value value) {
+        int index = value.index;
+        return index >= 0 && index < numberedCount && numbered[index] == value ? index : -1;
+    }
+
+    public Value numbered(int index) {
+        return numbered[index];
+    }
+
+    // numbers are below it, removed values leave holes until renumber
+    public int numberedCount() {
+        return numberedCount;
+    }
+
+    // changes at each renumber
+    public int numbering() {
+        return numbering;
+    }
 }
@@ -40,7 +40,7 @@ public class Loop {
         }
 
         // warning: no move
-        for (IRMoveInst move : value.moveDefs) {
+        for (IRMoveInst move : value.moveDefs()) {
             if (blocks.contains(move.parentBlock)) return false;
         }
 
@@ -66,7 +66,7 @@ public class Loop {
     public boolean isInstInvariant(IRBaseInst inst, AliasAnalyzer analyzer) {
         if ((inst.mayHaveSideEffects() && !(inst instanceof IRLoadInst)) || !inst.isValueSelf()) return false;
 
-        for (Value operand : inst.operands) {
+        for (Value operand : inst.operands()) {
             if (!this.isInvariant(operand)) {
                 // Log.mark("not invariant");
                 // Log.info(inst.format());
@@ -4,14 +4,16 @@ import llvm2mlog.compiler.middleend.llvmir.User;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.type.IRBaseType;
+import llvm2mlog.compiler.share.misc.InstList;
 import llvm2mlog.compiler.share.pass.InstVisitor;
 
-public abstract class IRBaseInst extends User {
+public abstract class IRBaseInst extends User implements InstList.Node<IRBaseInst> {
 
     public IRBlock parentBlock;
-    public String instName;
 
-    public Object temp;
+    // links in the instructions of parentBlock, phi insts are not linked
+    private InstList<IRBaseInst> list;
+    private IRBaseInst prev, next;
 
     public IRBaseInst(String name, IRBaseType type, IRBlock parentBlock) {
         super(name, type);
@@ -20,7 +22,6 @@ public abstract class IRBaseInst extends User {
 
     public IRBaseInst(String name, IRBaseType type, IRBlock parentBlock, boolean frontInsert) {
         super(name, type);
-        this.instName = name; // instName is the same with value name before rename
         setParentBlockAtHead(parentBlock);
     }
 
@@ -34,12 +35,33 @@ public abstract class IRBaseInst extends User {
         if (parentBlock != null) parentBlock.instructions.addFirst(this);
     }
 
+    @Override
+    public InstList<IRBaseInst> list() {
+        return list;
+    }
+
+    // the instruction before in the block, null at the head
+    @Override
+    public IRBaseInst prev() {
+        return prev;
+    }
+
+    // the instruction after in the block, null at the terminator
+    @Override
+    public IRBaseInst next() {
+        return next;
+    }
+
+    @Override
+    public void link(InstList<IRBaseInst> list, IRBaseInst prev, IRBaseInst next) {
+        this.list = list;
+        this.prev = prev;
+        this.next = next;
+    }
+
     // before an instruction removed/replaced, call it
     public void removedFromAllUsers() {
-        for (Value value : operands) {
-            if (value != null)
-                value.users.remove(this);
-        }
+        unlinkOperands();
     }
 
     public boolean mayHaveSideEffects() {
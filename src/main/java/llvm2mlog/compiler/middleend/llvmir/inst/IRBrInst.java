@@ -1,19 +1,19 @@
 package llvm2mlog.compiler.middleend.llvmir.inst;
 
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
-import llvm2mlog.compiler.middleend.llvmir.type.VoidType;
 import llvm2mlog.compiler.share.lang.LLVM;
 import llvm2mlog.compiler.share.pass.InstVisitor;
 
 public class IRBrInst extends IRBaseInst {
     public IRBrInst(IRBlock destBlock, IRBlock parentBlock) {
-        super(LLVM.BrInst, new VoidType(), parentBlock);
+        super(LLVM.BrInst, IRTranslator.voidType, parentBlock);
         this.addOperand(destBlock);
     }
 
     public IRBrInst(Value condition, IRBlock ifTrueBlock, IRBlock ifFalseBlock, IRBlock parentBlock) {
-        super(LLVM.BrInst, new VoidType(), parentBlock);
+        super(LLVM.BrInst, IRTranslator.voidType, parentBlock);
         this.addOperand(condition);
         this.addOperand(ifTrueBlock);
         this.addOperand(ifFalseBlock);
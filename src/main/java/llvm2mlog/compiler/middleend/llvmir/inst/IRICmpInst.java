@@ -1,8 +1,8 @@
 package llvm2mlog.compiler.middleend.llvmir.inst;
 
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
-import llvm2mlog.compiler.middleend.llvmir.type.BoolType;
 import llvm2mlog.compiler.share.lang.LLVM;
 import llvm2mlog.compiler.share.pass.InstVisitor;
 
@@ -10,7 +10,7 @@ public class IRICmpInst extends IRBaseInst {
     public String op;
 
     public IRICmpInst(String op, Value lhs, Value rhs, IRBlock parentBlock) {
-        super(LLVM.ICmpInst, new BoolType(), parentBlock);
+        super(LLVM.ICmpInst, IRTranslator.boolType, parentBlock);
         this.op = op;
         this.addOperand(lhs);
         this.addOperand(rhs);
@@ -25,7 +25,7 @@ public class IRICmpInst extends IRBaseInst {
     }
 
     public boolean forBr() {
-        return this.users.size() == 1 && this.users.get(0) instanceof IRBrInst;
+        return this.users().size() == 1 && this.users().get(0) instanceof IRBrInst;
     }
 
     @Override
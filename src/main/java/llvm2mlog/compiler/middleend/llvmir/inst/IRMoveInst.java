@@ -19,7 +19,7 @@ public class IRMoveInst extends IRBaseInst {
         this.addOperand(dest);
         this.addOperand(source);
 
-        dest.moveDefs.add(this);
+        dest.addMoveDef(this);
     }
 
     public Value dest() {
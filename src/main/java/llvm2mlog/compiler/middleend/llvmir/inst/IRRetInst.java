@@ -1,15 +1,15 @@
 package llvm2mlog.compiler.middleend.llvmir.inst;
 
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
-import llvm2mlog.compiler.middleend.llvmir.type.VoidType;
 import llvm2mlog.compiler.share.lang.LLVM;
 import llvm2mlog.compiler.share.pass.InstVisitor;
 
 public class IRRetInst extends IRBaseInst {
 
     public IRRetInst(IRBlock parentBlock) {
-        super(LLVM.RetInst, new VoidType(), parentBlock);
+        super(LLVM.RetInst, IRTranslator.voidType, parentBlock);
     }
 
     public IRRetInst(Value retVal, IRBlock parentBlock) {
@@ -17,7 +17,7 @@ public abstract class IRURWInst extends IRBaseInst {
     }
 
     public IRURWInst addData(Value value) {
-        this.operands.add(value);
+        this.operands().add(value);
         return this;
     }
 
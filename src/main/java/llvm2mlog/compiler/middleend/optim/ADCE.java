@@ -1,14 +1,14 @@
 package llvm2mlog.compiler.middleend.optim;
 
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
-import llvm2mlog.compiler.middleend.analyzer.DomTreeBuilder;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBrInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRLoadInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRPhiInst;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
 import java.util.*;
@@ -30,6 +30,7 @@ public class ADCE implements IRFuncPass {
 
     private final Set<IRBaseInst> liveInst = new HashSet<>();
     private final Set<IRBlock> liveBlock = new HashSet<>();
+    private int removed = 0, branchesRemoved = 0;
 
     private List<IRBlock> getCD(IRBlock block) {
         return block.dtNode.domFrontier;
@@ -41,8 +42,6 @@ public class ADCE implements IRFuncPass {
     }
 
     private void init(IRFunction function) {
-        new CFGBuilder().runOnFunc(function);
-        new DomTreeBuilder(true).runOnFunc(function);
         /*
         Log.mark("ADCE: " + function.identifier());
 
@@ -60,8 +59,8 @@ public class ADCE implements IRFuncPass {
     }
 
     private void markInstLive(IRBaseInst inst) {
-        if (!inst.moveDefs.isEmpty() && inst instanceof IRPhiInst) {
-            inst.moveDefs.forEach(this::markInstLive);
+        if (!inst.moveDefs().isEmpty() && inst instanceof IRPhiInst) {
+            inst.moveDefs().forEach(this::markInstLive);
         } else {
             if (!liveInst.contains(inst)) {
                 liveInst.add(inst);
@@ -84,6 +83,21 @@ public class ADCE implements IRFuncPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.CFG, Analysis.PostDomTree);
+    }
+
+    @Override
+    public boolean changed() {
+        return removed + branchesRemoved > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("ADCE", function.identifier());
 
         init(function);
@@ -96,7 +110,7 @@ public class ADCE implements IRFuncPass {
             markInstLive(inst);
             markBlockLive(inst.parentBlock);
 
-            inst.operands.forEach(operand -> {
+            inst.operands().forEach(operand -> {
                 if (operand instanceof IRBaseInst) {
                     markInstLive((IRBaseInst) operand);
                 } else if (operand instanceof IRBlock) markTerminator((IRBlock) operand);
@@ -117,13 +131,17 @@ public class ADCE implements IRFuncPass {
                             inst.removedFromAllUsers();
                             var newTerminator = new IRBrInst(newDest, null);
                             block.tReplaceTerminator(newTerminator);
+                            branchesRemoved++;
                         }
                     } else {
                         inst.removedFromAllUsers();
                         it.remove();
+                        removed++;
                     }
                 }
             }
         }
+        manager.count("instruction removed", removed);
+        manager.count("branch removed", branchesRemoved);
     }
 }
@@ -1,14 +1,16 @@
 package llvm2mlog.compiler.middleend.optim;
 
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBrInst;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
 import java.util.HashSet;
+import java.util.Set;
 
 /**
  * This pass simplifies CFG (control flow graph) by:
@@ -20,6 +22,8 @@ import java.util.HashSet;
  */
 
 public class CFGSimplifier implements IRFuncPass {
+    private int merged = 0, removed = 0;
+
     private boolean removeUnreachableBlock(IRFunction function) {
         HashSet<IRBlock> toRemoveSet = new HashSet<>();
 
@@ -57,6 +61,7 @@ public class CFGSimplifier implements IRFuncPass {
             toRemove.nexts.clear();
         }
 
+        this.removed += toRemoveSet.size();
         return toRemoveSet.size() > 1;
     }
 
@@ -100,7 +105,7 @@ public class CFGSimplifier implements IRFuncPass {
                 for (IRBaseInst phi : beMerged.phiInsts) phi.setParentBlock(preBlock);
 
                 // terminate it also
-                for (IRBaseInst inst : beMerged.instructions) inst.setParentBlock(preBlock);
+                while (!beMerged.instructions.isEmpty()) beMerged.instructions.removeFirst().setParentBlock(preBlock);
 
                 if (function.exitBlock == beMerged) function.exitBlock = preBlock;
 
@@ -108,6 +113,7 @@ public class CFGSimplifier implements IRFuncPass {
                 it.remove();
 
                 changed = true;
+                merged++;
             }
         }
 
@@ -116,13 +122,39 @@ public class CFGSimplifier implements IRFuncPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return Set.of(Analysis.CFG);
+    }
+
+    // a function it leaves as it was keeps everything
+    @Override
+    public Set<Analysis> preserves() {
+        return Analysis.All;
+    }
+
+    @Override
+    public boolean changed() {
+        return merged + removed > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("CFG Simplifier", function.identifier());
         boolean changed = true;
 
         while (changed) {
-            new CFGBuilder().runOnFunc(function);
+            int blocks = function.blocks.size();
             changed = mergeBlocks(function);
             changed |= removeUnreachableBlock(function);
+            // merging and removing both take blocks out
+            if (function.blocks.size() != blocks) manager.invalidateAll();
+            if (changed) manager.require(Analysis.CFG);
         }
+        manager.count("block merged", merged);
+        manager.count("block removed", removed);
     }
 }
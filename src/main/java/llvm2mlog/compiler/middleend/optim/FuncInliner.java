@@ -83,7 +83,7 @@ public class FuncInliner implements IRModulePass {
     }
 
     private void replaceOperand(User user, Map<Value, Value> replaceMap) {
-        for (int i = 0; i < user.operands.size(); i++) {
+        for (int i = 0; i < user.operands().size(); i++) {
             if (replaceMap.containsKey(user.getOperand(i)))
                 user.resetOperand(i, replaceMap.get(user.getOperand(i)));
         }
@@ -156,8 +156,8 @@ public class FuncInliner implements IRModulePass {
             IRBaseInst inst = it.next();
             if (inst == call) splitStart = true;
             if (!splitStart) continue;
-            if (inst != call) inst.setParentBlock(inlineExit);
             it.remove();
+            if (inst != call) inst.setParentBlock(inlineExit);
         }
 
         // call parentBlock to inline.entry
@@ -1,15 +1,17 @@
 package llvm2mlog.compiler.middleend.optim;
 
 import llvm2mlog.compiler.middleend.analyzer.AliasAnalyzer;
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
-import llvm2mlog.compiler.middleend.analyzer.DomTreeBuilder;
-import llvm2mlog.compiler.middleend.analyzer.LoopAnalyzer;
 import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
+import llvm2mlog.compiler.middleend.llvmir.constant.BoolConst;
+import llvm2mlog.compiler.middleend.llvmir.constant.NullptrConst;
+import llvm2mlog.compiler.middleend.llvmir.constant.NumConst;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.inst.*;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
 import java.util.*;
@@ -18,7 +20,7 @@ import java.util.*;
  * Global Value Numbering Pass
  * <p>
  * numbering every value with special hashCode
- * numbering Inst with the hashCode of the ArrayList
+ * numbering Inst with the hashCode of its class, op and operand numbers
  * do some simple load eliminate (if no side effect before or in this Loop)
  * <p>
  * WARNING:
@@ -30,8 +32,16 @@ import java.util.*;
 
 public class GVN implements IRFuncPass {
 
-    private final AliasAnalyzer analyzer = new AliasAnalyzer();
+    private AliasAnalyzer analyzer;
     private final Stack<NumberScope> scopeStack = new Stack<NumberScope>();
+    // numbering state belongs to one GVN run, so functions can be numbered in parallel
+    // indexed by the numbers of the function, constants and the copies for commutative lookup are in others
+    private IRFunction function;
+    private ValueNumber[] value2Num = new ValueNumber[0];
+    private final HashMap<Value, ValueNumber> others = new HashMap<>();
+    private final BitSet invalidatedLoads = new BitSet();
+    private final ArrayList<ValueNumber> loadCollection = new ArrayList<>();
+    private int replaced = 0;
 
     private static boolean numberTarget(Value value) {
         return value instanceof IRBinaryInst ||
@@ -43,8 +53,35 @@ public class GVN implements IRFuncPass {
                 value instanceof IRLoadInst;
     }
 
+    /*
+     * used in num2Value
+     * first use hashCode (only the info of operands)
+     * next use equals
+     */
+
+    private ValueNumber getNumber(Value value) {
+        // a copy is in no block
+        int index = value instanceof IRBaseInst && ((IRBaseInst) value).parentBlock == null ? -1 : function.number(value);
+        if (index < 0) {
+            if (others.containsKey(value)) return others.get(value);
+            var vn = new ValueNumber(value);
+            others.put(value, vn);
+            return vn;
+        }
+        if (index < value2Num.length && value2Num[index] != null) return value2Num[index];
+        var vn = new ValueNumber(value);
+        if (index >= value2Num.length) value2Num = Arrays.copyOf(value2Num, Math.max(index + 1, value2Num.length * 2));
+        value2Num[index] = vn;
+        return vn;
+    }
+
+    private boolean invalidated(Value load) {
+        int index = function.index(load);
+        return index >= 0 && invalidatedLoads.get(index);
+    }
+
     private Value getAlias(Value value) {
-        var num = ValueNumber.getNumber(value);
+        var num = getNumber(value);
         Value ret = null;
 
         for (int i = scopeStack.size() - 1; i >= 0; i--) {
@@ -65,7 +102,7 @@ public class GVN implements IRFuncPass {
         for (int i = scopeStack.size() - 1; i >= 0; i--) {
             scopeStack.get(i).removeAllLoads();
         }
-        NumberScope.loadCollection.clear();
+        loadCollection.clear();
     }
 
     private void eliminate(IRBlock block) {
@@ -85,6 +122,7 @@ public class GVN implements IRFuncPass {
                     if (vInst != null && checkLoad(inst)) {
                         it.remove();
                         inst.replaceAllUsesWith(vInst);
+                        replaced++;
                     } else {
                         // Log.info("null", inst.format());
                         curScope.set(inst);
@@ -102,55 +140,64 @@ public class GVN implements IRFuncPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.Alias, Analysis.CFG, Analysis.DomTree, Analysis.Loops);
+    }
+
+    // only instructions go away
+    @Override
+    public Set<Analysis> preserves() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree, Analysis.Loops);
+    }
+
+    @Override
+    public boolean changed() {
+        return replaced > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("GVN", function.identifier(), function.blocks.size());
-        analyzer.runOnFunc(function);
-        ValueNumber.init();
-        new CFGBuilder().runOnFunc(function);
-        new DomTreeBuilder(false).runOnFunc(function);
-        new LoopAnalyzer().runOnFunc(function);
+        analyzer = manager.alias();
+        this.function = function;
+        value2Num = new ValueNumber[function.numberedCount()];
+        others.clear();
+        invalidatedLoads.clear();
         eliminate(function.entryBlock);
+        manager.count("value replaced", replaced);
     }
 
-    private static class ValueNumber {
-        static HashMap<Value, ValueNumber> value2NumMap = new HashMap<>();
-        static HashSet<IRLoadInst> invalidatedLoads = new HashSet<>();
+    private class ValueNumber {
         Value value;
         ArrayList<ValueNumber> operandNum;
+        // agrees with equals: constants equal by their data, other values only to themselves
+        final int hash;
 
         public ValueNumber(Value value) {
             this.value = value;
             if (GVN.numberTarget(value)) {
                 this.operandNum = new ArrayList<>();
-                for (Value operand : ((IRBaseInst) value).operands)
-                    this.operandNum.add(getNumber(operand));
-            }
-        }
-
-        static void init() {
-            value2NumMap.clear();
-            invalidatedLoads.clear();
-        }
-
-        /*
-         * used in num2Value
-         * first use hashCode (only the info of operands)
-         * next use equals
-         */
-
-        static ValueNumber getNumber(Value value) {
-            if (value2NumMap.containsKey(value)) return value2NumMap.get(value);
-            var vn = new ValueNumber(value);
-            value2NumMap.put(value, vn);
-            return vn;
+                int hash = value.getClass().hashCode();
+                if (value instanceof IRBinaryInst) hash = hash * 31 + Objects.hashCode(((IRBinaryInst) value).op);
+                if (value instanceof IRICmpInst) hash = hash * 31 + Objects.hashCode(((IRICmpInst) value).op);
+                for (Value operand : ((IRBaseInst) value).operands()) {
+                    var num = getNumber(operand);
+                    this.operandNum.add(num);
+                    hash = hash * 31 + num.hash;
+                }
+                this.hash = hash;
+            } else if (value instanceof NumConst || value instanceof BoolConst || value instanceof NullptrConst) {
+                this.hash = value.identifier().hashCode();
+            } else this.hash = System.identityHashCode(value);
         }
 
         @Override
         public int hashCode() {
-            // instance of inst
-            if (this.operandNum != null) {
-                return 233; // map to the same code, use equals to judge
-            }
-            return this.value.hashCode();
+            return hash;
         }
 
         @Override
@@ -186,34 +233,33 @@ public class GVN implements IRFuncPass {
             } else if (inst1 instanceof IRGetElementPtrInst) {
                 return true;
             } else if (inst1 instanceof IRLoadInst) {
-                return !invalidatedLoads.contains(inst1) && !invalidatedLoads.contains(inst2);
+                return !invalidated(inst1) && !invalidated(inst2);
             }
 
             return false;
         }
     }
 
-    private static class NumberScope {
+    private class NumberScope {
 
-        static ArrayList<ValueNumber> loadCollection = new ArrayList<>();
         HashMap<ValueNumber, Value> num2ValueMap = new HashMap<>();
 
         void set(Value value) {
-            num2ValueMap.put(ValueNumber.getNumber(value), value);
+            num2ValueMap.put(getNumber(value), value);
 
             if (value instanceof IRBinaryInst && IRTranslator.isCommunicative(((IRBinaryInst) value).op)) {
                 IRBaseInst newInst = ((IRBinaryInst) value).copy();
-                Collections.reverse(newInst.operands);
+                Collections.reverse(newInst.operands());
                 // notice: this is for mapping "add a b" and "add b a" to the same value
                 // so newInst is just for indexing, not used as a value
-                num2ValueMap.put(ValueNumber.getNumber(newInst), value);
+                num2ValueMap.put(getNumber(newInst), value);
             } else if (value instanceof IRICmpInst && IRTranslator.isCommunicative(((IRICmpInst) value).op)) {
                 IRBaseInst newInst = ((IRICmpInst) value).copy();
-                Collections.reverse(newInst.operands);
-                num2ValueMap.put(ValueNumber.getNumber(newInst), value);
+                Collections.reverse(newInst.operands());
+                num2ValueMap.put(getNumber(newInst), value);
             }
 
-            if (value instanceof IRLoadInst) loadCollection.add(ValueNumber.getNumber(value));
+            if (value instanceof IRLoadInst) loadCollection.add(getNumber(value));
         }
 
         Value getValue(ValueNumber number) {
@@ -226,7 +272,7 @@ public class GVN implements IRFuncPass {
         void removeAllLoads() {
             loadCollection.forEach(load -> {
                 num2ValueMap.remove(load);
-                ValueNumber.invalidatedLoads.add((IRLoadInst) load.value);
+                invalidatedLoads.set(function.number(load.value));
             });
         }
     }
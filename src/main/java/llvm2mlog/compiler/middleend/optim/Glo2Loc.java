@@ -44,7 +44,7 @@ public class Glo2Loc implements IRFuncPass {
 
     private boolean constantDetect(GlobalVariable global) {
         if (global.initValue == null) return false;
-        for (User use : global.users) {
+        for (User use : global.users()) {
             if (use instanceof IRStoreInst &&
                     !Objects.equals(((IRStoreInst) use).parentBlock.parentFunction.name, LLVM.InitFuncName)) {
                 return false;
@@ -146,7 +146,7 @@ public class Glo2Loc implements IRFuncPass {
             // replace all load with initValue, remove all loads
             // remove the only store
 
-            for (User use : global.users) {
+            for (User use : global.users()) {
                 assert use instanceof IRBaseInst;
                 if (use instanceof IRLoadInst) use.replaceAllUsesWith(global.initValue);
                 ((IRBaseInst) use).parentBlock.instructions.remove(use);
@@ -1,6 +1,5 @@
 package llvm2mlog.compiler.middleend.optim;
 
-import llvm2mlog.compiler.middleend.analyzer.LoopAnalyzer;
 import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.constant.NumConst;
@@ -11,12 +10,16 @@ import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBinaryInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRPhiInst;
 import llvm2mlog.compiler.share.lang.LLVM;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
 import llvm2mlog.compiler.share.pass.IRLoopPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Induction Variable Related Transform
@@ -33,6 +36,7 @@ import java.util.Objects;
 public class IVTrans implements IRFuncPass, IRLoopPass {
     private final HashMap<Value, BIV> basicIV = new HashMap<>();
     private final HashMap<Value, IV> derivedIV = new HashMap<>();
+    private int reduced = 0;
 
     @Override
     public void runOnLoop(Loop loop) {
@@ -146,28 +150,46 @@ public class IVTrans implements IRFuncPass, IRLoopPass {
                 biv.initBLock.tAddBeforeTerminator((IRBaseInst) newInit);
             }
 
-            var it = biv.incr.parentBlock.instructions.listIterator(
-                    biv.incr.parentBlock.instructions.indexOf(biv.incr)
-            );
-
             var newPhi = new IRPhiInst(IRTranslator.i32Type, null, newInit, biv.initBLock);
             var newIncr = new IRBinaryInst(neg ? LLVM.SubInst : LLVM.AddInst, IRTranslator.i32Type, newPhi, newStep, null);
 
-            biv.incr.parentBlock.tAddByIterator(newIncr, it);
+            biv.incr.parentBlock.tAddBefore(newIncr, biv.incr);
             newPhi.addBranch(newIncr, newIncr.parentBlock);
             loop.header.tAddPhi(newPhi);
 
             key.replaceAllUsesWith(newPhi);
             key.parentBlock.instructions.remove(key);
+            reduced++;
         }
     }
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.Loops);
+    }
+
+    // new phis and increments go into the blocks of the loop
+    @Override
+    public Set<Analysis> preserves() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree, Analysis.Loops);
+    }
+
+    @Override
+    public boolean changed() {
+        return reduced > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("IV Trans", function.identifier());
 
-        new LoopAnalyzer().runOnFunc(function);
         function.topLevelLoops.forEach(this::runOnLoop);
+        manager.count("strength reduced", reduced);
     }
 
     private static class IV {
@@ -54,18 +54,18 @@ public class InstAdapter implements IRFuncPass, IRBlockPass {
             }*/
 
             if (inst instanceof IRCallInst && Objects.equals(((IRCallInst) inst).callFunc(), module.getBuiltinFunction("toString"))) {
-                if (inst.users.size() == 1 && inst.users.get(0) instanceof IRCallInst) {
-                    if (((IRCallInst) inst.users.get(0)).callFunc() == module.getBuiltinFunction("print")) {
+                if (inst.users().size() == 1 && inst.users().get(0) instanceof IRCallInst) {
+                    if (((IRCallInst) inst.users().get(0)).callFunc() == module.getBuiltinFunction("print")) {
                         inst.removedFromAllUsers();
                         block.tSetByIterator(new IRCallInst(module.getBuiltinFunction("printInt"), null, ((IRCallInst) inst).getArg(0)),
                                 it);
-                        toRemove.add((IRBaseInst) inst.users.get(0));
+                        toRemove.add((IRBaseInst) inst.users().get(0));
                     }
-                    if (((IRCallInst) inst.users.get(0)).callFunc() == module.getBuiltinFunction("println")) {
+                    if (((IRCallInst) inst.users().get(0)).callFunc() == module.getBuiltinFunction("println")) {
                         inst.removedFromAllUsers();
                         block.tSetByIterator(new IRCallInst(module.getBuiltinFunction("printlnInt"), null, ((IRCallInst) inst).getArg(0)),
                                 it);
-                        toRemove.add((IRBaseInst) inst.users.get(0));
+                        toRemove.add((IRBaseInst) inst.users().get(0));
                     }
                 }
             }
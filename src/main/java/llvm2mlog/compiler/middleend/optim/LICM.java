@@ -1,21 +1,23 @@
 package llvm2mlog.compiler.middleend.optim;
 
 import llvm2mlog.compiler.middleend.analyzer.AliasAnalyzer;
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
-import llvm2mlog.compiler.middleend.analyzer.LoopAnalyzer;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.Loop;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRBrInst;
 import llvm2mlog.compiler.share.lang.LLVM;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
 import llvm2mlog.compiler.share.pass.IRLoopPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * Loop Invariant Code Motion
@@ -25,18 +27,61 @@ import java.util.LinkedHashSet;
 
 public class LICM implements IRFuncPass, IRLoopPass {
 
-    private final AliasAnalyzer analyzer = new AliasAnalyzer();
+    private PassManager manager;
+    private AliasAnalyzer analyzer;
     private final HashSet<IRBaseInst> motionAble = new LinkedHashSet<>();
+    private int hoisted = 0, preHeadersCreated = 0;
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.CFG, Analysis.Loops);
+    }
+
+    // pre headers change the CFG and the loops, moving instructions does not change what may alias
+    @Override
+    public Set<Analysis> preserves() {
+        return EnumSet.of(Analysis.Alias);
+    }
+
+    @Override
+    public boolean changed() {
+        return hoisted + preHeadersCreated > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.info("LICM", function.identifier());
-        new CFGBuilder().runOnFunc(function);
-        new LoopAnalyzer().runOnFunc(function);
+        this.manager = manager;
         function.topLevelLoops.forEach(this::runOnLoop);
+        manager.count("instruction hoisted", hoisted);
+        manager.count("pre header created", preHeadersCreated);
+    }
+
+    // the only block entering the loop, if it enters with a jump, already is one:
+    // a new pre header would be merged into it by CFGSimplifier, and the loop would never look done
+    private IRBlock existingPreHeader(Loop loop) {
+        IRBlock found = null;
+        for (var pre : loop.header.prevs) {
+            if (loop.tailers.contains(pre)) continue;
+            if (found != null) return null;
+            found = pre;
+        }
+        return found != null && found.nexts.size() == 1 ? found : null;
     }
 
     private void createPreHeader(Loop loop) {
+        var existing = existingPreHeader(loop);
+        if (existing != null) {
+            loop.preHeader = existing;
+            return;
+        }
+        preHeadersCreated++;
+
         var preHeader = new IRBlock(LLVM.PreHeaderBlockLabel, loop.header.parentFunction);
         loop.preHeader = preHeader;
         ArrayList<IRBlock> headerPrevs = new ArrayList<>(loop.header.prevs);
@@ -77,6 +122,7 @@ public class LICM implements IRFuncPass, IRLoopPass {
 
             inst.parentBlock.instructions.remove(inst);
             loop.preHeader.tAddBeforeTerminator(inst);
+            hoisted++;
         }
 
         motionAble.clear();
@@ -92,7 +138,7 @@ public class LICM implements IRFuncPass, IRLoopPass {
 
         createPreHeader(loop);
         while (true) {
-            analyzer.runOnFunc(loop.header.parentFunction);
+            analyzer = manager.alias();
             collectMotionAble(loop);
 
             // Log.mark("motion able");
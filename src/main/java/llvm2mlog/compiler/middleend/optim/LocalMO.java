@@ -1,8 +1,6 @@
 package llvm2mlog.compiler.middleend.optim;
 
 import llvm2mlog.compiler.middleend.analyzer.AliasAnalyzer;
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
-import llvm2mlog.compiler.middleend.analyzer.DomTreeBuilder;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
@@ -10,13 +8,17 @@ import llvm2mlog.compiler.middleend.llvmir.inst.IRBaseInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRCallInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRLoadInst;
 import llvm2mlog.compiler.middleend.llvmir.inst.IRStoreInst;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRBlockPass;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.debug.Log;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * Local Memory-related Optimization Pass
@@ -26,7 +28,7 @@ import java.util.Queue;
 
 public class LocalMO implements IRFuncPass, IRBlockPass {
 
-    AliasAnalyzer analyzer = new AliasAnalyzer();
+    AliasAnalyzer analyzer;
 
     // load match load, store match store
     // invaildate:
@@ -34,6 +36,7 @@ public class LocalMO implements IRFuncPass, IRBlockPass {
     // load: write after read, store: write after write
     HashSet<IRLoadInst> loadRecord = new HashSet<>();
     HashSet<IRStoreInst> storeRecord = new HashSet<>();
+    private int loadsRemoved = 0, storesRemoved = 0;
 
     private Value recordMatch(IRBaseInst inst) {
         if (inst instanceof IRLoadInst) {
@@ -75,13 +78,34 @@ public class LocalMO implements IRFuncPass, IRBlockPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.Alias, Analysis.CFG, Analysis.DomTree);
+    }
+
+    // only loads and stores go away
+    @Override
+    public Set<Analysis> preserves() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree, Analysis.Loops);
+    }
+
+    @Override
+    public boolean changed() {
+        return loadsRemoved + storesRemoved > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("local mem opt", function.identifier());
 
-        analyzer.runOnFunc(function);
-        new CFGBuilder().runOnFunc(function);
-        new DomTreeBuilder(false).runOnFunc(function);
+        analyzer = manager.alias();
 
         function.blocks.forEach(this::runOnBlock);
+        manager.count("load removed", loadsRemoved);
+        manager.count("store removed", storesRemoved);
     }
 
     @Override
@@ -123,6 +147,7 @@ public class LocalMO implements IRFuncPass, IRBlockPass {
                 if (replace != null) {
                     it.remove();
                     inst.replaceAllUsesWith(replace);
+                    loadsRemoved++;
                 } else {
                     loadRecord.add((IRLoadInst) inst);
                 }
@@ -130,6 +155,7 @@ public class LocalMO implements IRFuncPass, IRBlockPass {
                 var replace = recordMatch(inst);
                 if (replace != null) {
                     it.remove();
+                    storesRemoved++;
                 } else {
                     invalidate(inst);
                     storeRecord.add((IRStoreInst) inst);
@@ -157,6 +183,7 @@ public class LocalMO implements IRFuncPass, IRBlockPass {
                     if (replace != null) {
                         it.remove();
                         inst.replaceAllUsesWith(replace);
+                        loadsRemoved++;
                     }
                 } else if (inst instanceof IRStoreInst || inst instanceof IRCallInst) {
                     break;
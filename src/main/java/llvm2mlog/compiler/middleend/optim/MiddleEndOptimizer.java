@@ -6,61 +6,145 @@ import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
 import llvm2mlog.compiler.middleend.optim.ssa.Mem2Reg;
 import llvm2mlog.compiler.middleend.optim.ssa.SSADestructor;
+import llvm2mlog.compiler.share.misc.ParallelFor;
+import llvm2mlog.compiler.share.pass.IRFuncPass;
 import llvm2mlog.compiler.share.pass.IRModulePass;
+import llvm2mlog.compiler.share.pass.PassManager;
+import llvm2mlog.debug.Log;
+import llvm2mlog.debug.Statistics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 
 // Mem2Reg eliminates allocate
 // SSADestructor is necessary to eliminate phi
 // CFGSimplifier (merge block) must be ahead of SSADestructor for the correct insertion of move
 
+// CallGraphAnalyzer and Glo2Loc look at (and rewrite) other functions, they are barriers.
+// After them every pass only touches its own function, so all rounds of one function
+// can run before the next function starts, and different functions can run in parallel.
+
+// The passes of one function share a PassManager, an analysis is only computed again after
+// a pass that may have changed it.
+
+// The round passes run until none of them changes the function, or the budget is used up.
+// A pass is skipped while nothing changed since it last ran and found nothing to do,
+// it would find nothing again, so a function reaching its fixed point within 7 rounds
+// comes out as it did from 7 blind rounds.
+
 public class MiddleEndOptimizer implements IRModulePass {
 
+    public static final int DefaultMaxRounds = 16;
+
+    private static final List<Supplier<IRFuncPass>> Round = List.of(
+            CFGSimplifier::new, GVN::new, SCCP::new, ADCE::new, CFGSimplifier::new,
+            IVTrans::new, LICM::new, LocalMO::new, CFGSimplifier::new);
+
+    // null: optimize functions one by one
+    private final ForkJoinPool pool;
+    // functions whose code comes from an earlier compilation, they are not optimized
+    private final Set<IRFunction> reused;
+    private final Statistics statistics;
+    // false: every pass computes its analyses again, as the benchmark compares
+    public boolean cacheAnalyses = true;
+    // a function not at a fixed point after so many rounds is left as it is
+    public int maxRounds = DefaultMaxRounds;
+    // 0: no bound, otherwise no round starts after so many milliseconds on one function,
+    // which makes the output depend on the speed of the machine
+    public long roundMillis = 0;
+    // the rounds each function ran, the last one changed nothing unless the budget ended it
+    public final Map<IRFunction, Integer> rounds = new ConcurrentHashMap<>();
+
+    public MiddleEndOptimizer() {
+        this(null);
+    }
+
+    public MiddleEndOptimizer(ForkJoinPool pool) {
+        this(pool, Set.of());
+    }
+
+    public MiddleEndOptimizer(ForkJoinPool pool, Set<IRFunction> reused) {
+        this(pool, reused, new Statistics());
+    }
+
+    public MiddleEndOptimizer(ForkJoinPool pool, Set<IRFunction> reused, Statistics statistics) {
+        this.pool = pool;
+        this.reused = reused;
+        this.statistics = statistics;
+    }
+
     @Override
     public void runOnModule(IRModule module) {
 
-        new CallGraphAnalyzer().runOnModule(module);
+        statistics.measure("CallGraphAnalyzer", Statistics.Module, () -> new CallGraphAnalyzer().runOnModule(module));
 
+        // a reused function still runs Glo2Loc, which may rewrite the others
         for (IRFunction function : module.functions) {
-            new Glo2Loc().runOnFunc(function);
-            new Mem2Reg().runOnFunc(function);
+            statistics.measure("Glo2Loc", function.identifier(), () -> new Glo2Loc().runOnFunc(function));
+            if (!reused.contains(function))
+                new PassManager(function, cacheAnalyses, statistics).run(new Mem2Reg());
         }
 
-        for (int i = 1; i <= 7; i++) {
+//      new FuncInliner(false).runOnModule(module); (module pass, would be a barrier between rounds)
 
-//          new FuncInliner(false).runOnModule(module);
+        ParallelFor.forEach(pool, module.functions, function -> {
+            if (!reused.contains(function)) optimize(function);
+        });
+    }
+
+    private void optimize(IRFunction function) {
+        PassManager manager = new PassManager(function, cacheAnalyses, statistics);
+        long deadline = System.nanoTime() + roundMillis * 1_000_000;
 
-            for (IRFunction function : module.functions) {
-                new CFGSimplifier().runOnFunc(function);
-                new GVN().runOnFunc(function);
-                new SCCP().runOnFunc(function);
-                new ADCE().runOnFunc(function);
-                new CFGSimplifier().runOnFunc(function);
-                new IVTrans().runOnFunc(function);
-                new LICM().runOnFunc(function);
-                new LocalMO().runOnFunc(function);
-                new CFGSimplifier().runOnFunc(function);
+        // the number of changes to the function when a pass last ran and changed nothing, -1: it changed something
+        int[] cleanAt = new int[Round.size()];
+        Arrays.fill(cleanAt, -1);
+        int changes = 0, round = 0, skipped = 0;
+        boolean fixedPoint = false;
+        while (!fixedPoint && round < maxRounds && (roundMillis == 0 || round == 0 || System.nanoTime() < deadline)) {
+            round++;
+            fixedPoint = true;
+            for (int i = 0; i < Round.size(); i++) {
+                if (cleanAt[i] == changes) {
+                    skipped++;
+                    continue;
+                }
+                if (manager.run(Round.get(i).get())) {
+                    changes++;
+                    cleanAt[i] = -1;
+                    fixedPoint = false;
+                } else cleanAt[i] = changes;
             }
         }
+        rounds.put(function, round);
+        Log.info("rounds", function.identifier(), round, fixedPoint ? "fixed point" : "budget used up");
+        statistics.plus("optimize round", round);
+        statistics.count("MiddleEndOptimizer", function.identifier(), "round", round);
+        statistics.plus("pass skipped", skipped);
+        if (!fixedPoint) statistics.plus("fixed point not reached");
 
-//        new FuncInliner(true).runOnModule(module);
-
-        for (IRFunction function : module.functions) {
-            new GVN().runOnFunc(function);
-            new CFGSimplifier().runOnFunc(function);
-            new ADCE().runOnFunc(function);
-            new CFGSimplifier().runOnFunc(function);
-            new LICM().runOnFunc(function);
-            new CFGSimplifier().runOnFunc(function);
-        }
+        manager.run(new GVN());
+        manager.run(new CFGSimplifier());
+        manager.run(new ADCE());
+        manager.run(new CFGSimplifier());
+        manager.run(new LICM());
+        manager.run(new CFGSimplifier());
 
         // re-analyze info for asm
-        for (IRFunction function : module.functions) {
-            new SSADestructor().runOnFunc(function);
-            new CFGSimplifier().runOnFunc(function);
-            new LocalMO().runOnFunc(function);
-            new TRO().runOnFunc(function);
-            new LoopAnalyzer().runOnFunc(function);
-//            new InstAdapter().runOnFunc(function);
-        }
+        manager.run(new SSADestructor());
+        manager.run(new CFGSimplifier());
+        manager.run(new LocalMO());
+        manager.run(new TRO());
+        manager.run(new LoopAnalyzer());
+//      new InstAdapter().runOnFunc(function);
+
+        statistics.plus("analysis computed", manager.computed());
+        statistics.plus("analysis reused", manager.reused());
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package llvm2mlog.compiler.middleend.optim;
 
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.constant.*;
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
@@ -9,9 +8,11 @@ import llvm2mlog.compiler.middleend.llvmir.inst.*;
 import llvm2mlog.compiler.middleend.llvmir.type.NumType;
 import llvm2mlog.compiler.share.error.codegen.InternalError;
 import llvm2mlog.compiler.share.lang.LLVM;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRBlockPass;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
 import llvm2mlog.compiler.share.pass.InstVisitor;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.compiler.share.warn.ZeroDivisionWarning;
 import llvm2mlog.debug.Log;
 
@@ -33,31 +34,45 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
     private final BaseConst uncertain = new BaseConst(LLVM.UncertainConst, null);
     /**
      * Three status for LatticeCell:
-     * undef: null or not in Map
-     * def: map to a constant
-     * uncertain: map to uncertain
+     * undef: null
+     * def: a constant
+     * uncertain: uncertain
+     * indexed by the numbers of the function, renumbered each round
      */
-    private final Map<Value, BaseConst> lattice = new HashMap<>();
-    private final Set<IRBlock> executable = new HashSet<>();
-    private final Set<IRBlock> removed = new HashSet<>();
+    private IRFunction function;
+    private BaseConst[] lattice = new BaseConst[0];
+    // numbers of the executable blocks
+    private final BitSet executable = new BitSet();
 
     private final Queue<Value> valueWorklist = new LinkedList<>();
     private final Queue<IRBlock> blockWorklist = new LinkedList<>();
+    private int blocksRemoved = 0, foldedInsts = 0, foldedBranches = 0;
 
     private BaseConst getConst(Value value) {
         if (value instanceof BaseConst) {
             if (value instanceof GlobalValue) return uncertain;
             return (BaseConst) value;
         }
-        if (!lattice.containsKey(value)) lattice.put(value, null);
-        return lattice.get(value);
+        int index = function.number(value);
+        return index < lattice.length ? lattice[index] : null;
+    }
+
+    private void setConst(Value value, BaseConst con) {
+        int index = function.number(value);
+        if (index >= lattice.length) lattice = Arrays.copyOf(lattice, Math.max(index + 1, lattice.length * 2));
+        lattice[index] = con;
+    }
+
+    private boolean isExecutable(Value block) {
+        int index = function.index(block);
+        return index >= 0 && executable.get(index);
     }
 
     private boolean removeUnexecutableBlock(IRFunction function) {
         HashSet<IRBlock> toRemoveSet = new HashSet<>();
 
         for (IRBlock toRemove : function.blocks) {
-            if (executable.contains(toRemove) || removed.contains(toRemove)) continue;
+            if (isExecutable(toRemove)) continue;
 
             // remove toRemove
             toRemoveSet.add(toRemove);
@@ -86,7 +101,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
         }
 
         function.blocks.removeAll(toRemoveSet);
-        removed.addAll(toRemoveSet);
+        blocksRemoved += toRemoveSet.size();
         return toRemoveSet.size() > 0;
     }
 
@@ -100,6 +115,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
                 if (instConst != null && instConst != uncertain) {
                     ret = true;
                     it.remove();
+                    foldedInsts++;
                 }
 
                 if (inst instanceof IRMoveInst) {
@@ -107,6 +123,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
                     if (destConst != null && destConst != uncertain) {
                         ret = true;
                         it.remove();
+                        foldedInsts++;
                     }
                 }
             }
@@ -118,6 +135,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
                 if (instConst != null && instConst != uncertain) {
                     ret = true;
                     phiIt.remove();
+                    foldedInsts++;
                 }
             }
         }
@@ -143,16 +161,18 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
             anotherDest.removePhiBranch(block);
 
             ret = true;
+            foldedBranches++;
         }
         return ret;
     }
 
     private void replaceUses() {
-        lattice.forEach((val, con) -> {
+        for (int i = 0; i < lattice.length; i++) {
+            BaseConst con = lattice[i];
             if (con != null && con != uncertain) {
-                val.replaceAllUsesWith(con);
+                function.numbered(i).replaceAllUsesWith(con);
             }
-        });
+        }
     }
 
     /**
@@ -164,18 +184,39 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
      */
     @Override
     public void runOnFunc(IRFunction function) {
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return Set.of(Analysis.CFG);
+    }
+
+    // the last round changed no block or branch, constants replacing values change what may alias
+    @Override
+    public Set<Analysis> preserves() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree, Analysis.PostDomTree, Analysis.Loops);
+    }
+
+    @Override
+    public boolean changed() {
+        return blocksRemoved + foldedInsts + foldedBranches > 0;
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         Log.track("SCCP", function.identifier());
+        this.function = function;
 
         boolean changed = true;
 
         while (changed) {
-            new CFGBuilder().runOnFunc(function);
-
-            lattice.clear();
+            function.renumber();
+            lattice = new BaseConst[function.numberedCount()];
             executable.clear();
-            executable.add(function.entryBlock);
+            executable.set(function.number(function.entryBlock));
             blockWorklist.offer(function.entryBlock);
-            function.operands.forEach(arg -> lattice.put(arg, uncertain));
+            function.operands().forEach(arg -> setConst(arg, uncertain));
 
             while (!valueWorklist.isEmpty() || !blockWorklist.isEmpty()) {
                 if (!blockWorklist.isEmpty()) {
@@ -186,7 +227,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
 
                 if (!valueWorklist.isEmpty()) {
                     Value value = valueWorklist.poll();
-                    value.users.forEach(user -> {
+                    value.users().forEach(user -> {
                         if (user instanceof IRBaseInst) ((IRBaseInst) user).accept(this);
                     });
                 }
@@ -194,6 +235,10 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
 
             replaceUses();
             changed = removeUnexecutableBlock(function) || removeRedundantInst(function) || rewriteBranch(function);
+            if (changed) {
+                manager.invalidateAll();
+                manager.require(Analysis.CFG);
+            }
             /*
             Log.mark("const");
             lattice.entrySet().forEach(entry -> {
@@ -205,6 +250,9 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
             executable.forEach(block -> Log.info(block.identifier()));
             */
         }
+        manager.count("block removed", blocksRemoved);
+        manager.count("instruction folded", foldedInsts);
+        manager.count("branch folded", foldedBranches);
     }
 
     @Override
@@ -216,7 +264,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
     private void assign(Value dest, Value src) {
         BaseConst srcConst = getConst(src);
         if (srcConst == uncertain && getConst(dest) != uncertain) {
-            lattice.put(dest, uncertain);
+            setConst(dest, uncertain);
             valueWorklist.offer(dest);
         } else if (srcConst != null) {
             if (getConst(dest) == null) {
@@ -227,7 +275,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
                 else return;
                 if (dest.type instanceof NumType) replace = new NumConst(result);
                 else replace = new BoolConst(result != 0);
-                lattice.put(dest, replace);
+                setConst(dest, replace);
                 dest.replaceAllUsesWith(replace);
                 valueWorklist.offer(dest);
             } else if (!getConst(dest).equals(getConst(srcConst))) {
@@ -238,15 +286,15 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
 
     private void setUncertain(Value value) {
         if (getConst(value) != uncertain) {
-            lattice.put(value, uncertain);
+            setConst(value, uncertain);
             valueWorklist.offer(value);
         }
     }
 
     private void setBlockExecutable(IRBlock block) {
-        if (!executable.contains(block)) {
+        if (!isExecutable(block)) {
             // Log.report("set exe", block.identifier());
-            executable.add(block);
+            executable.set(function.number(block));
             blockWorklist.add(block);
         }
     }
@@ -278,7 +326,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
             if (replace == null) {
                 setUncertain(inst);
             } else if (getConst(inst) == null) {
-                lattice.put(inst, replace);
+                setConst(inst, replace);
                 valueWorklist.offer(inst);
             }
         } else if (lhsConst != null && rhsConst != null && getConst(inst) == null) {
@@ -341,7 +389,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
                 replace = new BoolConst(result);
             }
 
-            lattice.put(inst, replace);
+            setConst(inst, replace);
             valueWorklist.offer(inst);
         }
     }
@@ -399,7 +447,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
             if (replace == null) {
                 setUncertain(inst);
             } else if (getConst(inst) == null) {
-                lattice.put(inst, replace);
+                setConst(inst, replace);
                 valueWorklist.offer(inst);
             }
         } else if (lhsConst != null && rhsConst != null && getConst(inst) == null) {
@@ -451,7 +499,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
             }
             replace = new BoolConst(result);
 
-            lattice.put(inst, replace);
+            setConst(inst, replace);
             valueWorklist.offer(inst);
         }
     }
@@ -472,7 +520,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
 
         for (int i = 2; i < inst.operandSize(); i += 2) {
             BaseConst now = getConst(inst.getOperand(i));
-            if (now == null || now == uncertain || !executable.contains(inst.getOperand(i + 1)) ||
+            if (now == null || now == uncertain || !isExecutable(inst.getOperand(i + 1)) ||
                     !now.equals(first)) {
                 setUncertain(inst);
                 return;
@@ -480,7 +528,7 @@ public class SCCP implements IRFuncPass, IRBlockPass, InstVisitor {
         }
 
         if (first != null && getConst(inst) == null) {
-            lattice.put(inst, first);
+            setConst(inst, first);
             valueWorklist.offer(inst);
         }
     }
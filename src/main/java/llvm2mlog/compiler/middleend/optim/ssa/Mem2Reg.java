@@ -1,7 +1,5 @@
 package llvm2mlog.compiler.middleend.optim.ssa;
 
-import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
-import llvm2mlog.compiler.middleend.analyzer.DomTreeBuilder;
 import llvm2mlog.compiler.middleend.llvmir.User;
 import llvm2mlog.compiler.middleend.llvmir.Value;
 import llvm2mlog.compiler.middleend.llvmir.constant.GlobalVariable;
@@ -11,7 +9,9 @@ import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 import llvm2mlog.compiler.middleend.llvmir.inst.*;
 import llvm2mlog.compiler.middleend.llvmir.type.PointerType;
 import llvm2mlog.compiler.share.lang.LLVM;
+import llvm2mlog.compiler.share.pass.Analysis;
 import llvm2mlog.compiler.share.pass.IRFuncPass;
+import llvm2mlog.compiler.share.pass.PassManager;
 import llvm2mlog.compiler.share.warn.UninitiatedWarning;
 
 import java.util.*;
@@ -42,7 +42,7 @@ public class Mem2Reg implements IRFuncPass {
         ArrayList<IRBaseInst> ret = new ArrayList<>();
         // alloca itself is a def
         ret.add(allocaInst);
-        for (User user : allocaInst.users) {
+        for (User user : allocaInst.users()) {
             if (user instanceof IRStoreInst && ((IRStoreInst) user).storePtr() == allocaInst) {
                 // store to %allocaPtr
                 ret.add((IRBaseInst) user);
@@ -53,8 +53,22 @@ public class Mem2Reg implements IRFuncPass {
 
     @Override
     public void runOnFunc(IRFunction function) {
-        new CFGBuilder().runOnFunc(function);
-        new DomTreeBuilder(false).runOnFunc(function);
+        new PassManager(function).run(this);
+    }
+
+    @Override
+    public Set<Analysis> requires() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree);
+    }
+
+    // phis, loads and stores only
+    @Override
+    public Set<Analysis> preserves() {
+        return EnumSet.of(Analysis.CFG, Analysis.DomTree, Analysis.Loops);
+    }
+
+    @Override
+    public void runOnFunc(IRFunction function, PassManager manager) {
         phiInsertion(function);
         variableRenaming(function.entryBlock);
     }
@@ -27,11 +27,13 @@ public class Rewriter implements IRFuncPass, IRBlockPass {
     @Override
     public void runOnBlock(IRBlock block) {
         blocksToRemove.clear();
-        for (int i = 0; i < block.instructions.size(); i++) {
-            var irBaseInst = block.instructions.get(i);
+        // the iterator of InstList survives the rewrite changing the block
+        int i = 0;
+        for (var irBaseInst : block.instructions) {
             if (irBaseInst instanceof IRURWInst) {
                 ((IRURWInst) irBaseInst).rewrite(this, i, block, curFunc);
             }
+            i++;
         }
 
 
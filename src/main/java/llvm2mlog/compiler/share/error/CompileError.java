@@ -9,6 +9,10 @@ public class CompileError extends RuntimeException {
     }
 
     public void tell() {
-        System.err.println("<masterball compiler>: " + message);
+        System.err.println(text());
+    }
+
+    public String text() {
+        return "<masterball compiler>: " + message;
     }
 }
@@ -109,11 +109,13 @@ public class MLOG {
 
     public static int MaxMemory = 512;
 
-    public static void setup() {
-        ASMBuildinFunction.BuildinFunctions.add(new ASMBuildinFunction("print")
+    // fresh instances every call, the backend fills their arguments and blocks per module
+    public static ArrayList<ASMBuildinFunction> buildinFunctions() {
+        ArrayList<ASMBuildinFunction> buildinFunctions = new ArrayList<>();
+        buildinFunctions.add(new ASMBuildinFunction("print")
                 .setInlineCode("print a0\n" +
                         "printflush message1"));
-        ASMBuildinFunction.BuildinFunctions.add(new ASMBuildinFunction("IPCall")
+        buildinFunctions.add(new ASMBuildinFunction("IPCall")
                 .setCode("IPCall0:\n" +
                         "write 0 bank2 510\n" +
                         "write 0 bank2 509\n" +
@@ -136,7 +138,7 @@ public class MLOG {
                         "set @counter ra")
                 .init("IPCall_head", 0)
         );
-        ASMBuildinFunction.BuildinFunctions.add(new ASMBuildinFunction("IPAccept")
+        buildinFunctions.add(new ASMBuildinFunction("IPAccept")
                 .setCode("IPAccept0:\n" +
                         "set IPAccept_id a1\n" +
                         "set IPAccept_space 3\n" +
@@ -160,5 +162,6 @@ public class MLOG {
                         "set a0 IPAccept_ptr\n" +
                         "set @counter ra")
                 .init("IPAccept_ptr", -1));
+        return buildinFunctions;
     }
 }
@@ -0,0 +1,276 @@
+package llvm2mlog.compiler.share.misc;
+
+// this implements the instruction list of a block in java
+
+import llvm2mlog.compiler.share.error.codegen.InternalError;
+
+import java.util.*;
+
+/**
+ * Intrusive doubly linked list: an instruction keeps its own links and the list it is in,
+ * so inserting next to it, replacing it and removing it are O(1) wherever it is, contains too.
+ * An instruction is in one list at most, take it out before adding it to another.
+ * <p>
+ * Iterators are not fail-fast. Besides their own add, set and remove, the list may be changed while iterating:
+ * a removed instruction keeps its links until it is added again, so the iterator steps over it to the next one in the list.
+ * Instructions inserted after the cursor are met later, the ones before it are not.
+ * To move the instruction the iterator stands after to another list, remove it by the iterator first.
+ * nextIndex and previousIndex only count the steps of the iterator itself.
+ * <p>
+ * get(index) and indexOf walk the list as LinkedList does, passes should walk it instead.
+ */
+public class InstList<T extends InstList.Node<T>> extends AbstractSequentialList<T> {
+
+    /**
+     * the links an instruction keeps for the list it is in
+     * list: null if it is not in one, prev and next: kept after it is removed
+     */
+    public interface Node<T extends Node<T>> {
+        InstList<T> list();
+
+        T prev();
+
+        T next();
+
+        // only for InstList
+        void link(InstList<T> list, T prev, T next);
+    }
+
+    private T first, last;
+    private int size = 0;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public T getFirst() {
+        if (first == null) throw new NoSuchElementException();
+        return first;
+    }
+
+    public T getLast() {
+        if (last == null) throw new NoSuchElementException();
+        return last;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Node && ((Node<?>) o).list() == this;
+    }
+
+    @Override
+    public boolean add(T node) {
+        addLast(node);
+        return true;
+    }
+
+    public void addFirst(T node) {
+        insert(node, null, first);
+    }
+
+    public void addLast(T node) {
+        insert(node, last, null);
+    }
+
+    public void addBefore(T anchor, T node) {
+        check(anchor);
+        insert(node, anchor.prev(), anchor);
+    }
+
+    public void addAfter(T anchor, T node) {
+        check(anchor);
+        insert(node, anchor, anchor.next());
+    }
+
+    // node takes the place of old, which is removed
+    public void replace(T old, T node) {
+        check(old);
+        insert(node, old, old.next());
+        unlink(old);
+    }
+
+    public T removeFirst() {
+        T node = getFirst();
+        unlink(node);
+        return node;
+    }
+
+    public T removeLast() {
+        T node = getLast();
+        unlink(node);
+        return node;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        if (!contains(o)) return false;
+        unlink((T) o);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (T node = first; node != null; ) {
+            T next = node.next();
+            node.link(null, node.prev(), next);
+            node = next;
+        }
+        first = last = null;
+        size = 0;
+    }
+
+    @Override
+    public ListIterator<T> listIterator(int index) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        Itr it = new Itr();
+        if (index <= size / 2) {
+            for (int i = 0; i < index; i++) it.before = it.before == null ? first : it.before.next();
+        } else {
+            it.before = last;
+            for (int i = size; i > index; i--) it.before = it.before.prev();
+        }
+        it.index = index;
+        return it;
+    }
+
+    // from the tail to the head, with the remove of the list iterator
+    public Iterator<T> descendingIterator() {
+        ListIterator<T> it = listIterator(size);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasPrevious();
+            }
+
+            @Override
+            public T next() {
+                return it.previous();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+            }
+        };
+    }
+
+    private void check(T anchor) {
+        if (anchor.list() != this) throw new InternalError("instruction not in this list");
+    }
+
+    private void insert(T node, T prev, T next) {
+        if (node.list() != null) throw new InternalError("instruction already in a list");
+        node.link(this, prev, next);
+        if (prev == null) first = node;
+        else prev.link(this, prev.prev(), node);
+        if (next == null) last = node;
+        else next.link(this, node, next.next());
+        size++;
+    }
+
+    private void unlink(T node) {
+        T prev = node.prev(), next = node.next();
+        if (prev == null) first = next;
+        else prev.link(this, prev.prev(), next);
+        if (next == null) last = prev;
+        else next.link(this, prev, next.next());
+        node.link(null, prev, next);
+        size--;
+    }
+
+    private class Itr implements ListIterator<T> {
+        // the instruction before the cursor, null: the head
+        private T before;
+        private T lastReturned;
+        private int index;
+
+        // the last instruction before the cursor still in the list, before may be removed meanwhile
+        private T liveBefore() {
+            T node = before;
+            while (node != null && node.list() != InstList.this) node = node.prev();
+            return node;
+        }
+
+        private T after() {
+            if (before == null) return first;
+            T node = before.next();
+            while (node != null && node.list() != InstList.this) node = node.next();
+            return node;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return after() != null;
+        }
+
+        @Override
+        public T next() {
+            T node = after();
+            if (node == null) throw new NoSuchElementException();
+            before = lastReturned = node;
+            index++;
+            return node;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return liveBefore() != null;
+        }
+
+        @Override
+        public T previous() {
+            T node = liveBefore();
+            if (node == null) throw new NoSuchElementException();
+            lastReturned = node;
+            before = node.prev();
+            index--;
+            return node;
+        }
+
+        @Override
+        public int nextIndex() {
+            return index;
+        }
+
+        @Override
+        public int previousIndex() {
+            return index - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null || lastReturned.list() != InstList.this) throw new IllegalStateException();
+            if (lastReturned == before) {
+                before = lastReturned.prev();
+                index--;
+            }
+            unlink(lastReturned);
+            lastReturned = null;
+        }
+
+        @Override
+        public void set(T node) {
+            if (lastReturned == null || lastReturned.list() != InstList.this) throw new IllegalStateException();
+            replace(lastReturned, node);
+            if (lastReturned == before) before = node;
+            lastReturned = node;
+        }
+
+        @Override
+        public void add(T node) {
+            T anchor = liveBefore();
+            if (anchor == null) addFirst(node);
+            else addAfter(anchor, node);
+            before = node;
+            lastReturned = null;
+            index++;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package llvm2mlog.compiler.share.misc;
+
+// this runs an action on every element of a list with a fork-join pool
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+public class ParallelFor {
+
+    // pool == null: run sequentially in list order
+    // otherwise wait until every element is handled, the first exception is rethrown
+    public static <T> void forEach(ForkJoinPool pool, List<T> list, Consumer<? super T> action) {
+        if (pool == null || list.size() <= 1) {
+            list.forEach(action);
+            return;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (T element : list) tasks.add(ForkJoinTask.adapt(() -> action.accept(element)));
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+}
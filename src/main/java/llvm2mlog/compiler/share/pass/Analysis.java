@@ -0,0 +1,22 @@
+package llvm2mlog.compiler.share.pass;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The analyses of a function a PassManager keeps between passes.
+ * Each one lives on the IR itself except Alias, an AliasAnalyzer held by the manager.
+ */
+public enum Analysis {
+    // block.prevs and block.nexts
+    CFG,
+    // block.dtNode, which holds one of the two trees at a time
+    DomTree,
+    PostDomTree,
+    // function.topLevelLoops, block.loopDepth and block.belongLoop
+    Loops,
+    Alias;
+
+    public static final Set<Analysis> All = Collections.unmodifiableSet(EnumSet.allOf(Analysis.class));
+}
@@ -2,6 +2,29 @@ package llvm2mlog.compiler.share.pass;
 
 import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
 
+import java.util.Set;
+
 public interface IRFuncPass extends Pass {
     void runOnFunc(IRFunction function);
+
+    // run by a PassManager, the analyses in requires() are up to date
+    // a pass that does not take them computes what it needs itself
+    default void runOnFunc(IRFunction function, PassManager manager) {
+        runOnFunc(function);
+    }
+
+    default Set<Analysis> requires() {
+        return Set.of();
+    }
+
+    // what is still valid after the pass ran, the manager drops the rest
+    default Set<Analysis> preserves() {
+        return Set.of();
+    }
+
+    // after a run, false: the function is as it was before
+    // a pass that cannot tell says true
+    default boolean changed() {
+        return true;
+    }
 }
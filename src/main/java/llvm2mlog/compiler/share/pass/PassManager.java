@@ -0,0 +1,136 @@
+package llvm2mlog.compiler.share.pass;
+
+import llvm2mlog.compiler.middleend.analyzer.AliasAnalyzer;
+import llvm2mlog.compiler.middleend.analyzer.CFGBuilder;
+import llvm2mlog.compiler.middleend.analyzer.DomTreeBuilder;
+import llvm2mlog.compiler.middleend.analyzer.LoopAnalyzer;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.debug.Statistics;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Runs function passes on one function and keeps its analyses between them.
+ * <p>
+ * An analysis is computed when a pass requires it and it is not valid, and stays valid until a pass
+ * that does not preserve it has changed the function, or a pass invalidates it after changing the function in the middle of its run.
+ * Dropping the CFG drops the trees and loops computed on it.
+ * A valid analysis is the same as computing it again, so what a pass sees does not depend on the passes before it.
+ * <p>
+ * Every pass run and every analysis computed is recorded in the statistics, with the counters the pass reports.
+ */
+public class PassManager {
+
+    private final IRFunction function;
+    // false: every request computes the analysis again, as the benchmark compares
+    private final boolean cache;
+    // null: nothing recorded
+    private final Statistics statistics;
+    // the pass the counters go to
+    private String running;
+    private final EnumSet<Analysis> valid = EnumSet.noneOf(Analysis.class);
+    private AliasAnalyzer aliasAnalyzer;
+
+    private int computed = 0, reused = 0;
+
+    public PassManager(IRFunction function) {
+        this(function, true);
+    }
+
+    public PassManager(IRFunction function, boolean cache) {
+        this(function, cache, null);
+    }
+
+    public PassManager(IRFunction function, boolean cache, Statistics statistics) {
+        this.function = function;
+        this.cache = cache;
+        this.statistics = statistics;
+    }
+
+    // true: the pass changed the function
+    public boolean run(IRFuncPass pass) {
+        require(pass.requires());
+        running = pass.getClass().getSimpleName();
+        measure(running, () -> pass.runOnFunc(function, this));
+        if (!pass.changed()) return false;
+        valid.retainAll(pass.preserves());
+        if (!valid.contains(Analysis.CFG)) invalidate(Analysis.CFG);
+        return true;
+    }
+
+    public void require(Set<Analysis> analyses) {
+        analyses.forEach(this::require);
+    }
+
+    public void require(Analysis analysis) {
+        switch (analysis) {
+            case CFG:
+                if (!reuse(analysis)) measure("CFGBuilder", () -> new CFGBuilder().runOnFunc(function));
+                break;
+            case DomTree:
+            case PostDomTree:
+                require(Analysis.CFG);
+                if (!reuse(analysis)) {
+                    boolean post = analysis == Analysis.PostDomTree;
+                    measure(post ? "DomTreeBuilder(post)" : "DomTreeBuilder", () -> new DomTreeBuilder(post).runOnFunc(function));
+                    valid.remove(post ? Analysis.DomTree : Analysis.PostDomTree);
+                }
+                break;
+            case Loops:
+                // as LoopAnalyzer alone, the dominator tree is left in block.dtNode
+                require(Analysis.DomTree);
+                if (!reuse(analysis)) measure("LoopAnalyzer", () -> new LoopAnalyzer().runOnFunc(function, this));
+                break;
+            case Alias:
+                if (!reuse(analysis)) {
+                    aliasAnalyzer = new AliasAnalyzer();
+                    measure("AliasAnalyzer", () -> aliasAnalyzer.runOnFunc(function));
+                }
+                break;
+        }
+    }
+
+    public AliasAnalyzer alias() {
+        require(Analysis.Alias);
+        return aliasAnalyzer;
+    }
+
+    public void invalidate(Analysis analysis) {
+        valid.remove(analysis);
+        if (analysis == Analysis.CFG) valid.removeAll(EnumSet.of(Analysis.DomTree, Analysis.PostDomTree, Analysis.Loops));
+    }
+
+    public void invalidateAll() {
+        valid.clear();
+    }
+
+    // counted for the pass running now
+    public void count(String counter, long value) {
+        if (statistics != null) statistics.count(running, function.identifier(), counter, value);
+    }
+
+    private void measure(String pass, Runnable run) {
+        if (statistics == null) run.run();
+        else statistics.measure(pass, function.identifier(), run);
+    }
+
+    // true: valid, counted as reused
+    private boolean reuse(Analysis analysis) {
+        if (cache && valid.contains(analysis)) {
+            reused++;
+            return true;
+        }
+        valid.add(analysis);
+        computed++;
+        return false;
+    }
+
+    public int computed() {
+        return computed;
+    }
+
+    public int reused() {
+        return reused;
+    }
+}
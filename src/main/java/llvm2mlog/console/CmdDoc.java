@@ -74,6 +74,66 @@ public class CmdDoc {
                     ret.append("Automatically fitted to Online Judge\n");
                     break;
                 }
+                case Server: {
+                    ret.append("Run as a compile daemon on the given loopback port\n");
+                    break;
+                }
+                case Batch: {
+                    ret.append("Compile every .ll in a directory, or every file listed in a manifest\n");
+                    break;
+                }
+                case BatchOutput: {
+                    ret.append("Redirect the .mlog outputs and the summary of a batch to a directory\n");
+                    break;
+                }
+                case Jobs: {
+                    ret.append("Number of threads compiling a batch\n");
+                    break;
+                }
+                case FunctionCache: {
+                    ret.append("Reuse the code of functions unchanged between the files of a batch\n");
+                    break;
+                }
+                case CacheDir: {
+                    ret.append("Store the outputs in a directory and reuse them for unchanged inputs\n");
+                    break;
+                }
+                case ReachableOnly: {
+                    ret.append("Leave out the functions main and the initializers cannot reach\n");
+                    break;
+                }
+                case FastRead: {
+                    ret.append("Read modules without a parse tree, falling back to the parser for what the reader does not know\n");
+                    break;
+                }
+                case LowMemory: {
+                    ret.append("Release the parse tree of a function once it is built, keeping only where its instructions are in the text\n");
+                    break;
+                }
+                case MaxRounds: {
+                    ret.append("Most middle end rounds of a function, fewer if it stops changing\n");
+                    break;
+                }
+                case RoundBudget: {
+                    ret.append("Milliseconds after which no middle end round of a function starts, 0 for no bound\n");
+                    break;
+                }
+                case LinearScanAbove: {
+                    ret.append("Allocate registers of functions with more instructions by linear scan, 0 for every function\n");
+                    break;
+                }
+                case ParseWarmUp: {
+                    ret.append("Parse a directory of .ll or a file first to fill the parser caches\n");
+                    break;
+                }
+                case ProfileOutput: {
+                    ret.append("Write the time, allocation and counters of every pass on every function, as CSV for a .csv file, JSON otherwise\n");
+                    break;
+                }
+                case CacheSize: {
+                    ret.append("Bound of the cache directory in MiB\n");
+                    break;
+                }
             }
         }
         return ret.toString();
@@ -1,11 +1,15 @@
 package llvm2mlog.console;
 
+import llvm2mlog.compiler.backend.regalloc.RegisterAllocator;
+import llvm2mlog.compiler.cache.DiskCache;
+import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class Config {
 
-    public enum Option {Version, Help, Input, LogOutput, ASTOutput, IROutput, OptOutput, ASMOutput, FSyntaxOnly, IROnly, Optimize, Wall, OJMode}
+    public enum Option {Version, Help, Input, LogOutput, ASTOutput, IROutput, OptOutput, ASMOutput, FSyntaxOnly, IROnly, Optimize, Wall, OJMode, Server, Batch, BatchOutput, Jobs, FunctionCache, CacheDir, CacheSize, ReachableOnly, ParseWarmUp, FastRead, LowMemory, MaxRounds, RoundBudget, LinearScanAbove, ProfileOutput}
 
     public static class Setting {
         String argName;
@@ -43,6 +47,23 @@ public class Config {
         argSetting.put(Option.Optimize, new Setting("-O2", false, false));
         argSetting.put(Option.Wall, new Setting("-Wall", false, false));
         argSetting.put(Option.OJMode, new Setting("-oj", false, false));
+
+        argSetting.put(Option.Server, new Setting("-server", true, null));
+
+        argSetting.put(Option.Batch, new Setting("-batch", true, null));
+        argSetting.put(Option.BatchOutput, new Setting("-batch-o", true, null));
+        argSetting.put(Option.Jobs, new Setting("-j", true, Runtime.getRuntime().availableProcessors()));
+        argSetting.put(Option.FunctionCache, new Setting("-fcache", false, false));
+        argSetting.put(Option.CacheDir, new Setting("-cache-dir", true, null));
+        argSetting.put(Option.ReachableOnly, new Setting("-freachable-only", false, false));
+        argSetting.put(Option.ParseWarmUp, new Setting("-parse-warmup", true, null));
+        argSetting.put(Option.FastRead, new Setting("-ffast-read", false, false));
+        argSetting.put(Option.LowMemory, new Setting("-flow-memory", false, false));
+        argSetting.put(Option.MaxRounds, new Setting("-fmax-rounds", true, MiddleEndOptimizer.DefaultMaxRounds));
+        argSetting.put(Option.RoundBudget, new Setting("-fround-budget", true, 0));
+        argSetting.put(Option.LinearScanAbove, new Setting("-flinear-scan-above", true, RegisterAllocator.DefaultLinearScanAbove));
+        argSetting.put(Option.ProfileOutput, new Setting("-profile-o", true, null));
+        argSetting.put(Option.CacheSize, new Setting("-cache-size", true, (int) (DiskCache.DefaultMaxBytes >> 20)));
     }
 
     public static String getPath(Option option) {
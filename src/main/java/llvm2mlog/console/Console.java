@@ -14,6 +14,30 @@ public class Console {
 
     public boolean canPrintAST, canPrintIR, canPrintOpt, canPrintASM;
 
+    // null: not a server
+    public Integer serverPort;
+
+    // null: not a batch, batchOutput null: next to the inputs
+    public String batchInput, batchOutput;
+    public int jobs;
+    // reuse the code of functions the files of a batch share
+    public boolean functionCache;
+    // null: no disk cache, cacheSize in MiB
+    public String cacheDir;
+    public int cacheSize;
+    public boolean reachableOnly;
+    public boolean fastRead;
+    public boolean lowMemory;
+    // middle end rounds of a function, roundMillis 0: no time bound
+    public int maxRounds;
+    public long roundMillis;
+    // functions above it get linear scan instead of graph coloring, 0: every function
+    public int linearScanAbove;
+    // null: no warm-up, a directory of .ll or a single file
+    public String parseWarmUp;
+    // null: no profile, a .csv file gets CSV, anything else JSON
+    public String profileOutput;
+
     public static String getFileName(String path) {
         if (path == null) return "test";
         for (int i = path.length() - 1; i >= 0; i--) {
@@ -59,6 +83,23 @@ public class Console {
                                 Config.argSetting.get(option).argValue = new PrintStream(path);
                                 break;
                             }
+                            case Server:
+                            case Jobs:
+                            case CacheSize:
+                            case MaxRounds:
+                            case RoundBudget:
+                            case LinearScanAbove: {
+                                Config.argSetting.get(option).argValue = Integer.parseInt(path);
+                                break;
+                            }
+                            case Batch:
+                            case BatchOutput:
+                            case CacheDir:
+                            case ParseWarmUp:
+                            case ProfileOutput: {
+                                Config.argSetting.get(option).argValue = path;
+                                break;
+                            }
                         }
                     } else {
                         Config.argSetting.get(option).argValue = true;
@@ -77,6 +118,21 @@ public class Console {
         optimize = (boolean) Config.argSetting.get(Config.Option.Optimize).argValue;
         wall = (boolean) Config.argSetting.get(Config.Option.Wall).argValue;
         ojMode = (boolean) Config.argSetting.get(Config.Option.OJMode).argValue;
+        serverPort = (Integer) Config.argSetting.get(Config.Option.Server).argValue;
+        batchInput = (String) Config.argSetting.get(Config.Option.Batch).argValue;
+        batchOutput = (String) Config.argSetting.get(Config.Option.BatchOutput).argValue;
+        jobs = (int) Config.argSetting.get(Config.Option.Jobs).argValue;
+        functionCache = (boolean) Config.argSetting.get(Config.Option.FunctionCache).argValue;
+        cacheDir = (String) Config.argSetting.get(Config.Option.CacheDir).argValue;
+        cacheSize = (int) Config.argSetting.get(Config.Option.CacheSize).argValue;
+        reachableOnly = (boolean) Config.argSetting.get(Config.Option.ReachableOnly).argValue;
+        fastRead = (boolean) Config.argSetting.get(Config.Option.FastRead).argValue;
+        lowMemory = (boolean) Config.argSetting.get(Config.Option.LowMemory).argValue;
+        maxRounds = (int) Config.argSetting.get(Config.Option.MaxRounds).argValue;
+        roundMillis = (int) Config.argSetting.get(Config.Option.RoundBudget).argValue;
+        linearScanAbove = (int) Config.argSetting.get(Config.Option.LinearScanAbove).argValue;
+        parseWarmUp = (String) Config.argSetting.get(Config.Option.ParseWarmUp).argValue;
+        profileOutput = (String) Config.argSetting.get(Config.Option.ProfileOutput).argValue;
     }
 
     public Console(String[] args) throws Exception {
@@ -91,7 +147,8 @@ public class Console {
             System.out.println(CmdDoc.version());
         }
 
-        if (ojMode) {
+        // a server or a batch reports on its own, logging every compilation would only slow it down
+        if (ojMode || serverPort != null || batchInput != null) {
             Log.setVerbose(Log.Verbose.off);
             canPrintAST = canPrintOpt = false;
             canPrintIR = true;
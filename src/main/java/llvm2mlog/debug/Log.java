@@ -10,11 +10,13 @@ public class Log {
 
     private static final String logHint = "<llvm2mlog log>: ";
 
+    // guarded by itself, marks may come from functions compiled in parallel
     private static final Map<String, Integer> markCnt = new HashMap<>();
 
     private static final int InfoColor = 36, TrackColor = 32, MarkColor = 35;
 
-    private static Verbose verbose;
+    // process-wide, off unless the console turns it on
+    private static Verbose verbose = Verbose.off;
     private static boolean infoOpen, markOpen, trackOpen;
 
     private static PrintStream ps = System.out;
@@ -83,12 +85,14 @@ public class Log {
     public static void mark() {
         if (markOpen) {
             int nowCnt;
-            if (!markCnt.containsKey(null)) {
-                nowCnt = 0;
-                markCnt.put(null, 1);
-            } else {
-                nowCnt = markCnt.get(null);
-                markCnt.put(null, nowCnt + 1);
+            synchronized (markCnt) {
+                if (!markCnt.containsKey(null)) {
+                    nowCnt = 0;
+                    markCnt.put(null, 1);
+                } else {
+                    nowCnt = markCnt.get(null);
+                    markCnt.put(null, nowCnt + 1);
+                }
             }
             colorPrintln(MarkColor, logHint + "[Mark] mark " + nowCnt);
         }
@@ -97,12 +101,14 @@ public class Log {
     public static void mark(String msg) {
         if (markOpen) {
             int nowCnt;
-            if (!markCnt.containsKey(msg)) {
-                nowCnt = 0;
-                markCnt.put(msg, 1);
-            } else {
-                nowCnt = markCnt.get(msg);
-                markCnt.put(msg, nowCnt + 1);
+            synchronized (markCnt) {
+                if (!markCnt.containsKey(msg)) {
+                    nowCnt = 0;
+                    markCnt.put(msg, 1);
+                } else {
+                    nowCnt = markCnt.get(msg);
+                    markCnt.put(msg, nowCnt + 1);
+                }
             }
             colorPrintln(MarkColor, logHint + "[Mark] mark " + msg + " " + nowCnt);
         }
@@ -115,11 +121,15 @@ public class Log {
     }
 
     public static void markReset() {
-        if (markOpen) markCnt.remove(null);
+        if (markOpen) synchronized (markCnt) {
+            markCnt.remove(null);
+        }
     }
 
     public static void markReset(String msg) {
-        if (markOpen) markCnt.remove(msg);
+        if (markOpen) synchronized (markCnt) {
+            markCnt.remove(msg);
+        }
     }
 
     public static void markReset(String name, String msg) {
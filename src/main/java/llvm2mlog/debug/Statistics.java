@@ -1,30 +1,77 @@
 package llvm2mlog.debug;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Counters of a compilation, and what every pass did on every function.
+ * <p>
+ * A pass record holds its runs and the counters the pass keeps, such as instructions removed.
+ * Wall time and allocated bytes are only measured when profile is set, before compiling.
+ * The time of a pass includes the analyses it asks for while it runs; a whole stage is
+ * recorded for the function {@link #Module}, besides the records of its functions.
+ * Allocation is counted on the thread running the pass, so with a pool the module records
+ * of parallel stages miss what the other threads allocated.
+ * <p>
+ * Functions of a module may be compiled in parallel, everything is safe to update from any thread.
+ * Modules compiled into one report, as in a batch, record through a view {@link #of} each, so that functions of the
+ * same name in different modules keep their own records.
+ */
 public class Statistics {
 
-    private static final Map<String, Integer> cnt = new HashMap<>();
+    public static final String Module = "(module)";
 
-    public static void plus(String name) {
-        cnt.putIfAbsent(name, 0);
-        cnt.put(name, cnt.get(name) + 1);
+    private static final ThreadMXBean Threads = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, LongAdder> cnt;
+    // pass -> function -> record
+    private final Map<String, Map<String, Record>> passes;
+    // the statistics the views are made of, itself if it is not a view
+    private final Statistics root;
+    // functions recorded through this view are keyed "module:function", "": not a view
+    private final String module;
+
+    // false: only runs and counters, as a compilation not asking for a report; set on the root, not on a view
+    public volatile boolean profile = false;
+
+    public Statistics() {
+        this.cnt = new ConcurrentHashMap<>();
+        this.passes = new ConcurrentHashMap<>();
+        this.root = this;
+        this.module = "";
     }
 
-    public static void plus(String name, int value) {
-        cnt.putIfAbsent(name, 0);
-        cnt.put(name, cnt.get(name) + value);
+    private Statistics(Statistics root, String module) {
+        this.cnt = root.cnt;
+        this.passes = root.passes;
+        this.root = root;
+        this.module = module;
     }
 
-    public static int get(String name) {
-        if (!cnt.containsKey(name)) {
-            return 0;
-        }
-        return cnt.get(name);
+    // the same counters and records, the functions recorded through it keyed by module as well
+    public Statistics of(String module) {
+        return new Statistics(root, module);
     }
 
-    public static void show(String name) {
+    public void plus(String name) {
+        plus(name, 1);
+    }
+
+    public void plus(String name, int value) {
+        cnt.computeIfAbsent(name, k -> new LongAdder()).add(value);
+    }
+
+    public int get(String name) {
+        LongAdder adder = cnt.get(name);
+        return adder == null ? 0 : adder.intValue();
+    }
+
+    public void show(String name) {
 
         if (!cnt.containsKey(name))
             Log.info("#statistics# not found!");
@@ -32,4 +79,106 @@ public class Statistics {
             Log.info("#statistics# <" + name + "> total = " + cnt.get(name));
     }
 
+    public static class Record {
+        public final LongAdder runs = new LongAdder(), nanos = new LongAdder(), bytes = new LongAdder();
+        public final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    }
+
+    public Record record(String pass, String function) {
+        String key = module.isEmpty() ? function : module + ":" + function;
+        return passes.computeIfAbsent(pass, k -> new ConcurrentHashMap<>()).computeIfAbsent(key, k -> new Record());
+    }
+
+    public void measure(String pass, String function, Runnable run) {
+        Record record = record(pass, function);
+        record.runs.increment();
+        if (!root.profile) {
+            run.run();
+            return;
+        }
+        long bytes = allocatedBytes(), start = System.nanoTime();
+        run.run();
+        record.nanos.add(System.nanoTime() - start);
+        if (bytes >= 0) record.bytes.add(allocatedBytes() - bytes);
+    }
+
+    public void count(String pass, String function, String counter, long value) {
+        if (value == 0) return;
+        record(pass, function).counters.computeIfAbsent(counter, k -> new LongAdder()).add(value);
+    }
+
+    // -1: the JVM does not count what a thread allocates
+    private static long allocatedBytes() {
+        if (!(Threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        return ((com.sun.management.ThreadMXBean) Threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // sorted by name, reports of two releases can be compared line by line
+
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\n  \"profile\": ").append(String.valueOf(root.profile)).append(",\n  \"counters\": {");
+        String sep = "\n";
+        for (var entry : new TreeMap<>(cnt).entrySet()) {
+            out.append(sep).append("    ").append(jsonString(entry.getKey())).append(": ").append(entry.getValue().toString());
+            sep = ",\n";
+        }
+        out.append(cnt.isEmpty() ? "},\n" : "\n  },\n").append("  \"passes\": [");
+        sep = "\n";
+        for (var pass : new TreeMap<>(passes).entrySet())
+            for (var function : new TreeMap<>(pass.getValue()).entrySet()) {
+                Record record = function.getValue();
+                out.append(sep).append("    {\"pass\": ").append(jsonString(pass.getKey()))
+                        .append(", \"function\": ").append(jsonString(function.getKey()))
+                        .append(", \"runs\": ").append(record.runs.toString())
+                        .append(", \"nanos\": ").append(record.nanos.toString())
+                        .append(", \"bytes\": ").append(record.bytes.toString())
+                        .append(", \"counters\": {");
+                String counterSep = "";
+                for (var counter : new TreeMap<>(record.counters).entrySet()) {
+                    out.append(counterSep).append(jsonString(counter.getKey())).append(": ").append(counter.getValue().toString());
+                    counterSep = ", ";
+                }
+                out.append("}}");
+                sep = ",\n";
+            }
+        out.append(passes.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    // one value a row: pass,function,metric,value; the counters of the compilation have no pass and function
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("pass,function,metric,value\n");
+        for (var entry : new TreeMap<>(cnt).entrySet())
+            csvRow(out, "", "", entry.getKey(), entry.getValue().sum());
+        for (var pass : new TreeMap<>(passes).entrySet())
+            for (var function : new TreeMap<>(pass.getValue()).entrySet()) {
+                Record record = function.getValue();
+                csvRow(out, pass.getKey(), function.getKey(), "runs", record.runs.sum());
+                if (root.profile) {
+                    csvRow(out, pass.getKey(), function.getKey(), "nanos", record.nanos.sum());
+                    csvRow(out, pass.getKey(), function.getKey(), "bytes", record.bytes.sum());
+                }
+                for (var counter : new TreeMap<>(record.counters).entrySet())
+                    csvRow(out, pass.getKey(), function.getKey(), counter.getKey(), counter.getValue().sum());
+            }
+    }
+
+    private static void csvRow(Appendable out, String pass, String function, String metric, long value) throws IOException {
+        out.append(csvField(pass)).append(',').append(csvField(function)).append(',').append(csvField(metric))
+                .append(',').append(String.valueOf(value)).append('\n');
+    }
+
+    private static String csvField(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String text) {
+        StringBuilder ret = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') ret.append('\\').append(c);
+            else if (c < 0x20) ret.append(String.format("\\u%04x", (int) c));
+            else ret.append(c);
+        }
+        return ret.append('"').toString();
+    }
 }
@@ -1,34 +1,57 @@
 package llvm2mlog;
 
-import llvm2mlog.compiler.backend.optim.BackEndOptimizer;
-import llvm2mlog.compiler.backend.regalloc.RegisterAllocator;
-import llvm2mlog.compiler.backend.regalloc.StackAllocator;
-import llvm2mlog.compiler.backend.rvasm.AsmBuilder;
-import llvm2mlog.compiler.backend.rvasm.AsmPrinter;
-import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
-import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRModule;
-import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+import llvm2mlog.compiler.cache.DiskCache;
+import llvm2mlog.compiler.cache.FunctionCache;
+import llvm2mlog.compiler.middleend.llvmir.ModuleParser;
 import llvm2mlog.compiler.share.error.CompileError;
-import llvm2mlog.compiler.share.lang.MLOG;
+import llvm2mlog.console.Config;
 import llvm2mlog.console.Console;
 import llvm2mlog.console.error.ConsoleError;
-import llvm2mlog.debug.Log;
 import llvm2mlog.debug.Statistics;
 import llvm2mlog.debug.Timer;
-import org.antlr.v4.runtime.CharStreams;
+import llvm2mlog.server.CompileServer;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class llvm2mlog {
     public static void main(String[] args) throws Exception {
+        int status = 0;
         try {
             Timer.start();
 
             Console console = new Console(args);
             if (console.showHelp || console.showVersion) return;
+            if (console.parseWarmUp != null) ModuleParser.warmUp(Paths.get(console.parseWarmUp));
+
+            if (console.serverPort != null) {
+                try (var server = new CompileServer(console.serverPort)) {
+                    server.run();
+                }
+            } else if (console.batchInput != null) {
+                status = batch(console);
+            } else {
+                PrintStream output = (PrintStream) Config.getArgValue(Config.Option.ASMOutput);
+                var session = new CompilationSession(null, null, diskCache(console));
+                session.reachableOnly = console.reachableOnly;
+                session.fastRead = console.fastRead;
+                session.lowMemory = console.lowMemory;
+                session.maxRounds = console.maxRounds;
+                session.roundMillis = console.roundMillis;
+                session.linearScanAbove = console.linearScanAbove;
+                session.statistics.profile = console.profileOutput != null;
+                session.compile((InputStream) Config.getArgValue(Config.Option.Input), output);
+                output.flush();
+                writeProfile(console, session.statistics);
+            }
 
 
 //            IRBuilder IRBuilder = new IRBuilder(CharStreams.fromStream(new FileInputStream(new File(file))));
@@ -76,16 +99,60 @@ public class llvm2mlog {
 
 
             Timer.display();
-
-            Statistics.show("spill");
         } catch (Exception e) {
             errorHandle(e);
         }
-        System.exit(0);
+        System.exit(status);
+    }
+
+    // the summary goes along with the outputs, exit with 1 if any file fails
+    private static int batch(Console console) throws IOException {
+        Path source = Paths.get(console.batchInput);
+        Path base = Files.isDirectory(source) ? source : source.toAbsolutePath().getParent();
+        Path outputDir = console.batchOutput == null ? null : Paths.get(console.batchOutput);
+
+        ForkJoinPool pool = new ForkJoinPool(console.jobs);
+        FunctionCache functionCache = console.functionCache ? new FunctionCache() : null;
+        DiskCache diskCache = diskCache(console);
+        List<BatchCompiler.Result> results;
+        try {
+            var compiler = new BatchCompiler(pool, functionCache, diskCache);
+            compiler.reachableOnly = console.reachableOnly;
+            compiler.fastRead = console.fastRead;
+            compiler.lowMemory = console.lowMemory;
+            compiler.maxRounds = console.maxRounds;
+            compiler.roundMillis = console.roundMillis;
+            compiler.linearScanAbove = console.linearScanAbove;
+            compiler.statistics.profile = console.profileOutput != null;
+            results = compiler.compile(BatchCompiler.inputs(source), base, outputDir);
+            writeProfile(console, compiler.statistics);
+        } finally {
+            pool.shutdown();
+        }
+
+        Path summary = (outputDir == null ? base : outputDir).resolve(BatchCompiler.SummaryFileName);
+        Files.createDirectories(summary.getParent());
+        try (PrintStream ps = new PrintStream(Files.newOutputStream(summary), false, StandardCharsets.UTF_8)) {
+            BatchCompiler.writeSummary(results, ps);
+        }
+
+        long failures = BatchCompiler.failures(results);
+        System.out.println("compiled " + (results.size() - failures) + "/" + results.size() + " files, summary in " + summary);
+        if (functionCache != null) System.out.println(functionCache);
+        if (diskCache != null) System.out.println(diskCache);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private static void writeProfile(Console console, Statistics statistics) throws IOException {
+        if (console.profileOutput == null) return;
+        try (var writer = Files.newBufferedWriter(Paths.get(console.profileOutput), StandardCharsets.UTF_8)) {
+            if (console.profileOutput.endsWith(".csv")) statistics.writeCsv(writer);
+            else statistics.writeJson(writer);
+        }
     }
 
-    static {
-        MLOG.setup();
+    private static DiskCache diskCache(Console console) {
+        return console.cacheDir == null ? null : new DiskCache(Paths.get(console.cacheDir), (long) console.cacheSize << 20);
     }
 
     private static void errorHandle(Exception e) {
@@ -102,52 +169,19 @@ public class llvm2mlog {
 
 
     public static void compile(InputStream code, PrintStream output) {
+        compile(code, output, null);
+    }
 
-        IRBuilder IRBuilder = new IRBuilder();
-//        AsmExplainInst.ExplainShow = false;
-        Log.setVerbose(Log.Verbose.off);
+    // pool != null: optimize, lower and allocate functions in parallel, the output is the same as the sequential one
+    public static void compile(InputStream code, PrintStream output, ForkJoinPool pool) {
         try {
-
-            IRBuilder.run(CharStreams.fromStream(code));
+            new CompilationSession(pool).compile(code, output);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
-
-            return;
         } catch (IOException e) {
-            return;
+            // nothing to compile
         }
 
-        IRModule module = IRBuilder.irModule;
-
-
-        new MiddleEndOptimizer().runOnModule(module);
-
-
-        // s = "E:\\WORKSPACE\\llvmir2mlog\\src\\main\\resources\\out";
-
-
-        //  new IRPrinter(printStream).runOnModule(IRBuilder.irModule);
-
-        // System.out.println("==========================");
-
-
-        AsmBuilder builder = new AsmBuilder();
-        builder.runOnModule(IRBuilder.irModule);
-
-//         Graph Coloring
-        new RegisterAllocator().runOnModule(builder.module);
-//
-        // Stack Allocate. Eliminate RawStackOffset
-        new StackAllocator().runOnModule(builder.module);
-//
-        // Optimize Assembly. Don't comment it directly because there are some necessary passes.
-        new BackEndOptimizer().runOnModule(builder.module);
-
-
-        new AsmPrinter(
-
-                output).runOnModule(builder.module);
-
 //import java.io.*;
 
 // ...
@@ -0,0 +1,67 @@
+package llvm2mlog.server;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client side of the CompileServer protocol, for tools running in a JVM.
+ * The shell client is app.sh.
+ */
+public class CompileClient {
+
+    public final String status;
+    // the rest of the response header, e.g. time=3ms spill=0
+    public final String info;
+    public final byte[] payload;
+
+    private CompileClient(String status, String info, byte[] payload) {
+        this.status = status;
+        this.info = info;
+        this.payload = payload;
+    }
+
+    public boolean ok() {
+        return status.equals("OK");
+    }
+
+    public String text() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    public static CompileClient compile(int port, byte[] code, String... options) throws IOException {
+        StringBuilder header = new StringBuilder("COMPILE ").append(code.length);
+        for (String option : options) header.append(' ').append(option);
+        return send(port, header.toString(), code);
+    }
+
+    public static CompileClient ping(int port) throws IOException {
+        return send(port, "PING", new byte[0]);
+    }
+
+    public static CompileClient shutdown(int port) throws IOException {
+        return send(port, "SHUTDOWN", new byte[0]);
+    }
+
+    private static CompileClient send(int port, String header, byte[] body) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            out.write((header + "\n").getBytes(StandardCharsets.UTF_8));
+            out.write(body);
+            out.flush();
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            var line = new ByteArrayOutputStream();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) throw new EOFException("no response");
+                line.write(c);
+            }
+            String[] response = line.toString(StandardCharsets.UTF_8).split(" ", 3);
+            int length = Integer.parseInt(response[1]);
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length) throw new EOFException("truncated response");
+            return new CompileClient(response[0], response.length > 2 ? response[2] : "", payload);
+        }
+    }
+}
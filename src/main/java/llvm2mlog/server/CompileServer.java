@@ -0,0 +1,241 @@
+package llvm2mlog.server;
+
+import llvm2mlog.CompilationSession;
+import llvm2mlog.compiler.cache.FunctionCache;
+import llvm2mlog.compiler.share.error.CompileError;
+import llvm2mlog.debug.Log;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Compile daemon on a loopback TCP port.
+ * The JVM stays warm between requests: the parser keeps its DFA cache and the passes stay JIT-compiled.
+ * One request per connection, every request is compiled by its own session on a worker thread.
+ * <p>
+ * request:
+ * COMPILE length [option=value]...\n followed by length bytes of LLVM IR, at most maxRequestLength
+ * PING\n
+ * SHUTDOWN\n
+ * <p>
+ * response:
+ * status length [key=value]...\n followed by length bytes, status is OK or ERROR,
+ * the payload is the mlog code when OK and the diagnostics when ERROR
+ * <p>
+ * options: parallel=true|false, compile the functions of the module on the shared fork-join pool
+ * reachable=true|false, leave out the functions main cannot reach
+ * fastread=true|false, read the module without a parse tree where the reader can
+ * lowmemory=true|false, release the parse tree of a function once it is built
+ */
+public class CompileServer implements Closeable {
+
+    public static final int DefaultPort = 7070;
+    // the header is a single short line
+    private static final int MaxHeaderLength = 1024;
+    public static final int DefaultMaxRequestLength = 256 << 20;
+
+    // a longer module is refused before its body is read
+    public volatile int maxRequestLength = DefaultMaxRequestLength;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private final ForkJoinPool pool = new ForkJoinPool();
+    // resubmitting an edited module only recompiles the functions the edit affects
+    private final FunctionCache functionCache = new FunctionCache();
+
+    public CompileServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CompileServer(int port, int workers) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "llvm2mlog-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // accept requests until shut down
+    public void run() {
+        warmUp();
+        Log.info("llvm2mlog server listening on port", getPort());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                try {
+                    workers.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    // accepted while SHUTDOWN closes the server
+                    socket.close();
+                    break;
+                }
+            } catch (SocketException e) {
+                // closed by SHUTDOWN
+            } catch (IOException e) {
+                Log.stackTrace(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        workers.shutdown();
+        pool.shutdown();
+    }
+
+    // load the classes and fill the parser caches before the first request comes
+    private void warmUp() {
+        byte[] code = WarmUpModule.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 20; i++) {
+            try {
+                new CompilationSession().compile(new ByteArrayInputStream(code), new PrintStream(OutputStream.nullOutputStream()));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            String[] header = readHeader(in).split(" ");
+
+            switch (header[0]) {
+                case "PING":
+                    respond(out, "OK", new byte[0], "");
+                    break;
+                case "SHUTDOWN":
+                    respond(out, "OK", new byte[0], "");
+                    close();
+                    break;
+                case "COMPILE":
+                    compile(header, in, out);
+                    break;
+                default:
+                    respond(out, "ERROR", ("unknown request: " + header[0]).getBytes(StandardCharsets.UTF_8), "");
+            }
+        } catch (IOException e) {
+            // the client is gone, nothing to tell
+        }
+    }
+
+    private void compile(String[] header, InputStream in, OutputStream out) throws IOException {
+        boolean parallel = false, reachable = false, fastRead = false, lowMemory = false;
+        int length;
+        try {
+            length = Integer.parseInt(header[1]);
+            if (length < 0) throw new IllegalArgumentException("negative length: " + length);
+            if (length > maxRequestLength)
+                throw new IllegalArgumentException("length " + length + " above the limit " + maxRequestLength);
+            for (int i = 2; i < header.length; i++) {
+                String[] option = header[i].split("=", 2);
+                if (option.length == 2 && option[0].equals("parallel")) {
+                    parallel = Boolean.parseBoolean(option[1]);
+                } else if (option.length == 2 && option[0].equals("reachable")) {
+                    reachable = Boolean.parseBoolean(option[1]);
+                } else if (option.length == 2 && option[0].equals("fastread")) {
+                    fastRead = Boolean.parseBoolean(option[1]);
+                } else if (option.length == 2 && option[0].equals("lowmemory")) {
+                    lowMemory = Boolean.parseBoolean(option[1]);
+                } else {
+                    throw new IllegalArgumentException("unknown option: " + header[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            respond(out, "ERROR", ("bad request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8), "");
+            return;
+        }
+
+        byte[] code = in.readNBytes(length);
+        if (code.length < length) {
+            respond(out, "ERROR", "truncated request".getBytes(StandardCharsets.UTF_8), "");
+            return;
+        }
+
+        var session = new CompilationSession(parallel ? pool : null, functionCache);
+        session.reachableOnly = reachable;
+        session.fastRead = fastRead;
+        session.lowMemory = lowMemory;
+        var mlog = new StringBuilder();
+        long start = System.nanoTime();
+        try {
+            session.compile(new ByteArrayInputStream(code), mlog);
+        } catch (Throwable e) {
+            // anything escaping the worker would leave the client waiting
+            respond(out, "ERROR", diagnostic(e).getBytes(StandardCharsets.UTF_8), "");
+            return;
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        respond(out, "OK", mlog.toString().getBytes(StandardCharsets.UTF_8), " time=" + millis + "ms spill=" + session.statistics.get("spill")
+                + " reused=" + session.statistics.get("function reused"));
+    }
+
+    // what the command line prints for the error
+    private static String diagnostic(Throwable e) {
+        if (e instanceof CompileError) return ((CompileError) e).text();
+        var trace = new StringWriter();
+        e.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+
+    private static String readHeader(InputStream in) throws IOException {
+        var header = new ByteArrayOutputStream();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0 || header.size() >= MaxHeaderLength) throw new EOFException("bad header");
+            header.write(c);
+        }
+        return header.toString(StandardCharsets.UTF_8).trim();
+    }
+
+    private static void respond(OutputStream out, String status, byte[] payload, String extra) throws IOException {
+        out.write((status + " " + payload.length + extra + "\n").getBytes(StandardCharsets.UTF_8));
+        out.write(payload);
+        out.flush();
+    }
+
+    private static final String WarmUpModule =
+            "@g = dso_local global i32 3, align 4\n" +
+                    "define dso_local noundef i32 @\"f\"(i32 noundef %0) {\n" +
+                    "  %2 = alloca i32, align 4\n" +
+                    "  %3 = alloca i32, align 4\n" +
+                    "  store i32 %0, ptr %2, align 4\n" +
+                    "  store i32 0, ptr %3, align 4\n" +
+                    "  br label %4\n\n" +
+                    "4:\n" +
+                    "  %5 = load i32, ptr %3, align 4\n" +
+                    "  %6 = load i32, ptr %2, align 4\n" +
+                    "  %7 = icmp slt i32 %5, %6\n" +
+                    "  br i1 %7, label %8, label %13\n\n" +
+                    "8:\n" +
+                    "  %9 = load i32, ptr %3, align 4\n" +
+                    "  %10 = load i32, ptr @g, align 4\n" +
+                    "  %11 = mul nsw i32 %9, %10\n" +
+                    "  %12 = add nsw i32 %11, 1\n" +
+                    "  store i32 %12, ptr %3, align 4\n" +
+                    "  br label %4\n\n" +
+                    "13:\n" +
+                    "  %14 = load i32, ptr %3, align 4\n" +
+                    "  ret i32 %14\n" +
+                    "}\n" +
+                    "define dso_local noundef i32 @main() {\n" +
+                    "  %1 = call noundef i32 @\"f\"(i32 noundef 10)\n" +
+                    "  call void @print(i32 noundef %1)\n" +
+                    "  ret i32 0\n" +
+                    "}\n" +
+                    "declare dso_local void @print(i32 noundef)\n";
+}
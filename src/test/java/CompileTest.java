@@ -1,10 +1,65 @@
+import bench.SyntheticIR;
+import llvm2mlog.BatchCompiler;
+import llvm2mlog.CompilationSession;
+import llvm2mlog.compiler.backend.analyzer.LivenessAnalyzer;
+import llvm2mlog.compiler.backend.regalloc.RegisterAllocator;
+import llvm2mlog.compiler.backend.rvasm.AsmBuilder;
+import llvm2mlog.compiler.backend.rvasm.AsmPrinter;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmBlock;
+import llvm2mlog.compiler.backend.rvasm.hierarchy.AsmFunction;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmBaseInst;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmJmpInst;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmMoveInst;
+import llvm2mlog.compiler.backend.rvasm.inst.AsmRetInst;
+import llvm2mlog.compiler.backend.rvasm.operand.PhysicalReg;
+import llvm2mlog.compiler.backend.rvasm.operand.VirtualReg;
+import llvm2mlog.compiler.cache.DiskCache;
+import llvm2mlog.compiler.cache.FunctionCache;
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import llvm2mlog.compiler.middleend.llvmir.IRReader;
+import llvm2mlog.compiler.middleend.llvmir.IRTranslator;
+import llvm2mlog.compiler.middleend.llvmir.Value;
+import llvm2mlog.compiler.middleend.llvmir.constant.NumConst;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRBlock;
+import llvm2mlog.compiler.middleend.llvmir.hierarchy.IRFunction;
+import llvm2mlog.compiler.middleend.llvmir.inst.IRBinaryInst;
+import llvm2mlog.compiler.middleend.llvmir.ModuleParser;
+import llvm2mlog.compiler.middleend.optim.MiddleEndOptimizer;
+import llvm2mlog.debug.Statistics;
 import llvm2mlog.llvm2mlog;
+import llvm2mlog.server.CompileClient;
+import llvm2mlog.server.CompileServer;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CompileTest {
     public static void main(String[] args) {
@@ -33,6 +88,16 @@ public class CompileTest {
 
     }
 
+    static String compileToString(String file, ForkJoinPool pool) {
+        var bytes = new ByteArrayOutputStream();
+        try {
+            llvm2mlog.compile(new FileInputStream(file), new PrintStream(bytes), pool);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toString();
+    }
+
     @org.junit.jupiter.api.Test
     void testBuildinFUnction() {
         var file = "src/test/resources/ipac.ll";
@@ -46,4 +111,654 @@ public class CompileTest {
 
     }
 
+    @org.junit.jupiter.api.Test
+    void testParallelCompile() {
+        var pool = new ForkJoinPool(4);
+        try {
+            for (var file : new String[]{"src/test/resources/fib.ll", "src/test/resources/ipac.ll"})
+                assertEquals(compileToString(file, null), compileToString(file, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testConcurrentSessions() throws Exception {
+        var files = new String[]{"src/test/resources/fib.ll", "src/test/resources/ipac.ll"};
+        var expected = new String[files.length];
+        for (int i = 0; i < files.length; i++) expected[i] = compileToString(files[i], null);
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 16; i++) {
+                var file = files[i % files.length];
+                results.add(executor.submit(() -> {
+                    var bytes = new ByteArrayOutputStream();
+                    new CompilationSession().compile(new FileInputStream(file), new PrintStream(bytes));
+                    return bytes.toString();
+                }));
+            }
+            for (int i = 0; i < results.size(); i++)
+                assertEquals(expected[i % files.length], results.get(i).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // values live at once, more than there are registers
+    static String pressure(int values) {
+        var ir = new StringBuilder();
+        for (int i = 0; i < values; i++) ir.append("@g").append(i).append(" = dso_local global i32 ").append(i).append(", align 4\n");
+        ir.append("\ndefine dso_local noundef i32 @main() {\n");
+        for (int i = 0; i < values; i++) ir.append("  %l").append(i).append(" = load i32, ptr @g").append(i).append(", align 4\n");
+        ir.append("  %s0 = mul nsw i32 %l0, 3\n");
+        for (int i = 1; i < values; i++)
+            ir.append("  %s").append(i).append(" = add nsw i32 %s").append(i - 1).append(", %l").append(values - i).append("\n");
+        ir.append("  call void @print(i32 noundef %s").append(values - 1).append(")\n  ret i32 0\n}\n");
+        ir.append("declare dso_local void @print(i32 noundef)\n");
+        return ir.toString();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testRegisterAllocator() throws IOException {
+        var pool = new ForkJoinPool(4);
+        try {
+            for (var source : new String[]{pressure(80), SyntheticIR.module(12)}) {
+                var session = new CompilationSession();
+                var mlog = compileSource(source, session);
+                // every virtual register got a color or a stack slot
+                assertFalse(java.util.regex.Pattern.compile("\\bv[0-9]+\\b").matcher(mlog).find());
+                assertEquals(mlog, compileSource(source, new CompilationSession()));
+                assertEquals(mlog, compileSource(source, new CompilationSession(pool)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        var session = new CompilationSession();
+        compileSource(pressure(80), session);
+        assertTrue(session.statistics.get("spill") > 0);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testLinearScan() throws IOException {
+        for (var source : new String[]{pressure(80), SyntheticIR.module(12)}) {
+            var session = new CompilationSession();
+            session.linearScanAbove = 0;
+            var mlog = compileSource(source, session);
+            assertFalse(java.util.regex.Pattern.compile("\\bv[0-9]+\\b").matcher(mlog).find());
+            var again = new CompilationSession();
+            again.linearScanAbove = 0;
+            assertEquals(mlog, compileSource(source, again));
+        }
+        var session = new CompilationSession();
+        session.linearScanAbove = 0;
+        compileSource(pressure(80), session);
+        assertTrue(session.statistics.get("spill") > 0);
+        var csv = new StringBuilder();
+        session.statistics.writeCsv(csv);
+        assertTrue(csv.toString().contains("LinearScanAllocator"));
+
+        // small functions stay with graph coloring
+        session = new CompilationSession();
+        compileSource(pressure(80), session);
+        csv.setLength(0);
+        session.statistics.writeCsv(csv);
+        assertFalse(csv.toString().contains("LinearScanAllocator"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testAllocationOrder() throws IOException {
+        // the middle end may give this module different asm from run to run, but the same asm is always
+        // allocated the same way, whatever the identity hashes of its registers
+        var source = Files.readString(Path.of("src/test/resources/regalloc/ties.ir"));
+        var allocated = new java.util.HashMap<String, String>();
+        for (int i = 0; i < 8; i++) {
+            var builder = new IRBuilder();
+            builder.run(CharStreams.fromString(source));
+            new MiddleEndOptimizer(null, Set.of(), new Statistics()).runOnModule(builder.irModule);
+            var asmBuilder = new AsmBuilder(null, java.util.Map.of());
+            asmBuilder.runOnModule(builder.irModule);
+            var before = new StringBuilder();
+            new AsmPrinter(before).runOnModule(asmBuilder.module);
+            new RegisterAllocator(null, new Statistics()).runOnModule(asmBuilder.module);
+            var after = new StringBuilder();
+            new AsmPrinter(after).runOnModule(asmBuilder.module);
+            var previous = allocated.putIfAbsent(before.toString(), after.toString());
+            if (previous != null) assertEquals(previous, after.toString());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testLiveness() {
+        // entry branches to an endless loop using v and to the exit block
+        var function = new AsmFunction("f");
+        var entry = new AsmBlock("entry");
+        var loop = new AsmBlock("loop");
+        var exit = new AsmBlock("exit");
+        function.blocks.addAll(List.of(entry, loop, exit));
+        function.entryBlock = entry;
+        function.exitBlock = exit;
+        var v = new VirtualReg(function);
+        new AsmMoveInst(v, PhysicalReg.a(0), entry);
+        new AsmJmpInst(loop, entry);
+        new AsmMoveInst(PhysicalReg.a(1), v, loop);
+        new AsmJmpInst(loop, loop);
+        new AsmRetInst(exit);
+        entry.nexts.addAll(List.of(loop, exit));
+        loop.prevs.addAll(List.of(entry, loop));
+        loop.nexts.add(loop);
+        exit.prevs.add(entry);
+
+        var liveness = new LivenessAnalyzer();
+        liveness.runOnFunc(function);
+        int number = liveness.numbering().number(v), ra = liveness.numbering().number(PhysicalReg.reg("ra"));
+        assertTrue(loop.liveIn.get(number) && loop.liveOut.get(number) && entry.liveOut.get(number));
+        assertFalse(entry.liveIn.get(number) || exit.liveIn.get(number));
+        assertTrue(exit.liveIn.get(ra) && entry.liveIn.get(ra));
+        assertFalse(loop.liveIn.get(ra));
+
+        var spilled = new java.util.BitSet();
+        spilled.set(number);
+        liveness.removeRegisters(function, spilled);
+        assertFalse(loop.liveIn.get(number) || entry.liveOut.get(number));
+        assertTrue(exit.liveIn.get(ra));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testInstList() {
+        var block = new AsmBlock("block");
+        var moves = new ArrayList<AsmMoveInst>();
+        for (int i = 0; i < 6; i++) moves.add(new AsmMoveInst(PhysicalReg.a(i), PhysicalReg.a(i + 1), block));
+        var list = block.instructions;
+        assertEquals(moves, list);
+
+        // removing others while iterating, the iterator steps over them
+        var seen = new ArrayList<AsmBaseInst>();
+        for (var inst : list) {
+            seen.add(inst);
+            if (inst == moves.get(1)) {
+                list.remove(moves.get(1));
+                list.remove(moves.get(2));
+            }
+        }
+        assertEquals(List.of(moves.get(0), moves.get(1), moves.get(3), moves.get(4), moves.get(5)), seen);
+        assertEquals(4, list.size());
+        assertFalse(list.contains(moves.get(2)));
+
+        // inserted after the cursor is met, before it is not
+        var after = new AsmMoveInst(PhysicalReg.a(7), PhysicalReg.a(0), null);
+        var before = new AsmMoveInst(PhysicalReg.a(7), PhysicalReg.a(1), null);
+        seen.clear();
+        for (var inst : list) {
+            seen.add(inst);
+            if (inst == moves.get(3)) {
+                list.addAfter(inst, after);
+                list.addBefore(inst, before);
+            }
+        }
+        assertEquals(List.of(moves.get(0), moves.get(3), after, moves.get(4), moves.get(5)), seen);
+        assertEquals(List.of(moves.get(0), before, moves.get(3), after, moves.get(4), moves.get(5)), list);
+        assertEquals(moves.get(3), before.next());
+        assertEquals(before, moves.get(3).prev());
+
+        // the list iterator as the spill code uses it
+        var load = new AsmMoveInst(PhysicalReg.a(7), PhysicalReg.a(2), null);
+        var it = list.listIterator();
+        it.next();
+        it.next();
+        it.set(moves.get(2));
+        it.previous();
+        it.add(load);
+        assertEquals(moves.get(2), it.next());
+        it.remove();
+        assertEquals(List.of(moves.get(0), load, moves.get(3), after, moves.get(4), moves.get(5)), list);
+
+        var reversed = new ArrayList<AsmBaseInst>();
+        list.descendingIterator().forEachRemaining(reversed::add);
+        java.util.Collections.reverse(reversed);
+        assertEquals(list, reversed);
+        assertEquals(moves.get(4), list.get(4));
+        assertEquals(moves.get(5), list.removeLast());
+
+        // in one list at most
+        assertThrows(RuntimeException.class, () -> new AsmBlock("other").addInst(load));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testUseList() {
+        var x = new Value("x", IRTranslator.i32Type);
+        var y = new Value("y", IRTranslator.i32Type);
+        var twice = new IRBinaryInst("add", IRTranslator.i32Type, x, x, null);
+        var once = new IRBinaryInst("mul", IRTranslator.i32Type, y, x, null);
+        assertEquals(List.of(twice, twice, once), x.users());
+        assertEquals(List.of(once), y.users());
+
+        // RAUW moves the uses, x has none left
+        x.replaceAllUsesWith(y);
+        assertEquals(0, x.users().size());
+        assertEquals(List.of(once, twice, twice, once), y.users());
+        assertEquals(List.of(y, y), twice.operands());
+
+        // the operand list keeps the use lists
+        twice.resetOperand(0, x);
+        once.operands().set(1, x);
+        assertEquals(List.of(twice, once), x.users());
+        assertEquals(List.of(once, twice), y.users());
+        java.util.Collections.reverse(once.operands());
+        assertEquals(List.of(x, y), once.operands());
+        assertEquals(List.of(twice, once), y.users());
+
+        // a removed instruction leaves the use lists, its operands are still there
+        twice.removedFromAllUsers();
+        assertEquals(List.of(once), x.users());
+        assertEquals(List.of(once), y.users());
+        assertEquals(List.of(x, y), twice.operands());
+        once.operands().remove(0);
+        assertEquals(0, x.users().size());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testNumbering() {
+        var function = new IRFunction("f", IRTranslator.i32Type, IRTranslator.i32Type);
+        var x = new Value("x", IRTranslator.i32Type);
+        function.addArg(x);
+        var a = new IRBlock("a", function);
+        var b = new IRBlock("b", function);
+        var add = new IRBinaryInst("add", IRTranslator.i32Type, x, x, a);
+        var mul = new IRBinaryInst("mul", IRTranslator.i32Type, add, x, b);
+
+        // blocks first, then args and instructions
+        function.renumber();
+        assertEquals(List.of(0, 1, 2, 3, 4), List.of(function.index(a), function.index(b), function.index(x), function.index(add), function.index(mul)));
+        assertEquals(-1, function.number(new NumConst(1)));
+
+        // met later: after them, a removed value keeps its number until renumber
+        var sub = new IRBinaryInst("sub", IRTranslator.i32Type, mul, x, null);
+        assertEquals(-1, function.index(sub));
+        assertEquals(5, function.number(sub));
+        b.instructions.remove(mul);
+        int numbering = function.numbering();
+        function.renumber();
+        assertEquals(-1, function.index(mul));
+        assertEquals(-1, function.index(sub));
+        assertEquals(4, function.numberedCount());
+        assertNotEquals(numbering, function.numbering());
+    }
+
+    static String compileSource(String ir, CompilationSession session) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        session.compile(new ByteArrayInputStream(ir.getBytes(StandardCharsets.UTF_8)), new PrintStream(bytes));
+        return bytes.toString();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFunctionCache() throws IOException {
+        var cache = new FunctionCache();
+        var module = SyntheticIR.module(12);
+        // one function edited, and a global main starts writing, which changes what every function may assume
+        var edited = module.replace("mul nsw i32 %11, 7\n", "mul nsw i32 %11, 99\n");
+        var stored = module.replace("  store i32 0, ptr %1, align 4\n", "  store i32 0, ptr %1, align 4\n  store i32 5, ptr @g, align 4\n");
+        for (var source : new String[]{module, module, edited, stored}) {
+            long hits = cache.hits();
+            assertEquals(compileSource(source, new CompilationSession()), compileSource(source, new CompilationSession(null, cache)));
+            if (source == module && hits > 0) assertEquals(13, cache.hits() - hits);
+            if (source == edited) assertEquals(12, cache.hits() - hits);
+            if (source == stored) assertTrue(cache.hits() - hits < 12);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testDiskCache(@TempDir Path cacheDir) throws Exception {
+        var files = new String[]{"src/test/resources/fib.ll", "src/test/resources/ipac.ll"};
+        // several compilers on one directory, each with its own DiskCache as separate processes would have
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 8; i++) {
+                var file = files[i % files.length];
+                results.add(executor.submit(() -> compileSource(Files.readString(Path.of(file)),
+                        new CompilationSession(null, null, new DiskCache(cacheDir)))));
+            }
+            for (int i = 0; i < results.size(); i++)
+                assertEquals(compileToString(files[i % files.length], null), results.get(i).get());
+        } finally {
+            executor.shutdown();
+        }
+
+        var session = new CompilationSession(null, null, new DiskCache(cacheDir));
+        assertEquals(compileToString(files[0], null), compileSource(Files.readString(Path.of(files[0])), session));
+        assertEquals(1, session.statistics.get("disk cache hit"));
+
+        // bounded to the larger output, compiling both keeps only one
+        long bound = Math.max(compileToString(files[0], null).length(), compileToString(files[1], null).length());
+        var bounded = new DiskCache(cacheDir.resolve("bounded"), bound);
+        for (var file : files) compileSource(Files.readString(Path.of(file)), new CompilationSession(null, null, bounded));
+        try (var entries = Files.walk(bounded.directory)) {
+            assertEquals(1, entries.filter(entry -> entry.toString().endsWith(DiskCache.Suffix)).count());
+        }
+
+        // rebuilding any class of the compiler, not only DiskCache, misses
+        var classes = Files.createDirectories(cacheDir.resolve("classes").resolve("pass"));
+        Files.writeString(classes.resolve("A.class"), "a");
+        Files.writeString(classes.resolve("B.class"), "b");
+        String before = DiskCache.versionOf(classes.getParent());
+        byte[] module = Files.readAllBytes(Path.of(files[0]));
+        var versioned = new DiskCache(cacheDir.resolve("versioned"));
+        versioned.put(DiskCache.key(module, session.flags(), before), "mlog");
+        Files.writeString(classes.resolve("B.class"), "b2");
+        assertNull(versioned.get(DiskCache.key(module, session.flags(), DiskCache.versionOf(classes.getParent()))));
+        assertEquals("mlog", versioned.get(DiskCache.key(module, session.flags(), before)));
+
+        // a cache that can be neither read nor written still gives the compiled code
+        var notDirectory = Files.writeString(cacheDir.resolve("file"), "");
+        var broken = new CompilationSession(null, null, new DiskCache(notDirectory));
+        assertEquals(compileToString(files[0], null), compileSource(Files.readString(Path.of(files[0])), broken));
+        assertEquals(1, broken.statistics.get("disk cache read error"));
+        assertEquals(1, broken.statistics.get("disk cache write error"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testParallelParse() throws IOException {
+        // large enough to be cut into many chunks
+        var module = SyntheticIR.module(200);
+        var pool = new ForkJoinPool(4);
+        try {
+            var sequential = new IRBuilder();
+            sequential.run(CharStreams.fromString(module));
+            var parallel = new IRBuilder(pool);
+            parallel.run(CharStreams.fromString(module));
+            assertEquals(sequential.irModule.functions.toString(), parallel.irModule.functions.toString());
+            assertEquals(rows(sequential), rows(parallel));
+
+            assertEquals(compileSource(module, new CompilationSession()), compileSource(module, new CompilationSession(pool)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static String rows(IRBuilder builder) {
+        return builder.rowMarker.values().stream().map(mark -> mark.row + " " + mark.code()).collect(Collectors.joining("\n"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testReachableOnly() throws IOException {
+        var module = SyntheticIR.module(12);
+        // never called, and the only function writing @g, so the others lose nothing by leaving it out
+        var withHelper = module + "\ndefine dso_local noundef i32 @\"unused\"(i32 noundef %0) {\n"
+                + "  store i32 %0, ptr @g, align 4\n"
+                + "  %2 = call noundef i32 @\"f3\"(i32 noundef %0)\n"
+                + "  ret i32 %2\n"
+                + "}\n";
+        var session = new CompilationSession();
+        session.reachableOnly = true;
+        assertEquals(compileSource(module, new CompilationSession()), compileSource(withHelper, session));
+        assertEquals(1, session.statistics.get("function skipped"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testTwoStageParse() throws IOException {
+        // well-formed or not, SLL first gives the trees of LL alone
+        try (var files = Files.walk(Paths.get("src/test/resources"))) {
+            for (var file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".ll")).sorted()::iterator) {
+                var twoStage = new ModuleParser(null);
+                var llOnly = new ModuleParser(null);
+                llOnly.twoStage = false;
+                assertEquals(trees(llOnly, file), trees(twoStage, file), file.toString());
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFastRead() throws IOException {
+        for (var source : new String[]{Files.readString(Path.of("src/test/resources/fib.ll")),
+                Files.readString(Path.of("src/test/resources/ipac.ll")), SyntheticIR.module(12)}) {
+            var parsed = new IRBuilder();
+            parsed.run(CharStreams.fromString(source));
+            var read = new IRBuilder();
+            new IRReader(read, source).read();
+            assertEquals(parsed.irModule.functions.toString(), read.irModule.functions.toString());
+            assertEquals(rows(parsed), rows(read));
+
+            var session = new CompilationSession();
+            session.fastRead = true;
+            assertEquals(compileSource(source, new CompilationSession()), compileSource(source, session));
+            assertEquals(0, session.statistics.get("fast read fallback"));
+        }
+
+        // a typed pointer the reader does not know, the parser builds the whole module instead
+        var module = SyntheticIR.module(4).replace("  store i32 0, ptr %1, align 4\n",
+                "  store i32 0, ptr %1, align 4\n  %p = alloca i32*, align 8\n");
+        assertThrows(IRReader.Unsupported.class, () -> new IRReader(new IRBuilder(), module).read());
+        var session = new CompilationSession();
+        session.fastRead = true;
+        assertEquals(compileSource(module, new CompilationSession()), compileSource(module, session));
+        assertEquals(1, session.statistics.get("fast read fallback"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testLowMemory() throws IOException {
+        var pool = new ForkJoinPool(4);
+        try {
+            for (var source : new String[]{Files.readString(Path.of("src/test/resources/fib.ll")),
+                    Files.readString(Path.of("src/test/resources/ipac.ll")), SyntheticIR.module(12)}) {
+                var parsed = new IRBuilder();
+                parsed.run(CharStreams.fromString(source));
+                var low = new IRBuilder(pool);
+                low.lowMemory = true;
+                low.run(CharStreams.fromString(source));
+                assertEquals(parsed.irModule.functions.toString(), low.irModule.functions.toString());
+                low.irModule.functions.forEach(function -> assertEquals(null, function.Source));
+
+                // rows read again from the text, the same through the reader
+                var read = new IRBuilder();
+                read.lowMemory = true;
+                new IRReader(read, source).read();
+                assertEquals(rows(parsed), rows(low));
+                assertEquals(rows(low), rows(read));
+                assertEquals(parsed.rowMarker.values().stream().map(mark -> mark.row).collect(Collectors.toList()),
+                        low.rowMarker.values().stream().map(mark -> mark.row).collect(Collectors.toList()));
+
+                var session = new CompilationSession();
+                session.lowMemory = true;
+                assertEquals(compileSource(source, new CompilationSession()), compileSource(source, session));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // the tokens of the instruction alone, across rows, without comments, after a name of two chars per code point
+        var module = "@\"g\uD83D\uDE00\" = dso_local global i32 3, align 4\n"
+                + "define dso_local i32 @main() {\n"
+                + "  %1 = load i32, ptr @\"g\uD83D\uDE00\", align 4\n"
+                + "  %2 = add nsw i32 %1, ; the left\n"
+                + "       2 ; the right\n"
+                + "  ret i32 %2 ; done\n"
+                + "}\n";
+        var parsed = new IRBuilder();
+        parsed.run(CharStreams.fromString(module));
+        var low = new IRBuilder();
+        low.lowMemory = true;
+        low.run(CharStreams.fromString(module));
+        assertEquals(rows(parsed), rows(low));
+        var marks = new ArrayList<>(low.rowMarker.values());
+        assertEquals("%2=addnswi32%1,2", marks.get(1).code());
+        assertEquals("reti32%2", marks.get(2).code());
+        assertEquals(2, marks.get(0).column);
+    }
+
+    static String trees(ModuleParser parser, Path file) throws IOException {
+        return parser.parse(CharStreams.fromPath(file)).stream().map(entity -> entity.getStart().getLine() + " " + entity.toStringTree())
+                .collect(Collectors.joining("\n"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPassManager() throws IOException {
+        for (var source : new String[]{Files.readString(Path.of("src/test/resources/fib.ll")),
+                Files.readString(Path.of("src/test/resources/ipac.ll")), SyntheticIR.module(12)}) {
+            var statistics = new Statistics();
+            var uncached = new MiddleEndOptimizer(null, Set.of(), new Statistics());
+            uncached.cacheAnalyses = false;
+            // an analysis kept between passes is the one they would compute again
+            assertEquals(optimized(source, uncached), optimized(source, new MiddleEndOptimizer(null, Set.of(), statistics)));
+            assertTrue(statistics.get("analysis reused") > 0);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFixedPoint() throws IOException {
+        int skipped = 0;
+        for (var source : new String[]{Files.readString(Path.of("src/test/resources/fib.ll")),
+                Files.readString(Path.of("src/test/resources/ipac.ll")), SyntheticIR.module(12)}) {
+            var sevenRounds = new CompilationSession();
+            sevenRounds.maxRounds = 7;
+            var session = new CompilationSession();
+            assertEquals(compileSource(source, sevenRounds), compileSource(source, session));
+            assertEquals(0, session.statistics.get("fixed point not reached"));
+            skipped += session.statistics.get("pass skipped");
+
+            var builder = new IRBuilder();
+            builder.run(CharStreams.fromString(source));
+            var optimizer = new MiddleEndOptimizer();
+            optimizer.runOnModule(builder.irModule);
+            assertEquals(builder.irModule.functions.size(), optimizer.rounds.size());
+            // the last round only finds that nothing changes
+            optimizer.rounds.values().forEach(rounds -> assertTrue(rounds >= 1 && rounds < 7));
+        }
+        assertTrue(skipped > 0);
+
+        // cut short, the function is still compiled
+        var oneRound = new CompilationSession();
+        oneRound.maxRounds = 1;
+        var source = SyntheticIR.module(12);
+        assertFalse(compileSource(source, oneRound).isEmpty());
+        assertTrue(oneRound.statistics.get("fixed point not reached") > 0);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testProfile() throws IOException {
+        var source = SyntheticIR.module(12);
+        var profiled = new CompilationSession();
+        profiled.statistics.profile = true;
+        assertEquals(compileSource(source, new CompilationSession()), compileSource(source, profiled));
+
+        var statistics = profiled.statistics;
+        for (var stage : new String[]{"IRBuilder", "MiddleEndOptimizer", "RegisterAllocator", "AsmPrinter"}) {
+            assertEquals(1, statistics.record(stage, Statistics.Module).runs.sum());
+            assertTrue(statistics.record(stage, Statistics.Module).nanos.sum() > 0);
+        }
+        assertTrue(statistics.record("GVN", "@main").runs.sum() > 0);
+        assertTrue(statistics.record("RegisterAllocator", "@main").counters.get("round").sum() > 0);
+
+        var csv = new StringBuilder();
+        statistics.writeCsv(csv);
+        assertTrue(csv.toString().startsWith("pass,function,metric,value\n"));
+        assertTrue(csv.toString().contains("\nGVN,@main,nanos,"));
+        csv.toString().lines().forEach(line -> assertEquals(4, line.split(",").length, line));
+        var json = new StringBuilder();
+        statistics.writeJson(json);
+        assertTrue(json.toString().startsWith("{") && json.toString().contains("\"pass\": \"GVN\""));
+
+        // not profiling, runs and counters only
+        var plain = new CompilationSession();
+        compileSource(source, plain);
+        assertTrue(plain.statistics.record("GVN", "@main").runs.sum() > 0);
+        assertEquals(0, plain.statistics.record("GVN", "@main").nanos.sum());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testBatchProfile(@TempDir Path dir) throws IOException {
+        // both define @main, a batch keeps a record of each
+        var fib = Files.copy(Path.of("src/test/resources/fib.ll"), dir.resolve("fib.ll"));
+        var ipac = Files.copy(Path.of("src/test/resources/ipac.ll"), dir.resolve("ipac.ll"));
+        var compiler = new BatchCompiler(null);
+        compiler.statistics.profile = true;
+        var results = compiler.compile(List.of(fib, ipac), dir, dir);
+        assertEquals(0, BatchCompiler.failures(results));
+
+        for (var file : List.of(fib, ipac)) {
+            var alone = new CompilationSession();
+            compileSource(Files.readString(file), alone);
+            var record = compiler.statistics.record("GVN", file + ":@main");
+            assertEquals(alone.statistics.record("GVN", "@main").runs.sum(), record.runs.sum());
+            assertTrue(record.nanos.sum() > 0);
+            assertEquals(1, compiler.statistics.record("IRBuilder", file + ":" + Statistics.Module).runs.sum());
+        }
+        var csv = new StringBuilder();
+        compiler.statistics.writeCsv(csv);
+        assertFalse(csv.toString().contains("\nGVN,@main,"));
+    }
+
+    static String optimized(String source, MiddleEndOptimizer optimizer) {
+        var builder = new IRBuilder();
+        builder.run(CharStreams.fromString(source));
+        optimizer.runOnModule(builder.irModule);
+        var text = new StringBuilder();
+        for (var function : builder.irModule.functions)
+            for (var block : function.blocks) {
+                text.append(block.identifier()).append(":\n");
+                for (var inst : block.instructions) {
+                    text.append(inst.getClass().getSimpleName()).append(' ').append(inst.identifier());
+                    inst.operands().forEach(operand -> text.append(' ').append(operand == null ? null : operand.identifier()));
+                    text.append('\n');
+                }
+            }
+        return text.toString();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testCompileServer() throws Exception {
+        try (var server = new CompileServer(0, 2)) {
+            var thread = new Thread(server::run);
+            thread.start();
+            for (var file : new String[]{"src/test/resources/fib.ll", "src/test/resources/ipac.ll"}) {
+                var response = CompileClient.compile(server.getPort(), Files.readAllBytes(Paths.get(file)));
+                assertTrue(response.ok());
+                assertEquals(compileToString(file, null), response.text());
+            }
+            assertFalse(CompileClient.compile(server.getPort(), "declare void @nope()\n".getBytes(), "nope=1").ok());
+            // a negative length is refused before any body is read
+            try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                socket.getOutputStream().write("COMPILE -1\n".getBytes(StandardCharsets.UTF_8));
+                var response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(response.startsWith("ERROR") && response.contains("bad request"));
+            }
+            // nor is a body above the limit
+            try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                socket.getOutputStream().write(("COMPILE " + Integer.MAX_VALUE + "\n").getBytes(StandardCharsets.UTF_8));
+                var response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(response.startsWith("ERROR") && response.contains("limit"));
+            }
+            // an error of the compiler is answered with its diagnostic
+            var broken = CompileClient.compile(server.getPort(), "define i32 @main() {\n  ret i32 %nope\n}\n".getBytes());
+            assertFalse(broken.ok());
+            assertFalse(broken.text().isEmpty());
+            assertTrue(CompileClient.shutdown(server.getPort()).ok());
+            thread.join();
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testBatchCompile(@TempDir Path outputDir) throws Exception {
+        var source = Paths.get("src/test/resources");
+        var inputs = BatchCompiler.inputs(source);
+        var pool = new ForkJoinPool(4);
+        try {
+            var results = new BatchCompiler(pool).compile(inputs, source, outputDir);
+            assertEquals(inputs.size(), results.size());
+            // some of the examples are not supported, they must not stop the others
+            assertTrue(BatchCompiler.failures(results) > 0);
+            for (var result : results) {
+                if (result.error == null)
+                    assertEquals(compileToString(result.input.toString(), null), Files.readString(result.output));
+                else
+                    assertFalse(Files.exists(result.output));
+            }
+            assertTrue(Files.exists(outputDir.resolve("fib.mlog")));
+            assertTrue(Files.exists(outputDir.resolve("ipac.mlog")));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,56 @@
+package bench;
+
+import llvm2mlog.compiler.middleend.llvmir.ModuleParser;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parse throughput of LL prediction alone and of SLL first with LL as fallback,
+ * on examples/main.ll and synthetic modules of growing size.
+ * usage: ParseBench [seconds per case] [warmup corpus]
+ */
+public class ParseBench {
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        if (args.length > 1) System.out.printf("warmed up with %d files%n", ModuleParser.warmUp(Paths.get(args[1])));
+
+        Map<String, String> inputs = new LinkedHashMap<>();
+        Path example = Paths.get("src/test/resources/examples/main.ll");
+        if (Files.exists(example)) inputs.put("examples/main.ll", Files.readString(example));
+        for (int functions : new int[]{10, 100, 1000})
+            inputs.put("synthetic " + functions, SyntheticIR.module(functions));
+
+        System.out.println("input\tchars\tLL MB/s\tSLL+LL MB/s\tspeedup\tfallbacks");
+        for (Map.Entry<String, String> input : inputs.entrySet()) {
+            String text = input.getValue();
+            // first round of both modes warms up the JIT and the DFA
+            run(text, false, seconds / 4);
+            run(text, true, seconds / 4);
+            double ll = run(text, false, seconds);
+            double twoStage = run(text, true, seconds);
+
+            var parser = new ModuleParser(null);
+            parser.parse(CharStreams.fromString(text));
+            System.out.printf("%s\t%d\t%.2f\t%.2f\t%.2fx\t%d%n", input.getKey(), text.length(),
+                    ll, twoStage, twoStage / ll, parser.fallbacks());
+        }
+    }
+
+    // MB of text per second
+    private static double run(String text, boolean twoStage, double seconds) {
+        long parsed = 0, begin = System.nanoTime();
+        while (System.nanoTime() - begin < seconds * 1e9) {
+            var parser = new ModuleParser(null);
+            parser.twoStage = twoStage;
+            parser.parse(CharStreams.fromString(text));
+            parsed += text.length();
+        }
+        return parsed / 1e6 / ((System.nanoTime() - begin) / 1e9);
+    }
+}
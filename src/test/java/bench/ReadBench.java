@@ -0,0 +1,48 @@
+package bench;
+
+import llvm2mlog.compiler.middleend.llvmir.IRBuilder;
+import llvm2mlog.compiler.middleend.llvmir.IRReader;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time from module text to a built IR module, through the ANTLR tree and through IRReader,
+ * on synthetic modules of growing size.
+ * usage: ReadBench [seconds per case]
+ */
+public class ReadBench {
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+
+        Map<String, String> inputs = new LinkedHashMap<>();
+        for (int functions : new int[]{10, 100, 1000})
+            inputs.put("synthetic " + functions, SyntheticIR.module(functions));
+
+        System.out.println("input\tchars\tparser MB/s\treader MB/s\tspeedup");
+        for (Map.Entry<String, String> input : inputs.entrySet()) {
+            String text = input.getValue();
+            // first round of both warms up the JIT and the DFA
+            run(text, false, seconds / 4);
+            run(text, true, seconds / 4);
+            double parser = run(text, false, seconds);
+            double reader = run(text, true, seconds);
+            System.out.printf("%s\t%d\t%.2f\t%.2f\t%.2fx%n", input.getKey(), text.length(), parser, reader, reader / parser);
+        }
+    }
+
+    // MB of text per second
+    private static double run(String text, boolean fast, double seconds) {
+        long built = 0, begin = System.nanoTime();
+        while (System.nanoTime() - begin < seconds * 1e9) {
+            var builder = new IRBuilder();
+            builder.keepCanonicalText = true;
+            if (fast) new IRReader(builder, text).read();
+            else builder.run(CharStreams.fromString(text));
+            built += text.length();
+        }
+        return built / 1e6 / ((System.nanoTime() - begin) / 1e9);
+    }
+}
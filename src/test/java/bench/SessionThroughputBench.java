@@ -0,0 +1,66 @@
+package bench;
+
+import llvm2mlog.CompilationSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compilations per second with 1..N threads, each thread compiling with its own session.
+ * usage: SessionThroughputBench [maxThreads] [functions] [seconds]
+ */
+public class SessionThroughputBench {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int functions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 3;
+        byte[] code = SyntheticIR.module(functions).getBytes(StandardCharsets.UTF_8);
+
+        // warm up the JIT and the parser caches
+        run(1, code, seconds);
+
+        System.out.printf("cpus=%d functions=%d%n", Runtime.getRuntime().availableProcessors(), functions);
+        System.out.println("threads\tcompilations/s\tscaling");
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double throughput = run(threads, code, seconds);
+            if (threads == 1) single = throughput;
+            System.out.printf("%d\t%.1f\t%.2fx%n", threads, throughput, throughput / single);
+        }
+    }
+
+    private static double run(int threads, byte[] code, double seconds) throws InterruptedException {
+        AtomicInteger compiled = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = (long) (seconds * 1e9);
+        List<Thread> workers = new ArrayList<>();
+        long[] begin = new long[1];
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                var session = new CompilationSession();
+                try {
+                    start.await();
+                    while (System.nanoTime() - begin[0] < deadline) {
+                        session.compile(new ByteArrayInputStream(code), new PrintStream(new ByteArrayOutputStream()));
+                        compiled.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        begin[0] = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        return compiled.get() / ((System.nanoTime() - begin[0]) / 1e9);
+    }
+}
@@ -0,0 +1,62 @@
+package bench;
+
+/**
+ * Generates LLVM IR modules of a given size for the benchmarks.
+ * Every function is a loop reading and writing globals and calling the previous function,
+ * main calls them all and prints the results.
+ */
+public class SyntheticIR {
+
+    public static String module(int functions) {
+        StringBuilder ir = new StringBuilder();
+        ir.append("@g = dso_local global i32 3, align 4\n");
+        ir.append("@h = dso_local global i32 0, align 4\n");
+        for (int k = 0; k < functions; k++) {
+            ir.append("\ndefine dso_local noundef i32 @\"f").append(k).append("\"(i32 noundef %0) {\n")
+                    .append("  %2 = alloca i32, align 4\n")
+                    .append("  %3 = alloca i32, align 4\n")
+                    .append("  %4 = alloca i32, align 4\n")
+                    .append("  store i32 %0, ptr %2, align 4\n")
+                    .append("  store i32 0, ptr %3, align 4\n")
+                    .append("  store i32 0, ptr %4, align 4\n")
+                    .append("  br label %5\n\n")
+                    .append("5:\n")
+                    .append("  %6 = load i32, ptr %4, align 4\n")
+                    .append("  %7 = load i32, ptr %2, align 4\n")
+                    .append("  %8 = icmp slt i32 %6, %7\n")
+                    .append("  br i1 %8, label %9, label %20\n\n")
+                    .append("9:\n")
+                    .append("  %10 = load i32, ptr %3, align 4\n")
+                    .append("  %11 = load i32, ptr %4, align 4\n")
+                    .append("  %12 = mul nsw i32 %11, ").append(k + 2).append("\n")
+                    .append("  %13 = add nsw i32 %10, %12\n")
+                    .append("  %14 = load i32, ptr @g, align 4\n")
+                    .append("  %15 = add nsw i32 %13, %14\n")
+                    .append("  store i32 %15, ptr %3, align 4\n")
+                    .append("  %16 = load i32, ptr %4, align 4\n")
+                    .append("  %17 = add nsw i32 %16, 1\n")
+                    .append("  store i32 %17, ptr %4, align 4\n")
+                    .append("  %18 = load i32, ptr @h, align 4\n")
+                    .append("  %19 = add nsw i32 %18, 1\n")
+                    .append("  store i32 %19, ptr @h, align 4\n")
+                    .append("  br label %5\n\n")
+                    .append("20:\n")
+                    .append("  %21 = load i32, ptr %3, align 4\n")
+                    .append("  %22 = call noundef i32 @\"f").append(Math.max(k - 1, 0)).append("\"(i32 noundef %21)\n")
+                    .append("  %23 = add nsw i32 %21, %22\n")
+                    .append("  ret i32 %23\n")
+                    .append("}\n");
+        }
+        ir.append("\ndefine dso_local noundef i32 @main() {\n")
+                .append("  %1 = alloca i32, align 4\n")
+                .append("  store i32 0, ptr %1, align 4\n");
+        for (int k = 0; k < functions; k++) {
+            ir.append("  %").append(k + 2).append(" = call noundef i32 @\"f").append(k).append("\"(i32 noundef ").append(k).append(")\n")
+                    .append("  call void @print(i32 noundef %").append(k + 2).append(")\n");
+        }
+        ir.append("  ret i32 0\n")
+                .append("}\n")
+                .append("declare dso_local void @print(i32 noundef)\n");
+        return ir.toString();
+    }
+}